@@ -1,4 +1,4 @@
-package com.shortthirdman.springboot.ratelimiter;
+package com.shortthirdman.springboot.ratelimiter.quickstart;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
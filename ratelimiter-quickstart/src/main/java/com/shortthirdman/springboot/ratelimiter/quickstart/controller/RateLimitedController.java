@@ -0,0 +1,23 @@
+package com.shortthirdman.springboot.ratelimiter.quickstart.controller;
+
+import com.shortthirdman.springboot.ratelimiter.policy.Limit;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimited;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api")
+public class RateLimitedController {
+
+    @GetMapping("/greeting")
+    @RateLimited({
+            @Limit(capacity = 30, period = 1, unit = TimeUnit.MINUTES),
+            @Limit(capacity = 300, period = 1, unit = TimeUnit.HOURS, plan = "free")
+    })
+    public String getGreeting() {
+        return "Hello, World!";
+    }
+}
@@ -1,4 +1,4 @@
-package com.shortthirdman.springboot.ratelimiter;
+package com.shortthirdman.springboot.ratelimiter.quickstart;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -0,0 +1,103 @@
+package com.shortthirdman.springboot.ratelimiter.quickstart;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the packaged quickstart a few times on the JVM, on the JVM with the AOT-generated
+ * initializers and, when one was built, as a native executable. Prints the median time to
+ * "Started" and the median resident set size right after it. Run by the {@code startup} profile.
+ * <p>
+ * Arguments: the executable jar, the number of runs, and optionally the native executable.
+ */
+public class StartupComparison {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in [\\d.]+ seconds \\(process running for ([\\d.]+)\\)");
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: StartupComparison <jar> <runs> [native-executable]");
+            System.exit(2);
+        }
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String jar = args[0];
+        int runs = Integer.parseInt(args[1]);
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("jvm", List.of(java, "-jar", jar));
+        variants.put("jvm+aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", jar));
+        if (args.length > 2 && Files.isExecutable(Path.of(args[2]))) {
+            variants.put("native", List.of(args[2]));
+        }
+
+        System.out.printf("%-10s %12s %12s%n", "variant", "startup ms", "rss MiB");
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            double[] startup = new double[runs];
+            double[] rss = new double[runs];
+            for (int i = 0; i < runs; i++) {
+                Sample sample = start(variant.getValue());
+                startup[i] = sample.startupMillis();
+                rss[i] = sample.rssKib() / 1024.0;
+            }
+            System.out.printf("%-10s %12.0f %12.1f%n", variant.getKey(), median(startup), median(rss));
+        }
+    }
+
+    private static Sample start(List<String> command) throws IOException, InterruptedException {
+        List<String> full = new ArrayList<>(command);
+        full.add("--server.port=0");
+        Process process = new ProcessBuilder(full).redirectErrorStream(true).start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher started = STARTED.matcher(line);
+                if (started.find()) {
+                    double millis = Double.parseDouble(started.group(1)) * 1000;
+                    return new Sample(millis, rssKib(process.pid()));
+                }
+            }
+            throw new IllegalStateException("exited with " + process.waitFor() + " before starting: " + full);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long rssKib(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private record Sample(double startupMillis, long rssKib) {
+    }
+}
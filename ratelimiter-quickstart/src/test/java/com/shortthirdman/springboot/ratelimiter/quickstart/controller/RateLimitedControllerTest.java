@@ -1,4 +1,4 @@
-package com.shortthirdman.springboot.ratelimiter.controller;
+package com.shortthirdman.springboot.ratelimiter.quickstart.controller;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
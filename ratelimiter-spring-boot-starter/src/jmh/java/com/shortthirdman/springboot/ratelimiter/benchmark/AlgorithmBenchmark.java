@@ -0,0 +1,145 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.algorithm.RateLimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the policy algorithms under a limit nothing reaches. {@code hotKey} has every thread
+ * consume from one client's state, where the bucket's and GCRA's CAS loops and the counters'
+ * monitors contend; {@code manyKeys} goes through a policy of {@value #CLIENTS} clients, store
+ * lookups included. At setup each algorithm prints the retained heap of one client's state
+ * under 100 requests per minute, and the most a client, idle and then retrying every
+ * millisecond, gets through in any one second of a 10 per second limit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AlgorithmBenchmark {
+
+    private static final int CLIENTS = 1 << 16;
+    private static final BucketConfiguration UNREACHABLE = limit(1000, Duration.ofNanos(1000));
+
+    @Param({"TOKEN_BUCKET", "SLIDING_WINDOW", "SLIDING_LOG", "GCRA"})
+    public LimitAlgorithm algorithm;
+
+    private RateLimitAlgorithm<Object> limits;
+    private Object hotState;
+    private RateLimitPolicy policy;
+    private ClientKey[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limits = cast(algorithm.create(UNREACHABLE));
+        hotState = limits.newState(ClientStateStore.FULL);
+        policy = new RateLimitPolicy("benchmark", algorithm.create(UNREACHABLE),
+                new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+        String[] addresses = ClientAddresses.ipv4(CLIENTS);
+        keys = new ClientKey[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            keys[i] = ClientKey.of(addresses[i]);
+        }
+        RateLimitAlgorithm<Object> perMinute = cast(algorithm.create(limit(100, Duration.ofMinutes(1))));
+        System.out.printf("%n%s: %d bytes per client state (estimated %d), busiest second of 10/s admits %d%n",
+                algorithm, retainedBytes(perMinute, 200_000), perMinute.bytesPerState(), busiestSecond());
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public ConsumptionProbe hotKey() {
+        return limits.tryConsume(hotState, 1);
+    }
+
+    @Benchmark
+    public ConsumptionProbe manyKeys(Cursor cursor) {
+        return policy.tryConsumeAndReturnRemaining(keys[cursor.next++ & (CLIENTS - 1)], 1);
+    }
+
+    private static long retainedBytes(RateLimitAlgorithm<Object> algorithm, int count) {
+        Object[] states = new Object[count];
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) {
+            states[i] = algorithm.newState(ClientStateStore.FULL);
+            algorithm.tryConsume(states[i], 1);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(states);
+        // the array of references is not part of any state
+        return (after - before - 16 - 4L * count) / count;
+    }
+
+    private int busiestSecond() {
+        AtomicLong clock = new AtomicLong();
+        RateLimitAlgorithm<Object> tenPerSecond = cast(algorithm.create(limit(10, Duration.ofSeconds(1)), clock::get));
+        Object state = tenPerSecond.newState(ClientStateStore.FULL);
+        long second = Duration.ofSeconds(1).toNanos();
+        ArrayDeque<Long> window = new ArrayDeque<>();
+        int busiest = 0;
+        for (long now = 990_000_000L; now < 5 * second; now += 1_000_000) {
+            clock.set(now);
+            if (tenPerSecond.tryConsume(state, 1).isConsumed()) {
+                window.addLast(now);
+                while (now - window.peekFirst() >= second) {
+                    window.removeFirst();
+                }
+                busiest = Math.max(busiest, window.size());
+            }
+        }
+        return busiest;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static BucketConfiguration limit(long capacity, Duration period) {
+        return BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, period)))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RateLimitAlgorithm<Object> cast(RateLimitAlgorithm<?> algorithm) {
+        return (RateLimitAlgorithm<Object>) algorithm;
+    }
+}
@@ -0,0 +1,15 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+final class ClientAddresses {
+
+    private ClientAddresses() {
+    }
+
+    static String[] ipv4(int count) {
+        String[] addresses = new String[count];
+        for (int i = 0; i < count; i++) {
+            addresses[i] = "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,97 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Key extraction plus the per-client cache lookup behind a proxy: the old {@code split(",")[0]}
+ * String key against {@link ClientKeyResolver}. Compare {@code gc.alloc.rate.norm} with {@code -prof gc};
+ * the header baselines show what the mock request itself allocates per lookup, which a servlet
+ * container does not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientKeyBenchmark {
+
+    @Param({"65536"})
+    public int clients;
+
+    private MockHttpServletRequest[] requests;
+    private ClientKeyResolver resolver;
+    private Cache<String, AtomicLong> stringCache;
+    private Cache<ClientKey, AtomicLong> keyCache;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ClientKeyProperties properties = new ClientKeyProperties();
+        properties.setTrustedProxies(List.of("10.255.0.0/16"));
+        resolver = new ClientKeyResolver(properties, new RateLimitPolicyProperties());
+        String[] addresses = ClientAddresses.ipv4(clients);
+        requests = new MockHttpServletRequest[clients];
+        stringCache = Caffeine.newBuilder().build();
+        keyCache = Caffeine.newBuilder().build();
+        for (int i = 0; i < clients; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting");
+            request.setRemoteAddr("10.255.0.1");
+            // public client addresses, so the walk stops at the first hop
+            String client = "203." + addresses[i].substring(3);
+            request.addHeader("X-Forwarded-For", client + ", 10.255.0.2");
+            requests[i] = request;
+            stringCache.put(client, new AtomicLong());
+            keyCache.put(ClientKey.of(client), new AtomicLong());
+        }
+    }
+
+    private MockHttpServletRequest next() {
+        return requests[(cursor++ & Integer.MAX_VALUE) % requests.length];
+    }
+
+    @Benchmark
+    public String headerBaseline() {
+        return next().getHeader("X-Forwarded-For");
+    }
+
+    @Benchmark
+    public String headersBaseline() {
+        return next().getHeaders("X-Forwarded-For").nextElement();
+    }
+
+    @Benchmark
+    public AtomicLong splitStringKey() {
+        MockHttpServletRequest request = next();
+        String xfHeader = request.getHeader("X-Forwarded-For");
+        String key = xfHeader == null ? request.getRemoteAddr() : xfHeader.split(",")[0];
+        return stringCache.getIfPresent(key);
+    }
+
+    @Benchmark
+    public AtomicLong resolvedClientKey() {
+        return keyCache.getIfPresent(resolver.resolve(next()));
+    }
+}
@@ -0,0 +1,39 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Per-thread request cycling through {@code clients} distinct remote addresses.
+ */
+@State(Scope.Thread)
+public class ClientRequests {
+
+    // a plain handler, so no endpoint policy applies
+    static final Object HANDLER = new Object();
+
+    @Param({"1", "65536"})
+    public int clients;
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting");
+    private String[] addresses;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(ThreadParams threadParams) {
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/greeting");
+        addresses = ClientAddresses.ipv4(clients);
+        cursor = threadParams.getThreadIndex() * 7919;
+    }
+
+    public MockHttpServletRequest next() {
+        request.setRemoteAddr(addresses[(cursor++ & Integer.MAX_VALUE) % addresses.length]);
+        return request;
+    }
+}
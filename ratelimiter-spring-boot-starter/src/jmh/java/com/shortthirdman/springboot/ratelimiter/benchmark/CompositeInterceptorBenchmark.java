@@ -0,0 +1,92 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostProperties;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.interceptor.CompositeRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimitProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the composite interceptor's {@code preHandle} with its default stages, the
+ * dynamic per-client limit and the global bucket. Run with {@code -t 1}, {@code -t 2} ... {@code -t max}
+ * to see how the client store and the shared bucket scale with threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompositeInterceptorBenchmark {
+
+    DynamicRateLimiter rateLimiter;
+    CompositeRateLimitInterceptor compositeInterceptor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(), new DynamicRateLimitCalculator(),
+                new SimpleMeterRegistry(), new RateLimiterEngineFactory("caffeine", 1 << 20, 64, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())), 100, 0, Optional.empty());
+        // large enough to never run dry, so every thread hits the admit path and its CAS on the shared bucket
+        Bucket sharedBucket = Bucket.builder()
+                .addLimit(Bandwidth.simple(1_000_000_000_000L, Duration.ofHours(1)))
+                .build();
+        ClientKeyResolver keyResolver = new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties());
+        ClientStateStoreFactory stores = new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry());
+        compositeInterceptor = new CompositeRateLimitInterceptor(rateLimiter,
+                new RateLimitPolicyRegistry(new RateLimitPolicyProperties(), stores),
+                new SubnetLimiter(new SubnetLimitProperties(), stores), keyResolver,
+                new RequestCostEstimator(new RequestCostProperties()), Optional.empty(), new StripedBucket(sharedBucket), Optional.empty(),
+                new BucketSpec(1_000_000_000_000L, 1_000_000_000_000L, Duration.ofHours(1)),
+                new HeavyHitters(32, 1_000_000), Optional.empty());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rateLimiter.shutdown();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse baseline(ClientRequests requests) {
+        requests.next();
+        return new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public boolean composite(ClientRequests requests) throws Exception {
+        return compositeInterceptor.preHandle(requests.next(), new MockHttpServletResponse(), ClientRequests.HANDLER);
+    }
+}
@@ -0,0 +1,105 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cost of each way of recalculating the dynamic limit. {@code startup} builds and stops a limiter,
+ * with its scheduler in {@code scheduled} mode. {@code startRequest} is the request-path entry that
+ * carries the lazy check. {@code idle} parks without traffic while the limit is due every
+ * millisecond and reports the process CPU time spent meanwhile as {@code cpuMicros}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigRefreshBenchmark {
+
+    private static final Duration REFRESH_INTERVAL = Duration.ofMillis(1);
+
+    @Param({"lazy", "scheduled"})
+    public String mode;
+
+    SystemMetricsCollector collector;
+    RateLimiterEngineFactory engineFactory;
+    DynamicRateLimiter rateLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        collector = new SystemMetricsCollector();
+        engineFactory = new RateLimiterEngineFactory("caffeine", 1 << 16, 16, null,
+                new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+        rateLimiter = rateLimiter();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rateLimiter.shutdown();
+        collector.shutdown();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public DynamicRateLimiter startup() {
+        DynamicRateLimiter limiter = rateLimiter();
+        limiter.shutdown();
+        return limiter;
+    }
+
+    @Benchmark
+    public long startRequest() {
+        return rateLimiter.startRequest();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class CpuTime {
+
+        public long cpuMicros;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public void idle(CpuTime cpu) {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long before = os.getProcessCpuTime();
+        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+        cpu.cpuMicros += TimeUnit.NANOSECONDS.toMicros(os.getProcessCpuTime() - before);
+    }
+
+    private DynamicRateLimiter rateLimiter() {
+        return new DynamicRateLimiter(collector, new DynamicRateLimitCalculator(), new SimpleMeterRegistry(),
+                engineFactory, 100, 0, Optional.empty(), REFRESH_INTERVAL, "scheduled".equals(mode));
+    }
+}
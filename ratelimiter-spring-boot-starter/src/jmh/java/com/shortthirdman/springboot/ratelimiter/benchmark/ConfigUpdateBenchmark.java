@@ -0,0 +1,92 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.engine.BucketCacheEngine;
+import com.shortthirdman.springboot.ratelimiter.engine.PrimitiveTokenBucketEngine;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngine;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consume latency while a fourth thread flips the limit between 1000 and 500 every 50 ms.
+ * {@code invalidate} reproduces the old behaviour of dropping every bucket on a change,
+ * {@code in-place} applies the change to the existing buckets. Compare the p99.9 of {@code consume}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class ConfigUpdateBenchmark {
+
+    private static final RateLimitConfigValues HIGH = new RateLimitConfigValues(1000, Duration.ofMinutes(1));
+    private static final RateLimitConfigValues LOW = new RateLimitConfigValues(500, Duration.ofMinutes(1));
+
+    @Param({"caffeine", "primitive"})
+    public String engine;
+
+    @Param({"invalidate", "in-place"})
+    public String update;
+
+    private RateLimiterEngine limiter;
+    private String[] addresses;
+    private boolean high;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = "primitive".equals(engine)
+                ? new PrimitiveTokenBucketEngine(() -> HIGH, 1 << 20, 64)
+                : new BucketCacheEngine(() -> HIGH, new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+        addresses = ClientAddresses.ipv4(1 << 18);
+        for (String address : addresses) {
+            limiter.tryConsumeAndReturnRemaining(address, 1);
+        }
+        high = true;
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Group("update")
+    @GroupThreads(3)
+    public ConsumptionProbe consume(Cursor cursor) {
+        return limiter.tryConsumeAndReturnRemaining(addresses[cursor.next++ & (addresses.length - 1)], 1);
+    }
+
+    @Benchmark
+    @Group("update")
+    @GroupThreads(1)
+    public void reconfigure() {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        high = !high;
+        if ("invalidate".equals(update)) {
+            limiter.invalidateAll();
+        } else {
+            limiter.onConfigurationChange(high ? HIGH : LOW);
+        }
+    }
+}
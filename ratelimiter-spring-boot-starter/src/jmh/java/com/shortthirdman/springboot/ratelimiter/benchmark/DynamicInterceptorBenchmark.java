@@ -0,0 +1,63 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.interceptor.DynamicRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamicInterceptorBenchmark {
+
+    @Param({"caffeine", "primitive"})
+    public String engine;
+
+    DynamicRateLimiter rateLimiter;
+    DynamicRateLimitInterceptor interceptor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(), new DynamicRateLimitCalculator(),
+                new SimpleMeterRegistry(), new RateLimiterEngineFactory(engine, 1 << 20, 64, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())), 100, 0, Optional.empty());
+        interceptor = new DynamicRateLimitInterceptor(rateLimiter, new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rateLimiter.shutdown();
+    }
+
+    @Benchmark
+    public boolean preHandle(ClientRequests requests) throws Exception {
+        return interceptor.preHandle(requests.next(), new MockHttpServletResponse(), ClientRequests.HANDLER);
+    }
+}
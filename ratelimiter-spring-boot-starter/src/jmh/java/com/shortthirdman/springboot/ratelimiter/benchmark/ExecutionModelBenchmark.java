@@ -0,0 +1,167 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.filter.DynamicRateLimitWebFilter;
+import com.shortthirdman.springboot.ratelimiter.interceptor.DynamicRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetrics;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Each operation is a burst of {@value #BURST} requests from {@value #CLIENTS} clients limited to
+ * 10 requests per 5 ms, with a 10 ms wait budget. {@code mvc} runs the burst through the servlet
+ * interceptor on a platform thread (rejects immediately), {@code webflux} through the web filter
+ * (delays without blocking), {@code virtual} on one virtual thread per request (parks).
+ * The {@code admitted} and {@code rejected} counters show what each model did with the burst.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModelBenchmark {
+
+    private static final int BURST = 64;
+    private static final int CLIENTS = 16;
+    private static final RateLimitConfigValues CONFIG = new RateLimitConfigValues(10, Duration.ofMillis(5));
+
+    @Param({"mvc", "webflux", "virtual"})
+    public String model;
+
+    private DynamicRateLimiter rateLimiter;
+    private DynamicRateLimitInterceptor interceptor;
+    private DynamicRateLimitWebFilter webFilter;
+    private ExecutorService virtualThreads;
+    private String[] addresses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        DynamicRateLimitCalculator fixedCalculator = new DynamicRateLimitCalculator() {
+            @Override
+            public RateLimitConfigValues calculateLimit(SystemMetrics metrics) {
+                return CONFIG;
+            }
+        };
+        rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(), fixedCalculator, new SimpleMeterRegistry(),
+                new RateLimiterEngineFactory("primitive", 1 << 16, 16, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())), 100, 10, Optional.empty());
+        while (rateLimiter.getRateLimitConfig() != CONFIG) {
+            Thread.sleep(1);
+        }
+        ClientKeyResolver keyResolver = new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties());
+        interceptor = new DynamicRateLimitInterceptor(rateLimiter, keyResolver);
+        webFilter = new DynamicRateLimitWebFilter(rateLimiter, keyResolver, "/api/**");
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        addresses = ClientAddresses.ipv4(CLIENTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        virtualThreads.shutdown();
+        rateLimiter.shutdown();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long admitted;
+        public long rejected;
+
+        void record(boolean allowed) {
+            if (allowed) {
+                admitted++;
+            } else {
+                rejected++;
+            }
+        }
+    }
+
+    @Benchmark
+    public void burst(Outcomes outcomes) throws Exception {
+        switch (model) {
+            case "webflux" -> reactiveBurst(outcomes);
+            case "virtual" -> virtualBurst(outcomes);
+            default -> {
+                for (int i = 0; i < BURST; i++) {
+                    outcomes.record(servletRequest(i));
+                }
+            }
+        }
+    }
+
+    private boolean servletRequest(int i) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting");
+        request.setRemoteAddr(addresses[i % CLIENTS]);
+        return interceptor.preHandle(request, new MockHttpServletResponse(), ClientRequests.HANDLER);
+    }
+
+    private void virtualBurst(Outcomes outcomes) throws Exception {
+        Future<?>[] futures = new Future<?>[BURST];
+        AtomicInteger admitted = new AtomicInteger();
+        for (int i = 0; i < BURST; i++) {
+            int index = i;
+            futures[i] = virtualThreads.submit(() -> {
+                if (servletRequest(index)) {
+                    admitted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        outcomes.admitted += admitted.get();
+        outcomes.rejected += BURST - admitted.get();
+    }
+
+    private void reactiveBurst(Outcomes outcomes) {
+        Flux.range(0, BURST)
+                .flatMap(i -> {
+                    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/greeting")
+                            .remoteAddress(new InetSocketAddress(addresses[i % CLIENTS], 8080)));
+                    return webFilter.filter(exchange, ex -> Mono.empty())
+                            .then(Mono.fromSupplier(() -> exchange.getResponse().getStatusCode() != HttpStatus.TOO_MANY_REQUESTS));
+                }, BURST)
+                .doOnNext(outcomes::record)
+                .blockLast();
+    }
+}
@@ -0,0 +1,134 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.distributed.BatchingRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.distributed.Reservation;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngine;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Derives the per-client heap estimates the client stores are weighed by. At setup each store
+ * is filled with {@value #CLIENTS} distinct IPv4 clients and the heap retained per client after
+ * GC is printed next to the store's estimate; the benchmark itself is a lookup of a known client.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    private static final int CLIENTS = 1 << 18;
+    private static final RateLimitConfigValues PER_MINUTE = new RateLimitConfigValues(100, Duration.ofMinutes(1));
+
+    public enum Store {
+        DYNAMIC, DISTRIBUTED, POLICY
+    }
+
+    @Param({"DYNAMIC", "DISTRIBUTED", "POLICY"})
+    public Store store;
+
+    private String[] addresses;
+    private ToLongFunction<String> client;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        addresses = ClientAddresses.ipv4(CLIENTS);
+        RecordingStores stores = new RecordingStores();
+        long estimate = switch (store) {
+            case DYNAMIC -> {
+                RateLimiterEngine engine = new RateLimiterEngineFactory("caffeine", CLIENTS, 1, null, stores)
+                        .create(() -> PER_MINUTE);
+                client = address -> engine.tryConsumeAndReturnRemaining(ClientKey.of(address), 1).getRemainingTokens();
+                yield engine.bytesPerClient();
+            }
+            case DISTRIBUTED -> {
+                // a store keeping nothing on this node, so only the local leases are counted
+                BatchingRateLimiter limiter = new BatchingRateLimiter((key, tokens, spec) -> new Reservation(tokens,
+                        spec.getCapacity() - tokens, spec.getRefillPeriod().toNanos()), 10, 1, 0.1, 1000, CLIENTS);
+                StaticListableBeanFactory beans = new StaticListableBeanFactory();
+                beans.addBean("batchingRateLimiter", limiter);
+                RateLimiterEngine engine = new RateLimiterEngineFactory("distributed", CLIENTS, 1,
+                        beans.getBeanProvider(BatchingRateLimiter.class), stores).create(() -> PER_MINUTE);
+                client = address -> engine.tryConsumeAndReturnRemaining(ClientKey.of(address), 1).getRemainingTokens();
+                yield engine.bytesPerClient();
+            }
+            case POLICY -> {
+                RateLimitPolicy policy = new RateLimitPolicy("footprint", LimitAlgorithm.TOKEN_BUCKET.create(
+                        BucketConfiguration.builder()
+                                .addLimit(Bandwidth.classic(100, Refill.intervally(100, Duration.ofMinutes(1))))
+                                .build()), stores);
+                client = address -> policy.tryConsumeAndReturnRemaining(ClientKey.of(address), 1).getRemainingTokens();
+                yield stores.bytesPerEntry;
+            }
+        };
+
+        long before = usedHeap();
+        for (String address : addresses) {
+            client.applyAsLong(address);
+        }
+        long after = usedHeap();
+        System.out.printf("%n%s: %d bytes per client (estimated %d)%n", store, (after - before) / CLIENTS, estimate);
+    }
+
+    @Benchmark
+    public long knownClient() {
+        return client.applyAsLong(addresses[next++ & (CLIENTS - 1)]);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Remembers the estimate the store under test was created with.
+     */
+    private static final class RecordingStores extends ClientStateStoreFactory {
+
+        private long bytesPerEntry;
+
+        private RecordingStores() {
+            super(new ClientStoreProperties(), new SimpleMeterRegistry());
+        }
+
+        @Override
+        public <V> ClientStateStore<V> create(String name, long bytesPerEntry, ToLongFunction<V> nanosToFull,
+                                              ToLongFunction<V> availableTokens, ToLongFunction<V> capacity) {
+            this.bytesPerEntry = bytesPerEntry;
+            return super.create(name, bytesPerEntry, nanosToFull, availableTokens, capacity);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every thread consumes from the one global bucket, which never runs dry. {@code single} is the
+ * plain bucket with its CAS on one shared state; {@code striped} splits it into one stripe per
+ * thread with a 1% tolerance. Run with {@code -t 1}, {@code 2}, {@code 4} and {@code max} to see
+ * how each scales with cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class GlobalBucketBenchmark {
+
+    private static final long CAPACITY = 1_000_000_000_000L;
+
+    @Param({"single", "striped"})
+    public String layout;
+
+    private StripedBucket bucket;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Bucket central = Bucket.builder()
+                .addLimit(Bandwidth.simple(CAPACITY, Duration.ofHours(1)))
+                .build();
+        bucket = "striped".equals(layout)
+                ? new StripedBucket(central, CAPACITY, Runtime.getRuntime().availableProcessors() * 4, 0.01)
+                : new StripedBucket(central);
+    }
+
+    @Benchmark
+    public ConsumptionProbe consume() {
+        return bucket.tryConsumeAndReturnRemaining(1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.key.CidrSet;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.key.PrefixTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Longest-prefix lookup of client addresses against {@code rules} random IPv4 /16-/28 and IPv6
+ * /32-/64 blocks, against a linear {@link CidrSet} scan. The trie should stay flat as rules grow
+ * and allocate nothing ({@code -prof gc}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PrefixTrieBenchmark {
+
+    @Param({"100", "100000"})
+    public int rules;
+
+    private PrefixTrie<String> trie;
+    private CidrSet linear;
+    private ClientKey[] clients;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        trie = new PrefixTrie<>();
+        List<String> blocks = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            String block = random.nextBoolean()
+                    ? random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/" + (16 + random.nextInt(13))
+                    : String.format("2001:%x:%x::/%d", random.nextInt(0x10000), random.nextInt(0x10000), 32 + random.nextInt(33));
+            trie.put(block, block);
+            blocks.add(block);
+        }
+        linear = CidrSet.parse(blocks.subList(0, Math.min(blocks.size(), 1000)));
+        clients = new ClientKey[4096];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = random.nextBoolean()
+                    ? ClientKey.ofIpv4(random.nextInt())
+                    : ClientKey.ofAddress(0x2001_0000_0000_0000L | random.nextLong() >>> 16, random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public String trie() {
+        return trie.find(clients[cursor++ & (clients.length - 1)]);
+    }
+
+    /**
+     * Capped at the first 1000 blocks, past that a scan per request is out of the question anyway.
+     */
+    @Benchmark
+    public boolean linearScan() {
+        return linear.contains(clients[cursor++ & (clients.length - 1)]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached timer lookup in {@link RateLimitMetrics#stopTimer} against building and registering the
+ * timer on every call, which is what the interceptor used to do. Compare {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimitMetricsBenchmark {
+
+    private MeterRegistry registry;
+    private RateLimitMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        RateLimitConfigValues config = new RateLimitConfigValues(100, Duration.ofMinutes(1));
+        metrics = new RateLimitMetrics(registry, () -> config);
+    }
+
+    @Benchmark
+    public void cachedTimer() {
+        metrics.stopTimer(metrics.startTimer(), "/api/greeting", "GET", false);
+    }
+
+    @Benchmark
+    public void registerPerRequest() {
+        Timer.Sample sample = Timer.start();
+        Timer timer = Timer.builder("rate_limit.request.duration")
+                .description("Request duration through rate limiter")
+                .tags(
+                        "path", "/api/greeting",
+                        "method", "GET",
+                        "rate_limited", String.valueOf(false),
+                        "component", "rate_limiter"
+                )
+                .register(registry);
+        sample.stop(timer);
+    }
+}
@@ -0,0 +1,178 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostProperties;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.interceptor.CompositeRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimitProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import com.shortthirdman.springboot.ratelimiter.web.RateLimitResponses;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering a request with 429. The response is reused and reset per call, so
+ * {@code resetOnly} is the floor the others sit on; its body streams write in bulk like a
+ * container's, where the plain mock writes arrays a byte at a time with a flush per byte.
+ * {@code formatted} is the former {@code String.format} and writer path, {@code precomputed}
+ * writes the cached templates, {@code compositeRejection} is the whole interceptor against an
+ * exhausted global bucket. Run with {@code -prof gc} to see the allocation per rejection; most
+ * of what remains is the mock's header map.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RejectionBenchmark {
+
+    private final RecyclingResponse response = new RecyclingResponse();
+    private final ConsumptionProbe probe = ConsumptionProbe.rejected(0, 12_300_000_000L, 59_000_000_000L);
+
+    DynamicRateLimiter rateLimiter;
+    CompositeRateLimitInterceptor compositeInterceptor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(), new DynamicRateLimitCalculator(),
+                new SimpleMeterRegistry(), new RateLimiterEngineFactory("caffeine", 1 << 20, 64, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())), 100, 0, Optional.empty());
+        Bucket exhausted = Bucket.builder()
+                .addLimit(Bandwidth.simple(1, Duration.ofHours(1)))
+                .build();
+        exhausted.tryConsume(1);
+        ClientStateStoreFactory stores = new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry());
+        compositeInterceptor = new CompositeRateLimitInterceptor(rateLimiter,
+                new RateLimitPolicyRegistry(new RateLimitPolicyProperties(), stores),
+                new SubnetLimiter(new SubnetLimitProperties(), stores),
+                new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties()),
+                new RequestCostEstimator(new RequestCostProperties()), Optional.empty(), new StripedBucket(exhausted), Optional.empty(),
+                new BucketSpec(1, 1, Duration.ofHours(1)), new HeavyHitters(32, 1_000_000), Optional.empty());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rateLimiter.shutdown();
+    }
+
+    @Benchmark
+    public int resetOnly() {
+        response.reset();
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int formatted() throws Exception {
+        response.reset();
+        response.addHeader("X-Rate-Limit-Limit", String.valueOf(100L));
+        response.addHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
+        response.addHeader("X-Rate-Limit-Reset", String.valueOf(probe.getNanosToWaitForReset() / 1_000_000_000));
+        long retryAfter = probe.getNanosToWaitForRefill() / 1_000_000_000;
+        response.setStatus(429);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(retryAfter));
+        response.getWriter().write(String.format(
+                "{\"error\": \"Rate limit exceeded. Try again in %d seconds\", \"retryAfter\": %d}",
+                retryAfter, retryAfter));
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int precomputed() throws Exception {
+        response.reset();
+        RateLimitResponses.reject(response, 100, probe);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public boolean compositeRejection(ClientRequests requests) throws Exception {
+        response.reset();
+        return compositeInterceptor.preHandle(requests.next(), response, ClientRequests.HANDLER);
+    }
+
+    /**
+     * Keeps one output stream and writer across resets, as a container recycles them per request.
+     */
+    static class RecyclingResponse extends MockHttpServletResponse {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        private final PrintWriter writer = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+        private final ServletOutputStream stream = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                body.write(bytes, offset, length);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return writer;
+        }
+
+        @Override
+        public void reset() {
+            // the container flushes the writer when the response completes
+            writer.flush();
+            body.reset();
+            super.reset();
+        }
+    }
+}
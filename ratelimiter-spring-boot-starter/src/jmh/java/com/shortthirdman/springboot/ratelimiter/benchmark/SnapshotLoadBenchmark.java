@@ -0,0 +1,102 @@
+package com.shortthirdman.springboot.ratelimiter.benchmark;
+
+import com.shortthirdman.springboot.ratelimiter.engine.PrimitiveTokenBucketEngine;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateSource;
+import com.shortthirdman.springboot.ratelimiter.store.StateSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start cost of a snapshot holding {@code clients} drained buckets: {@code read} maps the
+ * file and builds the restore table, {@code restorePrimitive} additionally seeds a primitive
+ * engine sized for the same number of clients, and {@code write} is the periodic snapshot itself.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SnapshotLoadBenchmark {
+
+    private static final RateLimitConfigValues CONFIG = new RateLimitConfigValues(100, Duration.ofMinutes(1));
+
+    @Param({"1000000", "10000000"})
+    public int clients;
+
+    Path path;
+    long[] fingerprints;
+    ClientStateSource source;
+    PrimitiveTokenBucketEngine engine;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        path = Files.createTempFile("ratelimiter-snapshot", ".bin");
+        fingerprints = new long[clients];
+        for (int i = 0; i < clients; i++) {
+            fingerprints[i] = ClientKey.ofIpv4(0x0A00_0000 | i).fingerprint();
+        }
+        source = new ClientStateSource() {
+            @Override
+            public String snapshotName() {
+                return "dynamic";
+            }
+
+            @Override
+            public void forEachClient(Visitor visitor) {
+                long refillNanos = CONFIG.getRefillDuration().toNanos();
+                for (int i = 0; i < fingerprints.length; i++) {
+                    visitor.accept(fingerprints[i], i % 50, 100, refillNanos);
+                }
+            }
+        };
+        StateSnapshot.write(path, Map.of(), List.of(source));
+    }
+
+    @Setup(Level.Iteration)
+    public void newEngine() {
+        engine = new PrimitiveTokenBucketEngine(() -> CONFIG, clients, 64);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public StateSnapshot read() throws IOException {
+        return StateSnapshot.read(path);
+    }
+
+    @Benchmark
+    public PrimitiveTokenBucketEngine restorePrimitive() throws IOException {
+        engine.restore(StateSnapshot.read(path).takeSection("dynamic"));
+        return engine;
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        return StateSnapshot.write(path, Map.of(), List.of(source));
+    }
+}
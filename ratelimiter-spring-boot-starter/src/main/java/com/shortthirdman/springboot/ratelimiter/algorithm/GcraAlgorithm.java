@@ -0,0 +1,153 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongSupplier;
+
+/**
+ * Generic cell rate algorithm. Each token moves a bandwidth's theoretical arrival time, the time
+ * the client would be idle again at the long-run rate, one emission interval further; a request
+ * is admitted while that stays within {@code capacity} intervals of now.
+ * <p>
+ * State is one {@code long} per bandwidth, advanced by CAS. With several bandwidths they are
+ * advanced one after the other and rolled back if a later one rejects, the same way the composite
+ * interceptor rolls back its stages, so a concurrent request can briefly see a charge that is
+ * taken back.
+ */
+final class GcraAlgorithm implements RateLimitAlgorithm<long[]> {
+
+    private static final VarHandle ARRIVALS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final LongSupplier nanoClock;
+    private final long[] capacities;
+    private final long[] intervals;
+    private final long[] tolerances;
+    private final int tightest;
+    private final long capacity;
+    private final long nanosToFull;
+
+    GcraAlgorithm(BucketConfiguration configuration, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock == null ? System::nanoTime : nanoClock;
+        Bandwidth[] bandwidths = configuration.getBandwidths();
+        this.capacities = new long[bandwidths.length];
+        this.intervals = new long[bandwidths.length];
+        this.tolerances = new long[bandwidths.length];
+        int smallest = 0;
+        long longestTolerance = 0;
+        for (int i = 0; i < bandwidths.length; i++) {
+            capacities[i] = bandwidths[i].getCapacity();
+            intervals[i] = Math.max(1, bandwidths[i].getRefillPeriodNanos() / bandwidths[i].getRefillTokens());
+            tolerances[i] = capacities[i] > Long.MAX_VALUE / 4 / intervals[i] ? Long.MAX_VALUE / 4 : capacities[i] * intervals[i];
+            if (capacities[i] < capacities[smallest]) {
+                smallest = i;
+            }
+            longestTolerance = Math.max(longestTolerance, tolerances[i]);
+        }
+        this.tightest = smallest;
+        this.capacity = capacities[smallest];
+        this.nanosToFull = longestTolerance;
+    }
+
+    @Override
+    public long[] newState(long initialTokens) {
+        long now = nanoClock.getAsLong();
+        long[] arrivals = new long[capacities.length];
+        for (int i = 0; i < arrivals.length; i++) {
+            long spent = initialTokens == ClientStateStore.FULL ? 0 : capacities[i] - Math.min(initialTokens, capacities[i]);
+            arrivals[i] = now + spent * intervals[i];
+        }
+        return arrivals;
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(long[] arrivals, long tokens) {
+        long now = nanoClock.getAsLong();
+        long available = Long.MAX_VALUE;
+        long reset = 0;
+        for (int i = 0; i < arrivals.length; i++) {
+            while (true) {
+                long arrival = (long) ARRIVALS.getVolatile(arrivals, i);
+                long next = Math.max(arrival, now) + tokens * intervals[i];
+                long excess = next - now - tolerances[i];
+                if (excess > 0) {
+                    for (int j = 0; j < i; j++) {
+                        refund(arrivals, j, tokens, now);
+                    }
+                    long bandwidthAvailable = Math.max(0, (tolerances[i] - Math.max(0, arrival - now)) / intervals[i]);
+                    long wait = tokens > capacities[i] ? Long.MAX_VALUE : excess;
+                    return ConsumptionProbe.rejected(Math.min(available, bandwidthAvailable), wait, wait);
+                }
+                if (ARRIVALS.compareAndSet(arrivals, i, arrival, next)) {
+                    available = Math.min(available, -excess / intervals[i]);
+                    if (i == tightest) {
+                        reset = next - now;
+                    }
+                    break;
+                }
+            }
+        }
+        return ConsumptionProbe.consumed(available, reset);
+    }
+
+    @Override
+    public void addTokens(long[] arrivals, long tokens) {
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < arrivals.length; i++) {
+            refund(arrivals, i, tokens, now);
+        }
+    }
+
+    @Override
+    public void removeTokens(long[] arrivals, long tokens) {
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < arrivals.length; i++) {
+            while (true) {
+                long arrival = (long) ARRIVALS.getVolatile(arrivals, i);
+                if (ARRIVALS.compareAndSet(arrivals, i, arrival, Math.max(arrival, now) + tokens * intervals[i])) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public long availableTokens(long[] arrivals) {
+        long now = nanoClock.getAsLong();
+        long available = Long.MAX_VALUE;
+        for (int i = 0; i < arrivals.length; i++) {
+            long backlog = Math.max(0, (long) ARRIVALS.getVolatile(arrivals, i) - now);
+            available = Math.min(available, Math.max(0, (tolerances[i] - backlog) / intervals[i]));
+        }
+        return available;
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long nanosToFull() {
+        return nanosToFull;
+    }
+
+    @Override
+    public long bytesPerState() {
+        return 16 + 8L * capacities.length;
+    }
+
+    private void refund(long[] arrivals, int i, long tokens, long now) {
+        while (true) {
+            long arrival = (long) ARRIVALS.getVolatile(arrivals, i);
+            if (arrival <= now || ARRIVALS.compareAndSet(arrivals, i, arrival,
+                    Math.max(now, arrival - tokens * intervals[i]))) {
+                return;
+            }
+        }
+    }
+}
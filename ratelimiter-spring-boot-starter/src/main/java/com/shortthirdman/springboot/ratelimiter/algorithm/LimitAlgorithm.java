@@ -0,0 +1,61 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Algorithms a policy can enforce its bandwidths with. Each bandwidth allows {@code capacity}
+ * requests at once and {@code refillTokens} per {@code period} in the long run.
+ */
+public enum LimitAlgorithm {
+
+    /**
+     * bucket4j bucket refilled intervally: a client can spend a full bucket just before and
+     * again just after a refill, and waiting clients all retry at the refill.
+     */
+    TOKEN_BUCKET {
+        @Override
+        public RateLimitAlgorithm<?> create(BucketConfiguration configuration, LongSupplier nanoClock) {
+            return new TokenBucketAlgorithm(configuration, nanoClock);
+        }
+    },
+
+    /**
+     * Counts of the current and previous window, the previous one weighted by how much of it
+     * still overlaps the sliding window. Windows start at each client's first request.
+     */
+    SLIDING_WINDOW {
+        @Override
+        public RateLimitAlgorithm<?> create(BucketConfiguration configuration, LongSupplier nanoClock) {
+            return new SlidingWindowAlgorithm(configuration, nanoClock);
+        }
+    },
+
+    /**
+     * Exact: one timestamp per admitted token, so only for small capacities.
+     */
+    SLIDING_LOG {
+        @Override
+        public RateLimitAlgorithm<?> create(BucketConfiguration configuration, LongSupplier nanoClock) {
+            return new SlidingLogAlgorithm(configuration, nanoClock);
+        }
+    },
+
+    /**
+     * Generic cell rate algorithm: one theoretical arrival time per bandwidth, updated by CAS.
+     * Refills continuously, so a burst is followed by evenly spaced admissions.
+     */
+    GCRA {
+        @Override
+        public RateLimitAlgorithm<?> create(BucketConfiguration configuration, LongSupplier nanoClock) {
+            return new GcraAlgorithm(configuration, nanoClock);
+        }
+    };
+
+    public abstract RateLimitAlgorithm<?> create(BucketConfiguration configuration, LongSupplier nanoClock);
+
+    public RateLimitAlgorithm<?> create(BucketConfiguration configuration) {
+        return create(configuration, null);
+    }
+}
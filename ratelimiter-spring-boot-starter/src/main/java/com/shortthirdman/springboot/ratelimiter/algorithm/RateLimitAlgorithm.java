@@ -0,0 +1,52 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Limiter SPI behind a {@code RateLimitPolicy}: one instance per policy, holding the compiled
+ * bandwidths, and one small state object of type {@code S} per client, kept by the policy's
+ * {@code ClientStateStore}. Implementations must be safe for concurrent use on the same state.
+ *
+ * @param <S> per-client state
+ */
+public interface RateLimitAlgorithm<S> {
+
+    /**
+     * State for a new client, starting with {@code initialTokens}, or full for {@code ClientStateStore.FULL}.
+     */
+    S newState(long initialTokens);
+
+    /**
+     * Takes tokens if every bandwidth has them. The probe's remaining tokens are those of the emptiest
+     * bandwidth, and its reset is the time until the tightest bandwidth, the one {@link #capacity()}
+     * reports, is full again, so the three rate limit headers describe the same limit.
+     */
+    ConsumptionProbe tryConsume(S state, long tokens);
+
+    /**
+     * Gives back tokens of a request another limit rejected, never beyond the capacity.
+     */
+    void addTokens(S state, long tokens);
+
+    /**
+     * Charges tokens after the fact; the client may go into debt.
+     */
+    void removeTokens(S state, long tokens);
+
+    long availableTokens(S state);
+
+    /**
+     * Capacity of the tightest bandwidth, reported as the limit in response headers.
+     */
+    long capacity();
+
+    /**
+     * Longest time an untouched state needs to be full again.
+     */
+    long nanosToFull();
+
+    /**
+     * Approximate retained heap of one state object, in bytes.
+     */
+    long bytesPerState();
+}
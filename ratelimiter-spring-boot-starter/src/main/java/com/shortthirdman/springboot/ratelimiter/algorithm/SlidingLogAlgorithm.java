@@ -0,0 +1,180 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding log: the admission time of each of a client's last tokens, in a ring as large as the
+ * largest capacity. A bandwidth admits {@code n} more tokens if the token {@code capacity - n + 1}
+ * places back is older than its window, so every check is one array read and the limit is exact.
+ * Memory grows with the capacity, hence the {@value #MAX_CAPACITY} cap.
+ * <p>
+ * State is a {@code long[]} holding the number of tokens ever logged followed by the ring,
+ * guarded by its own monitor.
+ */
+final class SlidingLogAlgorithm implements RateLimitAlgorithm<long[]> {
+
+    static final int MAX_CAPACITY = 1024;
+
+    // a slot older than any window: never written, or refunded
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final LongSupplier nanoClock;
+    private final long[] capacities;
+    private final long[] windows;
+    private final int size;
+    private final int tightest;
+    private final long capacity;
+    private final long nanosToFull;
+
+    SlidingLogAlgorithm(BucketConfiguration configuration, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock == null ? System::nanoTime : nanoClock;
+        Bandwidth[] bandwidths = configuration.getBandwidths();
+        this.capacities = new long[bandwidths.length];
+        this.windows = new long[bandwidths.length];
+        int smallest = 0;
+        long largestCapacity = 0;
+        long longestWindow = 0;
+        for (int i = 0; i < bandwidths.length; i++) {
+            capacities[i] = bandwidths[i].getCapacity();
+            windows[i] = SlidingWindowAlgorithm.windowNanos(bandwidths[i]);
+            if (capacities[i] < capacities[smallest]) {
+                smallest = i;
+            }
+            largestCapacity = Math.max(largestCapacity, capacities[i]);
+            longestWindow = Math.max(longestWindow, windows[i]);
+        }
+        if (largestCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("A sliding log keeps a timestamp per token, so capacities are limited to "
+                    + MAX_CAPACITY + ", got " + largestCapacity);
+        }
+        this.size = (int) largestCapacity;
+        this.tightest = smallest;
+        this.capacity = capacities[smallest];
+        this.nanosToFull = longestWindow;
+    }
+
+    @Override
+    public long[] newState(long initialTokens) {
+        long[] state = new long[size + 1];
+        Arrays.fill(state, 1, state.length, EMPTY);
+        if (initialTokens != ClientStateStore.FULL) {
+            append(state, capacity - Math.min(initialTokens, capacity), nanoClock.getAsLong());
+        }
+        return state;
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(long[] state, long tokens) {
+        synchronized (state) {
+            long now = nanoClock.getAsLong();
+            long available = Long.MAX_VALUE;
+            long wait = 0;
+            for (int i = 0; i < capacities.length; i++) {
+                long bandwidthAvailable = capacities[i] - inWindow(state, i, now);
+                available = Math.min(available, bandwidthAvailable);
+                if (tokens > capacities[i]) {
+                    wait = Long.MAX_VALUE;
+                } else if (tokens > bandwidthAvailable) {
+                    // the oldest token that has to leave the window first
+                    long oldest = entry(state, capacities[i] - tokens + 1);
+                    wait = Math.max(wait, oldest + windows[i] - now);
+                }
+            }
+            if (wait > 0) {
+                return ConsumptionProbe.rejected(available, wait, wait);
+            }
+            append(state, tokens, now);
+            return ConsumptionProbe.consumed(available - tokens, windows[tightest]);
+        }
+    }
+
+    @Override
+    public void addTokens(long[] state, long tokens) {
+        synchronized (state) {
+            // forget the newest tokens; the slots they free read as older than any window
+            long removed = Math.min(tokens, Math.min(state[0], size));
+            for (long j = 1; j <= removed; j++) {
+                state[slot(state[0], j)] = EMPTY;
+            }
+            state[0] -= removed;
+        }
+    }
+
+    @Override
+    public void removeTokens(long[] state, long tokens) {
+        synchronized (state) {
+            append(state, tokens, nanoClock.getAsLong());
+        }
+    }
+
+    @Override
+    public long availableTokens(long[] state) {
+        synchronized (state) {
+            long now = nanoClock.getAsLong();
+            long available = Long.MAX_VALUE;
+            for (int i = 0; i < capacities.length; i++) {
+                available = Math.min(available, capacities[i] - inWindow(state, i, now));
+            }
+            return available;
+        }
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long nanosToFull() {
+        return nanosToFull;
+    }
+
+    @Override
+    public long bytesPerState() {
+        return 16 + 8L * (size + 1);
+    }
+
+    private void append(long[] state, long tokens, long now) {
+        long count = Math.min(tokens, size);
+        for (long j = 0; j < count; j++) {
+            state[slot(state[0] + 1, 1)] = now;
+            state[0]++;
+        }
+    }
+
+    /**
+     * Tokens of the bandwidth's last {@code capacity} still inside its window; entries get older
+     * the further back they are, so this is a binary search.
+     */
+    private long inWindow(long[] state, int i, long now) {
+        long low = 0;
+        long high = capacities[i];
+        while (low < high) {
+            long mid = (low + high + 1) >>> 1;
+            long at = entry(state, mid);
+            if (at != EMPTY && now - at < windows[i]) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Time of the token {@code back} places back, 1 being the newest.
+     */
+    private long entry(long[] state, long back) {
+        return state[slot(state[0], back)];
+    }
+
+    private int slot(long head, long back) {
+        return 1 + (int) Math.floorMod(head - back, (long) size);
+    }
+}
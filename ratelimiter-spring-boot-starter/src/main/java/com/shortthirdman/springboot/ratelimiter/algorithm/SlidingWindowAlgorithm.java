@@ -0,0 +1,193 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window counter. Each bandwidth's window is {@code capacity / refillTokens} periods long,
+ * and a client's windows start at its first request rather than on a shared boundary. The
+ * request count over the last window is estimated as the current window's count plus the
+ * previous window's, weighted by the share of it still inside the sliding window; the estimate
+ * is exact for evenly spread traffic and never lets more than twice the capacity through in
+ * any window.
+ * <p>
+ * State is a {@code long[]} of window start, previous count and current count per bandwidth,
+ * guarded by its own monitor.
+ */
+final class SlidingWindowAlgorithm implements RateLimitAlgorithm<long[]> {
+
+    private static final int START = 0;
+    private static final int PREVIOUS = 1;
+    private static final int CURRENT = 2;
+    private static final int FIELDS = 3;
+
+    private final LongSupplier nanoClock;
+    private final long[] capacities;
+    private final long[] windows;
+    private final int tightest;
+    private final long capacity;
+    private final long nanosToFull;
+
+    SlidingWindowAlgorithm(BucketConfiguration configuration, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock == null ? System::nanoTime : nanoClock;
+        Bandwidth[] bandwidths = configuration.getBandwidths();
+        this.capacities = new long[bandwidths.length];
+        this.windows = new long[bandwidths.length];
+        int smallest = 0;
+        long longestWindow = 0;
+        for (int i = 0; i < bandwidths.length; i++) {
+            capacities[i] = bandwidths[i].getCapacity();
+            windows[i] = windowNanos(bandwidths[i]);
+            if (capacities[i] < capacities[smallest]) {
+                smallest = i;
+            }
+            longestWindow = Math.max(longestWindow, windows[i]);
+        }
+        this.tightest = smallest;
+        this.capacity = capacities[smallest];
+        // a window's count stops mattering once the next window has passed too
+        this.nanosToFull = 2 * longestWindow;
+    }
+
+    /**
+     * Window in which a bandwidth admits its capacity at its long-run rate.
+     */
+    static long windowNanos(Bandwidth bandwidth) {
+        double window = (double) bandwidth.getRefillPeriodNanos() * bandwidth.getCapacity() / bandwidth.getRefillTokens();
+        return (long) Math.max(1, Math.min(Long.MAX_VALUE / 4, window));
+    }
+
+    @Override
+    public long[] newState(long initialTokens) {
+        long now = nanoClock.getAsLong();
+        long[] state = new long[capacities.length * FIELDS];
+        for (int i = 0; i < capacities.length; i++) {
+            state[i * FIELDS + START] = now;
+            if (initialTokens != ClientStateStore.FULL) {
+                state[i * FIELDS + CURRENT] = capacities[i] - Math.min(initialTokens, capacities[i]);
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(long[] state, long tokens) {
+        synchronized (state) {
+            long now = nanoClock.getAsLong();
+            long available = Long.MAX_VALUE;
+            long wait = 0;
+            for (int i = 0; i < capacities.length; i++) {
+                roll(state, i, now);
+                long bandwidthAvailable = available(state, i, now);
+                available = Math.min(available, bandwidthAvailable);
+                if (tokens > bandwidthAvailable) {
+                    wait = Math.max(wait, nanosUntilAvailable(state, i, now, tokens));
+                }
+            }
+            if (wait > 0) {
+                return ConsumptionProbe.rejected(available, wait, wait);
+            }
+            for (int i = 0; i < capacities.length; i++) {
+                state[i * FIELDS + CURRENT] += tokens;
+            }
+            long reset = state[tightest * FIELDS + START] + 2 * windows[tightest] - now;
+            return ConsumptionProbe.consumed(available - tokens, reset);
+        }
+    }
+
+    @Override
+    public void addTokens(long[] state, long tokens) {
+        synchronized (state) {
+            long now = nanoClock.getAsLong();
+            for (int i = 0; i < capacities.length; i++) {
+                roll(state, i, now);
+                int base = i * FIELDS;
+                long fromCurrent = Math.min(tokens, state[base + CURRENT]);
+                state[base + CURRENT] -= fromCurrent;
+                state[base + PREVIOUS] -= Math.min(tokens - fromCurrent, state[base + PREVIOUS]);
+            }
+        }
+    }
+
+    @Override
+    public void removeTokens(long[] state, long tokens) {
+        synchronized (state) {
+            long now = nanoClock.getAsLong();
+            for (int i = 0; i < capacities.length; i++) {
+                roll(state, i, now);
+                state[i * FIELDS + CURRENT] += tokens;
+            }
+        }
+    }
+
+    @Override
+    public long availableTokens(long[] state) {
+        synchronized (state) {
+            long now = nanoClock.getAsLong();
+            long available = Long.MAX_VALUE;
+            for (int i = 0; i < capacities.length; i++) {
+                roll(state, i, now);
+                available = Math.min(available, available(state, i, now));
+            }
+            return available;
+        }
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long nanosToFull() {
+        return nanosToFull;
+    }
+
+    @Override
+    public long bytesPerState() {
+        return 16 + 8L * FIELDS * capacities.length;
+    }
+
+    private void roll(long[] state, int i, long now) {
+        int base = i * FIELDS;
+        long elapsed = now - state[base + START];
+        if (elapsed < windows[i]) {
+            return;
+        }
+        long windowsPassed = elapsed / windows[i];
+        state[base + PREVIOUS] = windowsPassed == 1 ? state[base + CURRENT] : 0;
+        state[base + CURRENT] = 0;
+        state[base + START] += windowsPassed * windows[i];
+    }
+
+    private long available(long[] state, int i, long now) {
+        int base = i * FIELDS;
+        double overlap = (double) (windows[i] - (now - state[base + START])) / windows[i];
+        double estimate = state[base + PREVIOUS] * overlap + state[base + CURRENT];
+        return Math.max(0, (long) Math.floor(capacities[i] - estimate));
+    }
+
+    private long nanosUntilAvailable(long[] state, int i, long now, long tokens) {
+        long allowed = capacities[i] - tokens;
+        if (allowed < 0) {
+            return Long.MAX_VALUE;
+        }
+        int base = i * FIELDS;
+        long window = windows[i];
+        long untilNextWindow = state[base + START] + window - now;
+        long previous = state[base + PREVIOUS];
+        long current = state[base + CURRENT];
+        if (current <= allowed) {
+            // the previous window's weight has to fall far enough within this one
+            double nanos = untilNextWindow - (double) (allowed - current) * window / previous;
+            return Math.max(1, (long) Math.ceil(nanos));
+        }
+        // this window's count becomes the previous one and has to fade out far enough
+        double nanos = window - (double) allowed * window / current;
+        return Math.max(1, untilNextWindow + (long) Math.ceil(nanos));
+    }
+}
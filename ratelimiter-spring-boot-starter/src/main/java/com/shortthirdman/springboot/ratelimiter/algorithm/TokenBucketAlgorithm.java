@@ -0,0 +1,126 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TimeMeter;
+import io.github.bucket4j.VerboseResult;
+import io.github.bucket4j.local.LocalBucketBuilder;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A bucket4j {@link Bucket} per client, every one sharing the policy's {@link BucketConfiguration}.
+ * bucket4j reports the reset of its slowest bandwidth, so with several bandwidths the probe is
+ * rebuilt with the reset of the tightest one from the bucket's per-bandwidth state.
+ */
+final class TokenBucketAlgorithm implements RateLimitAlgorithm<Bucket> {
+
+    // estimated: LocalBucket with its state array, one bandwidth, as AlgorithmBenchmark prints it; each
+    // further bandwidth adds about 40
+    private static final long BYTES_PER_BUCKET = 164;
+    private static final long BYTES_PER_EXTRA_BANDWIDTH = 40;
+
+    private final BucketConfiguration configuration;
+    private final TimeMeter timeMeter;
+    private final Bandwidth tightest;
+    private final int tightestIndex;
+    private final long capacity;
+    private final long nanosToFull;
+
+    TokenBucketAlgorithm(BucketConfiguration configuration, LongSupplier nanoClock) {
+        this.configuration = configuration;
+        this.timeMeter = nanoClock == null ? null : new TimeMeter() {
+            @Override
+            public long currentTimeNanos() {
+                return nanoClock.getAsLong();
+            }
+
+            @Override
+            public boolean isWallClockBased() {
+                return false;
+            }
+        };
+        Bandwidth[] bandwidths = configuration.getBandwidths();
+        int smallest = 0;
+        for (int i = 1; i < bandwidths.length; i++) {
+            if (bandwidths[i].getCapacity() < bandwidths[smallest].getCapacity()) {
+                smallest = i;
+            }
+        }
+        this.tightest = bandwidths[smallest];
+        this.tightestIndex = smallest;
+        this.capacity = tightest.getCapacity();
+        this.nanosToFull = ClientStateStore.nanosToFull(configuration);
+    }
+
+    @Override
+    public Bucket newState(long initialTokens) {
+        LocalBucketBuilder builder = Bucket.builder();
+        if (timeMeter != null) {
+            builder.withCustomTimePrecision(timeMeter);
+        }
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            builder.addLimit(initialTokens == ClientStateStore.FULL ? bandwidth
+                    : bandwidth.withInitialTokens(Math.min(initialTokens, bandwidth.getCapacity())));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public ConsumptionProbe tryConsume(Bucket bucket, long tokens) {
+        if (configuration.getBandwidths().length == 1) {
+            return bucket.tryConsumeAndReturnRemaining(tokens);
+        }
+        VerboseResult<ConsumptionProbe> result = bucket.asVerbose().tryConsumeAndReturnRemaining(tokens);
+        ConsumptionProbe probe = result.getValue();
+        long available = result.getDiagnostics().getAvailableTokensPerEachBandwidth()[tightestIndex];
+        long reset = nanosToRefill(Math.max(0, capacity - available));
+        return probe.isConsumed() ? ConsumptionProbe.consumed(probe.getRemainingTokens(), reset)
+                : ConsumptionProbe.rejected(probe.getRemainingTokens(), probe.getNanosToWaitForRefill(), reset);
+    }
+
+    /**
+     * Time the tightest bandwidth takes to refill the given tokens; for interval refill this is
+     * rounded up to whole intervals, so it never comes out short.
+     */
+    private long nanosToRefill(long tokens) {
+        long refillTokens = tightest.getRefillTokens();
+        double periods = tightest.isRefillIntervally() ? Math.ceil((double) tokens / refillTokens)
+                : (double) tokens / refillTokens;
+        // the cast saturates at Long.MAX_VALUE for a bandwidth that effectively never refills
+        return (long) Math.ceil(periods * tightest.getRefillPeriodNanos());
+    }
+
+    @Override
+    public void addTokens(Bucket bucket, long tokens) {
+        bucket.addTokens(tokens);
+    }
+
+    @Override
+    public void removeTokens(Bucket bucket, long tokens) {
+        bucket.consumeIgnoringRateLimits(tokens);
+    }
+
+    @Override
+    public long availableTokens(Bucket bucket) {
+        return bucket.getAvailableTokens();
+    }
+
+    @Override
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public long nanosToFull() {
+        return nanosToFull;
+    }
+
+    @Override
+    public long bytesPerState() {
+        return BYTES_PER_BUCKET + (configuration.getBandwidths().length - 1) * BYTES_PER_EXTRA_BANDWIDTH;
+    }
+}
@@ -0,0 +1,38 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.core.AdaptiveConcurrencyLimiter;
+import com.shortthirdman.springboot.ratelimiter.monitoring.AimdLimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.monitoring.GradientLimitAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limiters for the latency-driven strategies. With the default {@code threshold}
+ * strategy no limiter is created and {@code DynamicRateLimitCalculator} drives the limit instead.
+ */
+@AutoConfiguration
+public class AdaptiveLimitConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ratelimiter.dynamic", name = "strategy", havingValue = "gradient")
+    public AdaptiveConcurrencyLimiter gradientConcurrencyLimiter(RateLimiterProperties properties,
+                                                                 MeterRegistry registry) {
+        RateLimiterProperties.Adaptive adaptive = properties.getAdaptive();
+        return new AdaptiveConcurrencyLimiter(
+                new GradientLimitAlgorithm(adaptive.getInitialLimit(), adaptive.getMinLimit(), adaptive.getMaxLimit()),
+                registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ratelimiter.dynamic", name = "strategy", havingValue = "aimd")
+    public AdaptiveConcurrencyLimiter aimdConcurrencyLimiter(RateLimiterProperties properties, MeterRegistry registry) {
+        RateLimiterProperties.Adaptive adaptive = properties.getAdaptive();
+        return new AdaptiveConcurrencyLimiter(
+                new AimdLimitAlgorithm(adaptive.getInitialLimit(), adaptive.getMinLimit(), adaptive.getMaxLimit(),
+                        TimeUnit.MILLISECONDS.toNanos(adaptive.getAimdTimeoutMs())), registry);
+    }
+}
@@ -0,0 +1,41 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.events.DecisionEventProperties;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionSink;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionStream;
+import com.shortthirdman.springboot.ratelimiter.events.LogDecisionSink;
+import com.shortthirdman.springboot.ratelimiter.events.RollingFileDecisionSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.util.Locale;
+
+/**
+ * Stream of limiter decisions for audit and analytics. Without {@code ratelimiter.events.enabled}
+ * rejections are only counted in the meters.
+ */
+@AutoConfiguration(after = RateLimitConfiguration.class)
+@ConditionalOnProperty(prefix = "ratelimiter.events", name = "enabled", havingValue = "true")
+public class DecisionEventConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DecisionSink decisionSink(DecisionEventProperties properties) {
+        return switch (properties.getSink().toLowerCase(Locale.ROOT)) {
+            case "log" -> new LogDecisionSink();
+            case "file" -> new RollingFileDecisionSink(properties.getFile().getPath(),
+                    properties.getFile().getMaxSize().toBytes(), properties.getFile().getMaxHistory());
+            default -> throw new IllegalArgumentException("Unknown decision sink '" + properties.getSink()
+                    + "', expected log or file");
+        };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DecisionStream decisionStream(DecisionEventProperties properties, DecisionSink sink, MeterRegistry registry) {
+        return new DecisionStream(properties, sink, registry);
+    }
+}
@@ -0,0 +1,75 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.distributed.BatchingRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.distributed.DistributedBucket;
+import com.shortthirdman.springboot.ratelimiter.distributed.DistributedBucketStore;
+import com.shortthirdman.springboot.ratelimiter.distributed.InMemoryBucketStore;
+import com.shortthirdman.springboot.ratelimiter.distributed.RedisBucketStore;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@AutoConfiguration(after = RedisAutoConfiguration.class)
+@ConditionalOnProperty(prefix = "ratelimiter.distributed", name = "enabled", havingValue = "true")
+public class DistributedRateLimitConfiguration {
+
+    // Redis is optional for applications, so the store is only declared when it is on the classpath
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(StringRedisTemplate.class)
+    @ConditionalOnProperty(prefix = "ratelimiter.distributed", name = "store", havingValue = "redis")
+    static class RedisStoreConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public DistributedBucketStore redisBucketStore(ObjectProvider<StringRedisTemplate> redisTemplate,
+                                                       RateLimiterProperties properties) {
+            StringRedisTemplate template = redisTemplate.getIfAvailable(() -> {
+                throw new IllegalStateException("ratelimiter.distributed.store=redis needs a RedisConnectionFactory; "
+                        + "configure spring.data.redis.* or set ratelimiter.distributed.store=embedded");
+            });
+            return new RedisBucketStore(template, properties.getDistributed().getKeyPrefix());
+        }
+    }
+
+    // asking for Redis without it must not quietly limit each node on its own
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnMissingClass("org.springframework.data.redis.core.StringRedisTemplate")
+    @ConditionalOnProperty(prefix = "ratelimiter.distributed", name = "store", havingValue = "redis")
+    static class MissingRedisConfiguration {
+
+        @Bean
+        public DistributedBucketStore redisBucketStore() {
+            throw new IllegalStateException("ratelimiter.distributed.store=redis needs spring-boot-starter-data-redis "
+                    + "on the classpath; add it or set ratelimiter.distributed.store=embedded");
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DistributedBucketStore inMemoryBucketStore() {
+        return new InMemoryBucketStore();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BatchingRateLimiter batchingRateLimiter(DistributedBucketStore store, RateLimiterProperties properties,
+                                                   ClientStoreProperties clientStore) {
+        RateLimiterProperties.Distributed distributed = properties.getDistributed();
+        return new BatchingRateLimiter(store, distributed.getBatchSize(), distributed.getNodes(),
+                distributed.getPartitionAllowance(), distributed.getRetryIntervalMs(), clientStore.getMaxSize());
+    }
+
+    @Bean
+    public DistributedBucket globalDistributedBucket(BatchingRateLimiter limiter, BucketSpec globalBucketSpec) {
+        return new DistributedBucket(limiter, "global", globalBucketSpec);
+    }
+}
@@ -0,0 +1,27 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityAdmission;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Priority classes sharing one admission pool. Without {@code ratelimiter.priority.enabled} every
+ * client is only subject to its own and the global limits.
+ */
+@AutoConfiguration(after = RateLimitConfiguration.class)
+@ConditionalOnProperty(prefix = "ratelimiter.priority", name = "enabled", havingValue = "true")
+public class PriorityConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PriorityAdmission priorityAdmission(PriorityProperties properties, RateLimitPolicyRegistry policies,
+                                               DynamicRateLimiter rateLimiter, MeterRegistry registry) {
+        return new PriorityAdmission(properties, policies, rateLimiter, registry);
+    }
+}
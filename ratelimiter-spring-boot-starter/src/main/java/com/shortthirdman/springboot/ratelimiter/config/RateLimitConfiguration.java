@@ -0,0 +1,180 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.core.AdaptiveConcurrencyLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostProperties;
+import com.shortthirdman.springboot.ratelimiter.distributed.BatchingRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionEventProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimiterEndpoint;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityProperties;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import com.shortthirdman.springboot.ratelimiter.store.StateSnapshotter;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimitProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The limiters every application gets: client state stores, the dynamic per-client limiter, plans,
+ * subnets, costs and the global bucket. Each can be replaced by a bean of the same type. Actuator
+ * is optional: without it the limiters' meters go to a registry of their own and there is no endpoint.
+ */
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@EnableConfigurationProperties({RateLimiterProperties.class, RateLimitPolicyProperties.class,
+        ClientStoreProperties.class, ClientKeyProperties.class, SubnetLimitProperties.class,
+        RequestCostProperties.class, PriorityProperties.class, DecisionEventProperties.class})
+@ImportRuntimeHints(RateLimiterRuntimeHints.class)
+public class RateLimitConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MeterRegistry rateLimiterMeterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ClientStateStoreFactory clientStateStoreFactory(ClientStoreProperties properties, MeterRegistry registry) {
+        return new ClientStateStoreFactory(properties, registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "ratelimiter.client-store.snapshot", name = "enabled", havingValue = "true")
+    public StateSnapshotter stateSnapshotter(ClientStateStoreFactory stores, ClientStoreProperties properties) {
+        return new StateSnapshotter(stores, properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SystemMetricsCollector systemMetricsCollector(RateLimiterProperties properties) {
+        return new SystemMetricsCollector(properties.getMetrics().getSmoothingSeconds());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DynamicRateLimitCalculator dynamicRateLimitCalculator() {
+        return new DynamicRateLimitCalculator();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimiterEngineFactory rateLimiterEngineFactory(RateLimiterProperties properties,
+                                                             ObjectProvider<BatchingRateLimiter> distributedLimiter,
+                                                             ClientStateStoreFactory stores) {
+        RateLimiterProperties.Dynamic dynamic = properties.getDynamic();
+        return new RateLimiterEngineFactory(dynamic.getEngine(), dynamic.getMaxClients(), dynamic.getStripes(),
+                distributedLimiter, stores);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DynamicRateLimiter dynamicRateLimiter(RateLimiterProperties properties, SystemMetricsCollector metricsCollector,
+                                                 DynamicRateLimitCalculator calculator, MeterRegistry registry,
+                                                 RateLimiterEngineFactory engineFactory,
+                                                 Optional<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
+        // the scheduled mode starts a thread of the limiter's own rather than a TaskScheduler bean,
+        // which would stand in for the application's and stop Boot from configuring one
+        return new DynamicRateLimiter(metricsCollector, calculator, registry, engineFactory,
+                properties.getMetrics().getMaxEndpoints(), properties.getExecution().getMaxWaitMs(),
+                concurrencyLimiter, properties.getRefresh().getInterval(),
+                "scheduled".equalsIgnoreCase(properties.getRefresh().getMode()));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RateLimitPolicyRegistry rateLimitPolicyRegistry(RateLimitPolicyProperties properties,
+                                                           ClientStateStoreFactory stores) {
+        return new RateLimitPolicyRegistry(properties, stores);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SubnetLimiter subnetLimiter(SubnetLimitProperties properties, ClientStateStoreFactory stores) {
+        return new SubnetLimiter(properties, stores);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ClientKeyResolver clientKeyResolver(ClientKeyProperties properties, RateLimitPolicyProperties policies) {
+        return new ClientKeyResolver(properties, policies);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RequestCostEstimator requestCostEstimator(RequestCostProperties properties) {
+        return new RequestCostEstimator(properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public HeavyHitters heavyHitters(RateLimiterProperties properties) {
+        return new HeavyHitters(properties.getHeavyHitters().getSize(), properties.getHeavyHitters().getDecayAfter());
+    }
+
+    // the endpoint condition is part of actuator, so it is only read when actuator is on the classpath
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(ConditionalOnAvailableEndpoint.class)
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint(endpoint = RateLimiterEndpoint.class)
+        public RateLimiterEndpoint rateLimiterEndpoint(DynamicRateLimiter rateLimiter, RateLimitPolicyRegistry policies,
+                                                       SubnetLimiter subnets, HeavyHitters heavyHitters) {
+            return new RateLimiterEndpoint(rateLimiter, policies, subnets, heavyHitters);
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public Bucket createNewBucket(BucketSpec globalBucketSpec) {
+        Refill refill = Refill.intervally(globalBucketSpec.getRefillTokens(), globalBucketSpec.getRefillPeriod());
+        Bandwidth limit = Bandwidth.classic(globalBucketSpec.getCapacity(), refill);
+        return Bucket.builder()
+                .addLimit(limit)
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public StripedBucket globalBucket(Bucket createNewBucket, BucketSpec globalBucketSpec,
+                                      RateLimiterProperties properties) {
+        RateLimiterProperties.Global global = properties.getGlobal();
+        int count = global.getStripes() > 0 ? global.getStripes() : Runtime.getRuntime().availableProcessors();
+        return new StripedBucket(createNewBucket, globalBucketSpec.getCapacity(), count, global.getTolerance());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BucketSpec globalBucketSpec(RateLimiterProperties properties) {
+        return new BucketSpec(properties.getOverdraftCapacity(), properties.getRefillCapacity(), Duration.ofMinutes(1));
+    }
+}
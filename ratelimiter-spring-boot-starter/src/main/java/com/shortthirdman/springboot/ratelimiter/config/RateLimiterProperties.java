@@ -0,0 +1,132 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the global bucket, the dynamic per-client limiter and how it is driven. Plans,
+ * subnets, client keys, costs, priorities, stores and events have properties classes of their own
+ * under the same prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter")
+public class RateLimiterProperties {
+
+    // requests the limiters apply to
+    private String pathPattern = "/api/**";
+
+    // global bucket capacity and the tokens it gets back every minute
+    private int overdraftCapacity = 50;
+
+    private int refillCapacity = 40;
+
+    private Global global = new Global();
+
+    private Dynamic dynamic = new Dynamic();
+
+    private Refresh refresh = new Refresh();
+
+    private Metrics metrics = new Metrics();
+
+    private HeavyHitters heavyHitters = new HeavyHitters();
+
+    private Execution execution = new Execution();
+
+    private Adaptive adaptive = new Adaptive();
+
+    private Distributed distributed = new Distributed();
+
+    @Data
+    public static class Global {
+
+        // 0 uses one stripe per available processor
+        private int stripes = 0;
+
+        // share of the capacity the stripes may admit on top of it per refill
+        private double tolerance = 0.05;
+    }
+
+    @Data
+    public static class Dynamic {
+
+        // caffeine, primitive or distributed
+        private String engine = "caffeine";
+
+        private int maxClients = 1_048_576;
+
+        private int stripes = 64;
+
+        // threshold, gradient or aimd
+        private String strategy = "threshold";
+    }
+
+    /**
+     * How the {@code threshold} strategy's limit is recalculated.
+     */
+    @Data
+    public static class Refresh {
+
+        // lazy (by the first request after each interval) or scheduled
+        private String mode = "lazy";
+
+        private Duration interval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Metrics {
+
+        private int maxEndpoints = 100;
+
+        private long smoothingSeconds = 30;
+    }
+
+    @Data
+    public static class HeavyHitters {
+
+        private int size = 32;
+
+        // counts are halved every this many tokens
+        private long decayAfter = 1_000_000;
+    }
+
+    @Data
+    public static class Execution {
+
+        // how long a virtual thread may wait for its bucket instead of being rejected
+        private long maxWaitMs = 0;
+    }
+
+    @Data
+    public static class Adaptive {
+
+        private int initialLimit = 100;
+
+        private int minLimit = 10;
+
+        private int maxLimit = 1000;
+
+        private long aimdTimeoutMs = 500;
+    }
+
+    @Data
+    public static class Distributed {
+
+        private boolean enabled = false;
+
+        // embedded or redis
+        private String store = "embedded";
+
+        private String keyPrefix = "ratelimiter:";
+
+        private long batchSize = 10;
+
+        // nodes sharing the store; a batch is at most a tenth of capacity / nodes
+        private int nodes = 1;
+
+        private double partitionAllowance = 0.1;
+
+        private long retryIntervalMs = 1000;
+    }
+}
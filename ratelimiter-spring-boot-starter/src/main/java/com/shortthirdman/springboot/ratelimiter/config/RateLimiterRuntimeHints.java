@@ -0,0 +1,21 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.events.DecisionWindow;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * What a native image needs beyond the bean graph AOT already records: the Redis reservation
+ * script, loaded from the classpath, and the decision windows the file sink writes with Jackson.
+ */
+class RateLimiterRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final String RESERVE_SCRIPT = "scripts/token_bucket_reserve.lua";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern(RESERVE_SCRIPT);
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), DecisionWindow.class);
+    }
+}
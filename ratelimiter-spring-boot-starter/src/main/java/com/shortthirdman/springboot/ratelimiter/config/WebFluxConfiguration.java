@@ -0,0 +1,25 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.filter.DynamicRateLimitWebFilter;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.server.WebFilter;
+
+@AutoConfiguration(after = RateLimitConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnClass(WebFilter.class)
+public class WebFluxConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DynamicRateLimitWebFilter dynamicRateLimitWebFilter(DynamicRateLimiter rateLimiter,
+                                                               ClientKeyResolver keyResolver,
+                                                               RateLimiterProperties properties) {
+        return new DynamicRateLimitWebFilter(rateLimiter, keyResolver, properties.getPathPattern());
+    }
+}
@@ -0,0 +1,55 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.distributed.DistributedBucket;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionStream;
+import com.shortthirdman.springboot.ratelimiter.interceptor.CompositeRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityAdmission;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Optional;
+
+@AutoConfiguration(after = {RateLimitConfiguration.class, PriorityConfiguration.class,
+        DistributedRateLimitConfiguration.class, DecisionEventConfiguration.class})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(WebMvcConfigurer.class)
+public class WebMvcConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CompositeRateLimitInterceptor compositeRateLimitInterceptor(
+            DynamicRateLimiter rateLimiter, RateLimitPolicyRegistry policies, SubnetLimiter subnets,
+            ClientKeyResolver keyResolver, RequestCostEstimator costs, Optional<PriorityAdmission> priorities,
+            StripedBucket globalBucket, Optional<DistributedBucket> distributedBucket, BucketSpec globalBucketSpec,
+            HeavyHitters heavyHitters, Optional<DecisionStream> decisions) {
+        return new CompositeRateLimitInterceptor(rateLimiter, policies, subnets, keyResolver, costs, priorities,
+                globalBucket, distributedBucket, globalBucketSpec, heavyHitters, decisions);
+    }
+
+    @Bean
+    public WebMvcConfigurer rateLimitWebMvcConfigurer(CompositeRateLimitInterceptor interceptor,
+                                                      RateLimiterProperties properties) {
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                // endpoint, plan, dynamic and global limits are all checked by the one interceptor
+                registry.addInterceptor(interceptor)
+                        .addPathPatterns(properties.getPathPattern());
+            }
+        };
+    }
+}
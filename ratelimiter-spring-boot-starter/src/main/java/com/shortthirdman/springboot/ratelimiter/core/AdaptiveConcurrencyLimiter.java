@@ -0,0 +1,59 @@
+package com.shortthirdman.springboot.ratelimiter.core;
+
+import com.shortthirdman.springboot.ratelimiter.monitoring.ConcurrencyLimitAlgorithm;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of requests in flight. Every admitted request must be completed with
+ * {@link #release}, whose latency sample feeds the algorithm and moves the limit.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitAlgorithm algorithm;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitAlgorithm algorithm, MeterRegistry registry) {
+        this.algorithm = algorithm;
+        Gauge.builder("rate_limit.concurrency.limit", algorithm, ConcurrencyLimitAlgorithm::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("rate_limit.concurrency.in_flight", inFlight, AtomicInteger::get)
+                .description("Requests currently holding a concurrency permit")
+                .register(registry);
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= algorithm.getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit without a latency sample, for requests rejected after acquiring one.
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        algorithm.onSample(rttNanos, current, dropped);
+    }
+
+    public int getLimit() {
+        return algorithm.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,376 @@
+package com.shortthirdman.springboot.ratelimiter.core;
+
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngine;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.*;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Framework-neutral core of the dynamic per-client limiter. The servlet interceptor and the
+ * reactive web filter only extract the client and translate the returned probe into a response.
+ * <p>
+ * The limit is recalculated at most once per refresh interval. By default the first request after
+ * the interval has passed does it, so an idle service does no work and no thread is started; with
+ * scheduled refresh it runs on a daemon thread of the limiter's own instead, whether or not there
+ * is traffic.
+ */
+@Slf4j
+public class DynamicRateLimiter implements RateLimitConfigProvider {
+
+    private static final long SHED_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final ConsumptionProbe SHED = ConsumptionProbe.rejected(0, SHED_RETRY_NANOS, SHED_RETRY_NANOS);
+    private static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(10);
+
+    private final RateLimiterEngine engine;
+    private final SystemMetricsCollector metricsCollector;
+    private final DynamicRateLimitCalculator calculator;
+    private final AtomicReference<RateLimitConfigValues> currentConfig;
+    private final ScheduledExecutorService refreshScheduler;
+    // monotonic time of the next lazy refresh; the request that moves it on does the refresh
+    private final AtomicLong nextRefreshNanos;
+    private final boolean lazyRefresh;
+    private volatile long refreshIntervalNanos;
+    private ScheduledFuture<?> scheduledRefresh;
+    private final RateLimitMetrics metrics;
+    private final long maxWaitNanos;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    // last limit the calculator settled on, in force again once an override is cleared
+    private RateLimitConfigValues calculated;
+    private volatile RateLimitConfigValues override;
+
+    public DynamicRateLimiter(SystemMetricsCollector metricsCollector,
+                              DynamicRateLimitCalculator calculator, MeterRegistry meterRegistry,
+                              RateLimiterEngineFactory engineFactory, int maxEndpoints, long maxWaitMillis,
+                              Optional<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
+        this(metricsCollector, calculator, meterRegistry, engineFactory, maxEndpoints, maxWaitMillis,
+                concurrencyLimiter, DEFAULT_REFRESH_INTERVAL, false);
+    }
+
+    /**
+     * @param scheduledRefresh recalculate every {@code refreshInterval} on a thread started for it;
+     *                         when false it is done lazily on the request path
+     */
+    public DynamicRateLimiter(SystemMetricsCollector metricsCollector,
+                              DynamicRateLimitCalculator calculator, MeterRegistry meterRegistry,
+                              RateLimiterEngineFactory engineFactory, int maxEndpoints, long maxWaitMillis,
+                              Optional<AdaptiveConcurrencyLimiter> concurrencyLimiter, Duration refreshInterval,
+                              boolean scheduledRefresh) {
+        requirePositive(refreshInterval);
+        this.metricsCollector = metricsCollector;
+        this.calculator = calculator;
+        // resume from the limit tuned before a restart instead of the default
+        this.currentConfig = new AtomicReference<>(
+                engineFactory.restoredConfig(new RateLimitConfigValues(100, Duration.ofMinutes(1)))
+        );
+        this.calculated = currentConfig.get();
+        this.engine = engineFactory.create(this);
+        this.metrics = new RateLimitMetrics(meterRegistry, this, maxEndpoints);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.concurrencyLimiter = concurrencyLimiter.orElse(null);
+        this.refreshScheduler = scheduledRefresh && this.concurrencyLimiter == null
+                ? Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().daemon().name("ratelimiter-refresh").factory())
+                : null;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        // due at once, so the first request settles the limit
+        this.nextRefreshNanos = new AtomicLong(metrics.startTimer());
+        // a latency-driven strategy replaces the threshold calculator; buckets keep the base limit
+        this.lazyRefresh = this.concurrencyLimiter == null && this.refreshScheduler == null;
+        if (this.concurrencyLimiter != null) {
+            log.info("Adaptive concurrency limiting enabled, initial limit {}", this.concurrencyLimiter.getLimit());
+        } else if (this.refreshScheduler != null) {
+            this.scheduledRefresh = schedule(refreshIntervalNanos, 0);
+            log.info("Rate limit recalculated every {} on the refresh thread", refreshInterval);
+        } else {
+            log.info("Rate limit recalculated on the request path at most every {}", refreshInterval);
+        }
+    }
+
+    /**
+     * Recalculates the limit if the interval has passed. Of the requests that find it due, the one
+     * that moves the deadline on does the work; the others carry on without waiting.
+     */
+    private void refreshIfDue(long nowNanos) {
+        long due = nextRefreshNanos.get();
+        if (nowNanos - due < 0 || !nextRefreshNanos.compareAndSet(due, nowNanos + refreshIntervalNanos)) {
+            return;
+        }
+        updateRateLimitConfig();
+    }
+
+    private ScheduledFuture<?> schedule(long intervalNanos, long delayNanos) {
+        return refreshScheduler.scheduleAtFixedRate(this::updateRateLimitConfig, delayNanos, intervalNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Changes how often the limit is recalculated. A shorter interval takes effect at once, not after
+     * the one in progress.
+     */
+    public synchronized void setRefreshInterval(Duration refreshInterval) {
+        requirePositive(refreshInterval);
+        long intervalNanos = refreshInterval.toNanos();
+        refreshIntervalNanos = intervalNanos;
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = schedule(intervalNanos, intervalNanos);
+        } else {
+            long latest = metrics.startTimer() + intervalNanos;
+            nextRefreshNanos.getAndUpdate(due -> due - latest > 0 ? latest : due);
+        }
+        log.info("Rate limit refresh interval set to {}", refreshInterval);
+    }
+
+    public Duration getRefreshInterval() {
+        return Duration.ofNanos(refreshIntervalNanos);
+    }
+
+    private static void requirePositive(Duration refreshInterval) {
+        if (refreshInterval.isZero() || refreshInterval.isNegative()) {
+            throw new IllegalArgumentException("Rate limit refresh interval must be positive");
+        }
+    }
+
+    private void updateRateLimitConfig() {
+        try {
+            SystemMetrics metrics = metricsCollector.collectMetrics();
+            RateLimitConfigValues newConfig = calculator.calculateLimit(metrics);
+
+            synchronized (this) {
+                if (!hasSignificantChange(calculated, newConfig)) {
+                    return;
+                }
+                calculated = newConfig;
+                if (override == null) {
+                    log.info("Rate limit updated: {}/{}s",
+                            newConfig.getLimit(),
+                            newConfig.getRefillDuration().getSeconds());
+                    apply(newConfig);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error updating rate limit config", e);
+        }
+    }
+
+    private void apply(RateLimitConfigValues config) {
+        currentConfig.set(config);
+        // Existing buckets pick up the new limit in place, keeping their fill level
+        engine.onConfigurationChange(config);
+    }
+
+    /**
+     * Pins the limit until {@link #clearOverride()}, suspending the calculator. Applied to existing
+     * buckets in place, like a calculated change, so no client state is lost.
+     */
+    public synchronized void override(RateLimitConfigValues config) {
+        if (config.getLimit() < 1 || config.getRefillDuration().isZero() || config.getRefillDuration().isNegative()) {
+            throw new IllegalArgumentException("Rate limit override needs a positive limit and refill duration");
+        }
+        override = config;
+        apply(config);
+        log.info("Rate limit overridden: {}/{}s", config.getLimit(), config.getRefillDuration().getSeconds());
+    }
+
+    /**
+     * Returns control to the calculator, restoring the last limit it settled on.
+     */
+    public synchronized void clearOverride() {
+        if (override == null) {
+            return;
+        }
+        override = null;
+        apply(calculated);
+        log.info("Rate limit override cleared, back to {}/{}s",
+                calculated.getLimit(), calculated.getRefillDuration().getSeconds());
+    }
+
+    public boolean isOverridden() {
+        return override != null;
+    }
+
+    /**
+     * Request and rejection totals with the current limit.
+     */
+    public Map<String, Number> getMetrics() {
+        return metrics.getCurrentMetrics();
+    }
+
+    /**
+     * Tokens left in the client's bucket, or -1 if the engine holds none for it.
+     */
+    public long availableTokens(ClientKey clientKey) {
+        return engine.availableTokens(clientKey);
+    }
+
+    public long estimatedClients() {
+        return engine.estimatedSize();
+    }
+
+    private boolean hasSignificantChange(RateLimitConfigValues oldConfig,
+                                         RateLimitConfigValues newConfig) {
+        double limitChange = Math.abs(1.0 -
+                (double) newConfig.getLimit() / oldConfig.getLimit());
+        return limitChange > 0.2; // 20% change threshold
+    }
+
+    @Override
+    public RateLimitConfigValues getRateLimitConfig() {
+        return this.currentConfig.get();
+    }
+
+    /**
+     * Marks the start of a limited request and returns the timestamp to pass to {@link #completeRequest}.
+     */
+    public long startRequest() {
+        metrics.recordRequest();
+        long startNanos = metrics.startTimer();
+        if (lazyRefresh) {
+            refreshIfDue(startNanos);
+        }
+        return startNanos;
+    }
+
+    public ConsumptionProbe tryConsume(ClientKey clientKey) {
+        return tryConsume(clientKey, 1);
+    }
+
+    public ConsumptionProbe tryConsume(ClientKey clientKey, long tokens) {
+        return engine.tryConsumeAndReturnRemaining(clientKey, charge(tokens));
+    }
+
+    /**
+     * Tokens a request worth {@code cost} is charged: at most the current limit, which is the
+     * capacity of every client bucket, so an expensive request can still be admitted.
+     */
+    public long charge(long cost) {
+        return Math.min(cost, currentConfig.get().getLimit());
+    }
+
+    /**
+     * Like {@link #tryConsume} but, when called on a virtual thread with a wait budget configured,
+     * parks until the bucket refills instead of rejecting, as long as that fits in the budget.
+     * Platform threads are never parked so a servlet worker pool cannot be drained by waiting clients.
+     */
+    public ConsumptionProbe consume(ClientKey clientKey) {
+        return consume(clientKey, 1);
+    }
+
+    /**
+     * {@link #consume(ClientKey)} for a request worth {@code tokens}.
+     */
+    public ConsumptionProbe consume(ClientKey clientKey, long tokens) {
+        ConsumptionProbe probe = tryConsume(clientKey, tokens);
+        if (probe.isConsumed() || maxWaitNanos == 0 || !Thread.currentThread().isVirtual()) {
+            return acquirePermit(clientKey, tokens, probe);
+        }
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (!probe.isConsumed()) {
+            long waitNanos = probe.getNanosToWaitForRefill();
+            if (System.nanoTime() + waitNanos - deadline > 0) {
+                return probe;
+            }
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                return probe;
+            }
+            probe = tryConsume(clientKey, tokens);
+        }
+        return acquirePermit(clientKey, tokens, probe);
+    }
+
+    /**
+     * Takes a concurrency permit for a request its client bucket admitted with {@code tokens}. When
+     * the adaptive limit is reached the request is shed, so overload is not passed on to the handlers,
+     * and its tokens go back to the client: it was turned away by the server, not for its own rate.
+     * Every admitted request must be finished with {@link #releasePermit}.
+     */
+    public ConsumptionProbe acquirePermit(ClientKey clientKey, long tokens, ConsumptionProbe probe) {
+        if (concurrencyLimiter == null || !probe.isConsumed() || concurrencyLimiter.tryAcquire()) {
+            return probe;
+        }
+        engine.addTokens(clientKey, charge(tokens));
+        return SHED;
+    }
+
+    /**
+     * Undoes an admitting {@link #consume}, returning the client's token and concurrency permit.
+     */
+    public void refund(ClientKey clientKey) {
+        refund(clientKey, 1);
+    }
+
+    public void refund(ClientKey clientKey, long tokens) {
+        engine.addTokens(clientKey, charge(tokens));
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.cancel();
+        }
+    }
+
+    /**
+     * Corrects the charge of a request that has finished from the estimated to the measured cost:
+     * a difference is charged on top or returned. The concurrency permit is not touched.
+     */
+    public void reprice(ClientKey clientKey, long estimated, long measured) {
+        long delta = charge(measured) - charge(estimated);
+        if (delta > 0) {
+            engine.removeTokens(clientKey, delta);
+        } else if (delta < 0) {
+            engine.addTokens(clientKey, -delta);
+        }
+    }
+
+    public boolean isConcurrencyLimited() {
+        return concurrencyLimiter != null;
+    }
+
+    /**
+     * Returns the permit of a finished request, feeding its latency to the adaptive limit.
+     */
+    public void releasePermit(long startNanos, boolean failed) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release(metrics.startTimer() - startNanos, failed);
+        }
+    }
+
+    public void completeRequest(long startNanos, String pattern, String method, ConsumptionProbe probe) {
+        boolean rateLimited = probe == null || !probe.isConsumed();
+        if (rateLimited) {
+            metrics.incrementRateLimitExceeded();
+        }
+        metrics.stopTimer(startNanos, pattern, method, rateLimited);
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /**
+     * Stops the scheduled recalculation and its thread.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.shortthirdman.springboot.ratelimiter.core;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Node-wide bucket whose hot path does not touch shared state. Tokens are taken from the central
+ * bucket a batch at a time into one of a power-of-two number of stripes, picked by thread, and
+ * requests consume from their thread's stripe. A thread whose stripe and the central bucket
+ * are both dry steals from the other stripes before rejecting, so tokens parked in a quiet
+ * stripe are not lost.
+ * <p>
+ * Stripes only hold tokens already taken from the central bucket, so within a refill period no
+ * more is admitted than the bucket allows. When the bucket refills, tokens still parked in
+ * stripes come on top, which bounds the error to {@code stripes * batch} tokens per refill; the
+ * batch is derived from a tolerance as a share of the capacity. With one stripe, or a batch below
+ * one token, every call goes to the central bucket.
+ */
+@Slf4j
+public class StripedBucket {
+
+    // longs per stripe, so every stripe has a 128-byte line to itself
+    private static final int PAD = 16;
+
+    private final Bucket central;
+    private final long batch;
+    private final int mask;
+    private final AtomicLongArray stripes;
+    private volatile long centralRemaining;
+    private volatile long resetAtNanos;
+
+    /**
+     * A bucket consuming straight from {@code central}.
+     */
+    public StripedBucket(Bucket central) {
+        this(central, 0, 1, 0);
+    }
+
+    /**
+     * @param stripes   rounded up to a power of two
+     * @param tolerance tokens per refill the stripes may admit on top of the capacity, as a share of it
+     */
+    public StripedBucket(Bucket central, long capacity, int stripes, double tolerance) {
+        int count = stripes <= 1 ? 1 : Integer.highestOneBit(Math.min(stripes, 1 << 16) - 1) << 1;
+        this.central = central;
+        this.batch = count == 1 ? 0 : Math.max(0, (long) Math.floor(tolerance * capacity / count));
+        this.mask = batch == 0 ? 0 : count - 1;
+        this.stripes = new AtomicLongArray((mask + 1) * PAD);
+        this.centralRemaining = central.getAvailableTokens();
+        if (batch > 0) {
+            log.info("Global bucket split into {} stripes of up to {} tokens", count, batch);
+        }
+    }
+
+    public ConsumptionProbe tryConsumeAndReturnRemaining(long tokens) {
+        if (batch == 0) {
+            return central.tryConsumeAndReturnRemaining(tokens);
+        }
+        int stripe = stripe();
+        if (take(stripe, tokens)) {
+            return consumed(stripe);
+        }
+        ConsumptionProbe probe = central.tryConsumeAndReturnRemaining(tokens + batch);
+        if (probe.isConsumed()) {
+            centralRemaining = probe.getRemainingTokens();
+            resetAtNanos = System.nanoTime() + probe.getNanosToWaitForReset();
+            give(stripe, batch);
+            return consumed(stripe);
+        }
+        long taken = central.tryConsumeAsMuchAsPossible(tokens + batch);
+        centralRemaining = 0;
+        if (taken >= tokens) {
+            give(stripe, taken - tokens);
+            return consumed(stripe);
+        }
+        give(stripe, taken);
+        for (int i = 0; i <= mask; i++) {
+            if (take((stripe + i) & mask, tokens)) {
+                return consumed(stripe);
+            }
+        }
+        long wait = central.estimateAbilityToConsume(tokens).getNanosToWaitForRefill();
+        return ConsumptionProbe.rejected(availableTokens(), wait, Math.max(wait, nanosToReset()));
+    }
+
+    /**
+     * Returns tokens of a request another limit rejected, or that turned out cheaper.
+     */
+    public void addTokens(long tokens) {
+        if (batch == 0) {
+            central.addTokens(tokens);
+        } else {
+            give(stripe(), tokens);
+        }
+    }
+
+    /**
+     * Charges tokens after the fact, letting the central bucket go into debt.
+     */
+    public void consumeIgnoringRateLimits(long tokens) {
+        central.consumeIgnoringRateLimits(tokens);
+    }
+
+    /**
+     * Tokens left in the central bucket, as of its last use, and every stripe.
+     */
+    public long availableTokens() {
+        if (batch == 0) {
+            return central.getAvailableTokens();
+        }
+        long available = centralRemaining;
+        for (int i = 0; i <= mask; i++) {
+            available += stripes.get(i * PAD);
+        }
+        return available;
+    }
+
+    private ConsumptionProbe consumed(int stripe) {
+        return ConsumptionProbe.consumed(stripes.get(stripe * PAD) + centralRemaining, nanosToReset());
+    }
+
+    private long nanosToReset() {
+        return Math.max(0, resetAtNanos - System.nanoTime());
+    }
+
+    private boolean take(int stripe, long tokens) {
+        int index = stripe * PAD;
+        while (true) {
+            long held = stripes.get(index);
+            if (held < tokens) {
+                return false;
+            }
+            if (stripes.compareAndSet(index, held, held - tokens)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Parks tokens in the stripe, returning whatever would take it past one batch to the central bucket.
+     */
+    private void give(int stripe, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        int index = stripe * PAD;
+        while (true) {
+            long held = stripes.get(index);
+            long kept = Math.min(held + tokens, Math.max(held, batch));
+            if (stripes.compareAndSet(index, held, kept)) {
+                long excess = held + tokens - kept;
+                if (excess > 0) {
+                    central.addTokens(excess);
+                }
+                return;
+            }
+        }
+    }
+
+    private int stripe() {
+        return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,26 @@
+package com.shortthirdman.springboot.ratelimiter.cost;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tokens a request to the handler method, or every handler of a controller, takes from each
+ * limit it is checked against, instead of {@code ratelimiter.cost.default-cost}.
+ * <pre>
+ * &#64;RequestCost(20)
+ * &#64;GetMapping("/reports")
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RequestCost {
+
+    /**
+     * Positive number of tokens.
+     */
+    long value();
+}
@@ -0,0 +1,98 @@
+package com.shortthirdman.springboot.ratelimiter.cost;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prices requests in tokens, so limits track the work a request causes rather than the number of
+ * requests. The estimate charged on admission is the handler's {@link RequestCost} plus the body
+ * size; {@link #measuredCost} prices a finished request by its handler time, for interceptors to
+ * refund or charge the difference. A chunked body has no size before it is read, so it is charged
+ * {@code max-cost}. Limits smaller than a request's cost charge their capacity instead.
+ */
+@Slf4j
+public class RequestCostEstimator {
+
+    private final long defaultCost;
+    private final long bytesPerToken;
+    private final long maxCost;
+    private final long nanosPerToken;
+    private final Map<Method, Long> handlerCosts = new ConcurrentHashMap<>();
+
+    public RequestCostEstimator(RequestCostProperties properties) {
+        if (properties.getDefaultCost() < 1 || properties.getMaxCost() < properties.getDefaultCost()) {
+            throw new IllegalArgumentException("Request costs need 1 <= default-cost <= max-cost, got "
+                    + properties.getDefaultCost() + " and " + properties.getMaxCost());
+        }
+        this.defaultCost = properties.getDefaultCost();
+        this.bytesPerToken = Math.max(0, properties.getBytesPerToken());
+        this.maxCost = properties.getMaxCost();
+        this.nanosPerToken = properties.getTimePerToken() == null ? 0 : properties.getTimePerToken().toNanos();
+        if (nanosPerToken > 0) {
+            log.info("Request costs corrected to handler time, {} per token", properties.getTimePerToken());
+        }
+    }
+
+    /**
+     * Tokens to charge when the request is admitted, between 1 and {@code max-cost}.
+     */
+    public long estimate(HttpServletRequest request, Object handler) {
+        long cost = Math.min(handler instanceof HandlerMethod handlerMethod ? handlerCost(handlerMethod) : defaultCost,
+                maxCost);
+        if (bytesPerToken > 0) {
+            long length = request.getContentLengthLong();
+            if (length > 0) {
+                // capped before adding, so a forged Content-Length cannot wrap the sum around
+                cost += Math.min(length / bytesPerToken, maxCost - cost);
+            } else if (length < 0 && request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null) {
+                return maxCost;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Whether finished requests are repriced by {@link #measuredCost}.
+     */
+    public boolean isCorrecting() {
+        return nanosPerToken > 0;
+    }
+
+    /**
+     * Tokens a request that ran for {@code elapsedNanos} is worth, between 1 and {@code max-cost}.
+     */
+    public long measuredCost(long elapsedNanos) {
+        long cost = elapsedNanos <= 0 ? 1 : (elapsedNanos + nanosPerToken - 1) / nanosPerToken;
+        return Math.max(1, Math.min(cost, maxCost));
+    }
+
+    private long handlerCost(HandlerMethod handler) {
+        Long cost = handlerCosts.get(handler.getMethod());
+        if (cost == null) {
+            cost = handlerCosts.computeIfAbsent(handler.getMethod(), m -> compileCost(handler));
+        }
+        return cost;
+    }
+
+    private long compileCost(HandlerMethod handler) {
+        RequestCost annotation = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(), RequestCost.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), RequestCost.class);
+        }
+        if (annotation == null) {
+            return defaultCost;
+        }
+        if (annotation.value() < 1) {
+            throw new IllegalStateException("@RequestCost of " + handler.getShortLogMessage()
+                    + " must be positive, got " + annotation.value());
+        }
+        return annotation.value();
+    }
+}
@@ -0,0 +1,27 @@
+package com.shortthirdman.springboot.ratelimiter.cost;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * How many tokens a request is charged. Handlers without {@link RequestCost} take
+ * {@code defaultCost}; a request body adds a token per {@code bytesPerToken} bytes. With
+ * {@code timePerToken} set, the charge of a finished request is corrected to its measured time.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.cost")
+public class RequestCostProperties {
+
+    private long defaultCost = 1;
+
+    // 0 leaves the body size out of the cost; bodies of unknown length are charged max-cost
+    private long bytesPerToken = 0;
+
+    // limits with a smaller capacity charge their capacity instead
+    private long maxCost = 100;
+
+    // handler time one token stands for; unset keeps the estimate
+    private Duration timePerToken;
+}
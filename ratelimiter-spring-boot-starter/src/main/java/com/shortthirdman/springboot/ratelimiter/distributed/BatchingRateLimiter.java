@@ -0,0 +1,207 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local front for a {@link DistributedBucketStore}. Tokens are reserved from the shared bucket
+ * in batches and handed out locally, so only one request in {@code batchSize} pays a round-trip.
+ * A batch is also held to a tenth of the node's share of the bucket, {@code capacity / nodes}, so
+ * one node cannot lease a small bucket dry while the others see it empty. Leases are kept for at
+ * most {@code maxLeases} keys, like the other per-client stores, so a flood of new keys cannot grow
+ * the heap without bound.
+ * Leased tokens are dropped once the refill period they were reserved in has passed, and a key whose
+ * shared bucket ran dry is rejected locally until its next refill.
+ * <p>
+ * While the store is unreachable each node admits at most {@code partitionAllowance} of a bucket's
+ * capacity per refill period and key, which bounds cluster-wide over-admission to
+ * {@code nodes * partitionAllowance * capacity} per period.
+ */
+@Slf4j
+public class BatchingRateLimiter {
+
+    // largest part of a node's share of a bucket reserved in one round-trip
+    private static final double MAX_LEASE_SHARE = 0.1;
+
+    private final DistributedBucketStore store;
+    private final long batchSize;
+    private final int nodes;
+    private final double partitionAllowance;
+    private final long retryIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, LocalLease> leases;
+    private volatile long storeUnavailableUntil;
+
+    public BatchingRateLimiter(DistributedBucketStore store, long batchSize, int nodes,
+                               double partitionAllowance, long retryIntervalMillis, long maxLeases) {
+        this(store, batchSize, nodes, partitionAllowance, retryIntervalMillis, maxLeases, System::nanoTime);
+    }
+
+    public BatchingRateLimiter(DistributedBucketStore store, long batchSize, int nodes, double partitionAllowance,
+                               long retryIntervalMillis, long maxLeases, LongSupplier nanoClock) {
+        this.store = store;
+        this.batchSize = Math.max(1, batchSize);
+        this.nodes = Math.max(1, nodes);
+        this.partitionAllowance = partitionAllowance;
+        this.retryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(retryIntervalMillis);
+        this.nanoClock = nanoClock;
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(maxLeases)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+        this.storeUnavailableUntil = nanoClock.getAsLong();
+    }
+
+    public ConsumptionProbe tryConsumeAndReturnRemaining(String key, long tokens, BucketSpec spec) {
+        return leases.get(key, k -> new LocalLease()).tryConsume(key, tokens, spec);
+    }
+
+    /**
+     * Returns tokens to the node's lease for the key. They stay local and lapse with the lease,
+     * so the shared bucket is never credited for tokens another node may already have spent.
+     */
+    public void addTokens(String key, long tokens) {
+        LocalLease lease = leases.getIfPresent(key);
+        if (lease != null) {
+            lease.addTokens(tokens);
+        }
+    }
+
+    /**
+     * Takes tokens from the node's lease for the key, never below empty. Like {@link #addTokens}
+     * this only touches local state.
+     */
+    public void removeTokens(String key, long tokens) {
+        LocalLease lease = leases.getIfPresent(key);
+        if (lease != null) {
+            lease.removeTokens(tokens);
+        }
+    }
+
+    long batchSize(BucketSpec spec) {
+        long share = (long) (spec.getCapacity() * MAX_LEASE_SHARE / nodes);
+        return Math.max(1, Math.min(batchSize, share));
+    }
+
+    /**
+     * Runs pending evictions now instead of on a later access.
+     */
+    void cleanUp() {
+        leases.cleanUp();
+    }
+
+    public long localLeaseCount() {
+        return leases.estimatedSize();
+    }
+
+    public boolean isStoreAvailable() {
+        return nanoClock.getAsLong() - storeUnavailableUntil >= 0;
+    }
+
+    private final class LocalLease {
+
+        // not a monitor: a renewal waits on the store, and a virtual thread must not pin its carrier meanwhile
+        private final ReentrantLock lock = new ReentrantLock();
+        private long leased;
+        private long leaseExpiresAt;
+        private long sharedRemaining = -1;
+        private long partitionWindowStart;
+        private long partitionUsed;
+
+        private ConsumptionProbe tryConsume(String key, long requested, BucketSpec spec) {
+            lock.lock();
+            try {
+                return tryConsumeLocked(key, requested, spec);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ConsumptionProbe tryConsumeLocked(String key, long requested, BucketSpec spec) {
+            long now = nanoClock.getAsLong();
+            if (now - leaseExpiresAt >= 0) {
+                leased = 0;
+            }
+            if (leased >= requested) {
+                leased -= requested;
+                return ConsumptionProbe.consumed(leased + Math.max(0, sharedRemaining), leaseExpiresAt - now);
+            }
+            if (sharedRemaining == 0 && now - leaseExpiresAt < 0) {
+                // the shared bucket only refills at the interval boundary, asking again cannot succeed
+                long nanosToRefill = leaseExpiresAt - now;
+                return ConsumptionProbe.rejected(leased, nanosToRefill, nanosToRefill);
+            }
+
+            if (isStoreAvailable()) {
+                try {
+                    Reservation reservation = store.tryReserve(key, Math.max(batchSize(spec), requested - leased), spec);
+                    leased += reservation.getGranted();
+                    sharedRemaining = reservation.getRemaining();
+                    leaseExpiresAt = now + reservation.getNanosToRefill();
+                    partitionUsed = 0;
+                    if (leased >= requested) {
+                        leased -= requested;
+                        return ConsumptionProbe.consumed(leased + sharedRemaining, reservation.getNanosToRefill());
+                    }
+                    return ConsumptionProbe.rejected(leased + sharedRemaining,
+                            reservation.getNanosToRefill(), reservation.getNanosToRefill());
+                } catch (RuntimeException e) {
+                    sharedRemaining = -1;
+                    storeUnavailableUntil = now + retryIntervalNanos;
+                    log.warn("Distributed bucket store unavailable, limiting locally for {} ms",
+                            TimeUnit.NANOSECONDS.toMillis(retryIntervalNanos), e);
+                }
+            }
+            return tryConsumeDuringPartition(requested, spec, now);
+        }
+
+        private void addTokens(long tokens) {
+            lock.lock();
+            try {
+                long now = nanoClock.getAsLong();
+                if (now - leaseExpiresAt < 0) {
+                    leased += tokens;
+                } else {
+                    partitionUsed = Math.max(0, partitionUsed - tokens);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void removeTokens(long tokens) {
+            lock.lock();
+            try {
+                long now = nanoClock.getAsLong();
+                if (now - leaseExpiresAt < 0) {
+                    leased = Math.max(0, leased - tokens);
+                } else {
+                    partitionUsed += tokens;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ConsumptionProbe tryConsumeDuringPartition(long requested, BucketSpec spec, long now) {
+            long period = spec.getRefillPeriod().toNanos();
+            if (now - partitionWindowStart >= period) {
+                partitionWindowStart = now;
+                partitionUsed = 0;
+            }
+            long allowance = (long) (spec.getCapacity() * partitionAllowance);
+            long nanosToRefill = partitionWindowStart + period - now;
+            if (partitionUsed + requested <= allowance) {
+                partitionUsed += requested;
+                return ConsumptionProbe.consumed(allowance - partitionUsed, nanosToRefill);
+            }
+            return ConsumptionProbe.rejected(allowance - partitionUsed, nanosToRefill, nanosToRefill);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@AllArgsConstructor
+public class BucketSpec {
+
+    private long capacity;
+    private long refillTokens;
+    private Duration refillPeriod;
+}
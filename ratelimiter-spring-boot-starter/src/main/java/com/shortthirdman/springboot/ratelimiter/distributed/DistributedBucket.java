@@ -0,0 +1,31 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * A single shared bucket, the cluster-wide counterpart of a local {@code Bucket} bean.
+ */
+public class DistributedBucket {
+
+    private final BatchingRateLimiter limiter;
+    private final String key;
+    private final BucketSpec spec;
+
+    public DistributedBucket(BatchingRateLimiter limiter, String key, BucketSpec spec) {
+        this.limiter = limiter;
+        this.key = key;
+        this.spec = spec;
+    }
+
+    public ConsumptionProbe tryConsumeAndReturnRemaining(long tokens) {
+        return limiter.tryConsumeAndReturnRemaining(key, tokens, spec);
+    }
+
+    public void addTokens(long tokens) {
+        limiter.addTokens(key, tokens);
+    }
+
+    public void removeTokens(long tokens) {
+        limiter.removeTokens(key, tokens);
+    }
+}
@@ -0,0 +1,14 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+/**
+ * Shared token bucket state used by every replica. Buckets refill intervally, the same way as
+ * {@code Refill.intervally}, and are created full on first use.
+ */
+public interface DistributedBucketStore {
+
+    /**
+     * Atomically takes up to {@code tokens} from the bucket stored under {@code key}.
+     * May grant fewer tokens than requested, including none.
+     */
+    Reservation tryReserve(String key, long tokens, BucketSpec spec);
+}
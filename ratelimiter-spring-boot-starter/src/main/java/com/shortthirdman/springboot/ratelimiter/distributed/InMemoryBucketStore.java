@@ -0,0 +1,52 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Embedded store for tests and single-node setups. Mirrors the semantics of the Redis script.
+ */
+public class InMemoryBucketStore implements DistributedBucketStore {
+
+    private final ConcurrentMap<String, SharedBucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public InMemoryBucketStore() {
+        this(System::nanoTime);
+    }
+
+    public InMemoryBucketStore(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Reservation tryReserve(String key, long tokens, BucketSpec spec) {
+        long now = nanoClock.getAsLong();
+        return buckets.computeIfAbsent(key, k -> new SharedBucket(spec.getCapacity(), now))
+                .reserve(tokens, spec, now);
+    }
+
+    private static final class SharedBucket {
+
+        private long tokens;
+        private long intervalStart;
+
+        private SharedBucket(long tokens, long intervalStart) {
+            this.tokens = tokens;
+            this.intervalStart = intervalStart;
+        }
+
+        private synchronized Reservation reserve(long requested, BucketSpec spec, long now) {
+            long period = spec.getRefillPeriod().toNanos();
+            long periods = (now - intervalStart) / period;
+            if (periods > 0) {
+                tokens = Math.min(spec.getCapacity(), tokens + periods * spec.getRefillTokens());
+                intervalStart += periods * period;
+            }
+            long granted = Math.min(tokens, requested);
+            tokens -= granted;
+            return new Reservation(granted, tokens, intervalStart + period - now);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Networked store that keeps each bucket in a Redis hash and updates it with a Lua script,
+ * so a reservation is a single round-trip.
+ */
+public class RedisBucketStore implements DistributedBucketStore {
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_SCRIPT =
+            new DefaultRedisScript<>(loadScript(), List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+
+    public RedisBucketStore(StringRedisTemplate redisTemplate, String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public Reservation tryReserve(String key, long tokens, BucketSpec spec) {
+        List<?> result = redisTemplate.execute(RESERVE_SCRIPT,
+                List.of(keyPrefix + key),
+                Long.toString(tokens),
+                Long.toString(spec.getCapacity()),
+                Long.toString(spec.getRefillTokens()),
+                Long.toString(spec.getRefillPeriod().toMillis()));
+        if (result == null || result.size() != 3) {
+            throw new IllegalStateException("Unexpected reply from rate limit script: " + result);
+        }
+        return new Reservation(
+                ((Number) result.get(0)).longValue(),
+                ((Number) result.get(1)).longValue(),
+                ((Number) result.get(2)).longValue() * 1_000_000);
+    }
+
+    private static String loadScript() {
+        try {
+            return new ClassPathResource("scripts/token_bucket_reserve.lua")
+                    .getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load rate limit script", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Reservation {
+
+    private long granted;
+    private long remaining;
+    private long nanosToRefill;
+}
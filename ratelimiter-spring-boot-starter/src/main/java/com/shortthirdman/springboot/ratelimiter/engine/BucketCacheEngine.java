@@ -0,0 +1,143 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigProvider;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TimeMeter;
+import io.github.bucket4j.TokensInheritanceStrategy;
+
+import java.util.function.LongSupplier;
+
+public class BucketCacheEngine implements RateLimiterEngine {
+
+    // estimated: Caffeine node with expiry, ClientKey, holder and LocalBucket state; FootprintBenchmark DYNAMIC derives it
+    private static final long BYTES_PER_CLIENT = 320;
+
+    private final ClientStateStore<ClientBucket> bucketCache;
+    private final TimeMeter timeMeter;
+    private volatile ActiveConfiguration active;
+
+    public BucketCacheEngine(RateLimitConfigProvider configProvider, ClientStateStoreFactory stores) {
+        this.timeMeter = timeMeter(stores.nanoClock());
+        this.active = new ActiveConfiguration(configProvider.getRateLimitConfig());
+        this.bucketCache = stores.create("dynamic", BYTES_PER_CLIENT,
+                clientBucket -> clientBucket.configuration.nanosToFull,
+                clientBucket -> clientBucket.bucket.getAvailableTokens(),
+                clientBucket -> clientBucket.configuration.capacity);
+    }
+
+    @Override
+    public ConsumptionProbe tryConsumeAndReturnRemaining(ClientKey clientKey, long tokens) {
+        ActiveConfiguration configuration = active;
+        ClientBucket clientBucket = bucketCache.get(clientKey,
+                initialTokens -> new ClientBucket(configuration, initialTokens, timeMeter));
+        if (clientBucket.configuration != configuration) {
+            clientBucket.bucket.replaceConfiguration(configuration.bucketConfiguration,
+                    TokensInheritanceStrategy.PROPORTIONALLY);
+            clientBucket.configuration = configuration;
+        }
+        return clientBucket.bucket.tryConsumeAndReturnRemaining(tokens);
+    }
+
+    @Override
+    public void addTokens(ClientKey clientKey, long tokens) {
+        ClientBucket clientBucket = bucketCache.getIfPresent(clientKey);
+        if (clientBucket != null) {
+            clientBucket.bucket.addTokens(tokens);
+        }
+    }
+
+    @Override
+    public void removeTokens(ClientKey clientKey, long tokens) {
+        ClientBucket clientBucket = bucketCache.getIfPresent(clientKey);
+        if (clientBucket != null) {
+            clientBucket.bucket.consumeIgnoringRateLimits(tokens);
+        }
+    }
+
+    @Override
+    public long availableTokens(ClientKey clientKey) {
+        ClientBucket clientBucket = bucketCache.getIfPresent(clientKey);
+        return clientBucket == null ? -1 : clientBucket.bucket.getAvailableTokens();
+    }
+
+    @Override
+    public void onConfigurationChange(RateLimitConfigValues newConfig) {
+        // buckets migrate lazily on their next consume, keeping their fill level
+        this.active = new ActiveConfiguration(newConfig);
+    }
+
+    @Override
+    public void invalidateAll() {
+        bucketCache.invalidateAll();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return bucketCache.estimatedSize();
+    }
+
+    @Override
+    public long bytesPerClient() {
+        return BYTES_PER_CLIENT;
+    }
+
+    private static TimeMeter timeMeter(LongSupplier nanoClock) {
+        if (nanoClock == null) {
+            return TimeMeter.SYSTEM_MILLISECONDS;
+        }
+        return new TimeMeter() {
+            @Override
+            public long currentTimeNanos() {
+                return nanoClock.getAsLong();
+            }
+
+            @Override
+            public boolean isWallClockBased() {
+                return false;
+            }
+        };
+    }
+
+    private static final class ActiveConfiguration {
+
+        private final BucketConfiguration bucketConfiguration;
+        private final long nanosToFull;
+        private final long capacity;
+
+        private ActiveConfiguration(RateLimitConfigValues config) {
+            this.bucketConfiguration = BucketConfiguration.builder()
+                    .addLimit(Bandwidth.classic(
+                            config.getLimit(),
+                            Refill.intervally(config.getLimit(),
+                                    config.getRefillDuration())
+                    ))
+                    .build();
+            this.nanosToFull = ClientStateStore.nanosToFull(bucketConfiguration);
+            this.capacity = config.getLimit();
+        }
+    }
+
+    private static final class ClientBucket {
+
+        private final Bucket bucket;
+        private volatile ActiveConfiguration configuration;
+
+        private ClientBucket(ActiveConfiguration configuration, long initialTokens, TimeMeter timeMeter) {
+            this.configuration = configuration;
+            Bandwidth bandwidth = configuration.bucketConfiguration.getBandwidths()[0];
+            this.bucket = Bucket.builder()
+                    .withCustomTimePrecision(timeMeter)
+                    .addLimit(initialTokens == ClientStateStore.FULL ? bandwidth
+                            : bandwidth.withInitialTokens(Math.min(initialTokens, bandwidth.getCapacity())))
+                    .build();
+        }
+    }
+}
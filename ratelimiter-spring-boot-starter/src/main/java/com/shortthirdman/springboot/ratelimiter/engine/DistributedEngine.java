@@ -0,0 +1,67 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.distributed.BatchingRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigProvider;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Keeps per-client buckets in the shared store; only the local leases live on this node.
+ */
+public class DistributedEngine implements RateLimiterEngine {
+
+    private static final String KEY_PREFIX = "client:";
+    // estimated: local lease, Caffeine node and prefixed key; FootprintBenchmark DISTRIBUTED derives it
+    private static final long BYTES_PER_CLIENT = 200;
+
+    private final BatchingRateLimiter limiter;
+    private volatile BucketSpec spec;
+
+    public DistributedEngine(RateLimitConfigProvider configProvider, BatchingRateLimiter limiter) {
+        this.limiter = limiter;
+        this.spec = toSpec(configProvider.getRateLimitConfig());
+    }
+
+    @Override
+    public ConsumptionProbe tryConsumeAndReturnRemaining(ClientKey clientKey, long tokens) {
+        // the shared store is keyed by text, in the same form as the former remote address keys
+        return limiter.tryConsumeAndReturnRemaining(KEY_PREFIX + clientKey, tokens, spec);
+    }
+
+    @Override
+    public void addTokens(ClientKey clientKey, long tokens) {
+        limiter.addTokens(KEY_PREFIX + clientKey, tokens);
+    }
+
+    @Override
+    public void removeTokens(ClientKey clientKey, long tokens) {
+        limiter.removeTokens(KEY_PREFIX + clientKey, tokens);
+    }
+
+    @Override
+    public void onConfigurationChange(RateLimitConfigValues newConfig) {
+        // shared buckets keep their level and refill against the new capacity from their next interval
+        this.spec = toSpec(newConfig);
+    }
+
+    @Override
+    public void invalidateAll() {
+        // shared state belongs to the whole cluster and is never dropped by a single node
+    }
+
+    private static BucketSpec toSpec(RateLimitConfigValues config) {
+        return new BucketSpec(config.getLimit(), config.getLimit(), config.getRefillDuration());
+    }
+
+    @Override
+    public long estimatedSize() {
+        return limiter.localLeaseCount();
+    }
+
+    @Override
+    public long bytesPerClient() {
+        return BYTES_PER_CLIENT;
+    }
+}
@@ -0,0 +1,412 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigProvider;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateSource;
+import com.shortthirdman.springboot.ratelimiter.store.RestoredClients;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets stored as packed {@code long} slots in a striped open-addressing table.
+ * Each slot is a 64-bit key fingerprint followed by a state word holding the remaining
+ * tokens (upper 20 bits), the configuration generation they were counted in (4 bits) and the
+ * start of the current refill interval in milliseconds since the engine epoch (lower 40 bits).
+ * Refill follows {@code Refill.intervally}; a slot from an older generation is rescaled to
+ * the current capacity on its next consume. Before a generation id is reused, slots still
+ * counted in it are moved to the previous generation, so the 4-bit id never aliases.
+ * <p>
+ * The table never grows. Slots whose bucket is full again are reclaimed by new keys,
+ * and keys that cannot find a slot within {@link #MAX_PROBES} share the stripe's
+ * overflow bucket, so a flood of distinct clients is throttled collectively. A reclaim
+ * claims the key word first, so a key never holds two slots, and then resets the state word
+ * only if it still holds the idle value it checked: a request of the new key that got in
+ * between has consumed from a bucket as full as a fresh one and keeps its charge, and one
+ * of the previous owner is charged to the new key, which can only make the limit stricter.
+ * <p>
+ * As a {@link ClientStateSource} the table is walked slot by slot with plain volatile reads,
+ * so a snapshot sees each bucket at some recent level without stalling concurrent consumers.
+ */
+@Slf4j
+public class PrimitiveTokenBucketEngine implements RateLimiterEngine, ClientStateSource {
+
+    static final int TIME_BITS = 40;
+    static final int GENERATION_BITS = 4;
+    static final int TOKEN_SHIFT = TIME_BITS + GENERATION_BITS;
+    static final long MAX_TOKENS = (1L << (Long.SIZE - TOKEN_SHIFT)) - 1;
+    static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    static final int GENERATION_MASK = (1 << GENERATION_BITS) - 1;
+
+    private static final int MAX_PROBES = 16;
+    // ClientKey fingerprints are never 0, so a zero key word always marks a free slot
+    private static final long EMPTY = 0L;
+    private static final long FRESH = 0L;
+    private static final int LONGS_PER_SLOT = 2;
+    // slots are sized for at most half occupancy to keep probe chains short
+    private static final int SLOTS_PER_CLIENT = 2;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final LongSupplier nanoClock;
+    private final long epochNanos;
+    private final int maxClients;
+    private final LongAdder size = new LongAdder();
+    private volatile Generation generation;
+
+    public PrimitiveTokenBucketEngine(RateLimitConfigProvider configProvider, int maxClients, int stripeCount) {
+        this(configProvider, maxClients, stripeCount, null);
+    }
+
+    /**
+     * @param nanoClock time source for refills, or {@code null} for the system clock
+     */
+    public PrimitiveTokenBucketEngine(RateLimitConfigProvider configProvider, int maxClients, int stripeCount,
+                                      LongSupplier nanoClock) {
+        this.nanoClock = nanoClock == null ? System::nanoTime : nanoClock;
+        this.generation = new Generation(0, configProvider.getRateLimitConfig(), new long[GENERATION_MASK + 1]);
+        int stripesPow2 = Integer.highestOneBit(Math.max(1, stripeCount));
+        int slotsPerStripe = Integer.highestOneBit(
+                Math.max(MAX_PROBES, maxClients / stripesPow2 * SLOTS_PER_CLIENT) - 1) << 1;
+        this.maxClients = Math.max(1, maxClients);
+        this.stripes = new Stripe[stripesPow2];
+        for (int i = 0; i < stripesPow2; i++) {
+            stripes[i] = new Stripe(slotsPerStripe);
+        }
+        this.stripeMask = stripesPow2 - 1;
+        // keep "now" strictly positive so a zero state word always means an untouched bucket
+        this.epochNanos = this.nanoClock.getAsLong() - TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public ConsumptionProbe tryConsumeAndReturnRemaining(ClientKey clientKey, long tokens) {
+        Generation current = generation;
+        long capacity = current.capacity;
+        long periodMillis = current.periodMillis;
+        long now = nowMillis();
+
+        long key = clientKey.fingerprint();
+        Stripe stripe = stripes[(int) (key >>> 32) & stripeMask];
+        int stateIndex = stripe.locate(key, now, current) + 1;
+        AtomicLongArray table = stripe.table;
+
+        while (true) {
+            long state = table.get(stateIndex);
+            long available;
+            long intervalStart;
+            if (state == FRESH) {
+                available = capacity;
+                intervalStart = now;
+            } else {
+                available = state >>> TOKEN_SHIFT;
+                int slotGeneration = (int) (state >>> TIME_BITS) & GENERATION_MASK;
+                if (slotGeneration != current.id) {
+                    long previousCapacity = Math.max(1, current.capacities[slotGeneration]);
+                    available = available * capacity / previousCapacity;
+                }
+                available = Math.min(available, capacity);
+                intervalStart = state & TIME_MASK;
+                long elapsed = now - intervalStart;
+                if (elapsed >= periodMillis) {
+                    long periods = elapsed / periodMillis;
+                    available = Math.min(capacity, available + periods * capacity);
+                    intervalStart += periods * periodMillis;
+                }
+            }
+
+            long nextRefillMillis = intervalStart + periodMillis - now;
+            if (available < tokens) {
+                long missingPeriods = (tokens - available + capacity - 1) / capacity;
+                long waitMillis = nextRefillMillis + (missingPeriods - 1) * periodMillis;
+                return ConsumptionProbe.rejected(available,
+                        TimeUnit.MILLISECONDS.toNanos(waitMillis),
+                        TimeUnit.MILLISECONDS.toNanos(nextRefillMillis));
+            }
+
+            long remaining = available - tokens;
+            if (table.compareAndSet(stateIndex, state, pack(remaining, current.id, intervalStart))) {
+                long resetMillis = remaining == capacity ? 0 : nextRefillMillis;
+                return ConsumptionProbe.consumed(remaining, TimeUnit.MILLISECONDS.toNanos(resetMillis));
+            }
+        }
+    }
+
+    @Override
+    public void addTokens(ClientKey clientKey, long tokens) {
+        Generation current = generation;
+        long key = clientKey.fingerprint();
+        Stripe stripe = stripes[(int) (key >>> 32) & stripeMask];
+        int keyIndex = stripe.find(key);
+        if (keyIndex < 0) {
+            return;
+        }
+        AtomicLongArray table = stripe.table;
+        while (true) {
+            long state = table.get(keyIndex + 1);
+            if (state == FRESH) {
+                return;
+            }
+            // credit the tokens in the generation they were counted in, the next consume rescales them
+            int slotGeneration = (int) (state >>> TIME_BITS) & GENERATION_MASK;
+            long available = Math.min(current.capacities[slotGeneration], (state >>> TOKEN_SHIFT) + tokens);
+            if (table.compareAndSet(keyIndex + 1, state, pack(available, slotGeneration, state & TIME_MASK))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void removeTokens(ClientKey clientKey, long tokens) {
+        long key = clientKey.fingerprint();
+        Stripe stripe = stripes[(int) (key >>> 32) & stripeMask];
+        int keyIndex = stripe.find(key);
+        if (keyIndex < 0) {
+            return;
+        }
+        AtomicLongArray table = stripe.table;
+        while (true) {
+            long state = table.get(keyIndex + 1);
+            if (state == FRESH) {
+                return;
+            }
+            // the slot cannot hold a debt, so an expensive request empties the bucket at most;
+            // refill since the interval start is still credited on the next consume
+            int slotGeneration = (int) (state >>> TIME_BITS) & GENERATION_MASK;
+            long available = Math.max(0, (state >>> TOKEN_SHIFT) - tokens);
+            if (table.compareAndSet(keyIndex + 1, state, pack(available, slotGeneration, state & TIME_MASK))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long availableTokens(ClientKey clientKey) {
+        long key = clientKey.fingerprint();
+        Stripe stripe = stripes[(int) (key >>> 32) & stripeMask];
+        int keyIndex = stripe.find(key);
+        if (keyIndex < 0) {
+            return -1;
+        }
+        long state = stripe.table.get(keyIndex + 1);
+        Generation current = generation;
+        return state == FRESH ? current.capacity : availableAt(state, nowMillis(), current);
+    }
+
+    @Override
+    public synchronized void onConfigurationChange(RateLimitConfigValues newConfig) {
+        Generation previous = generation;
+        int next = (previous.id + 1) & GENERATION_MASK;
+        // buckets untouched since the id was last used would otherwise be read against the new capacity
+        for (Stripe stripe : stripes) {
+            stripe.migrate(next, previous);
+        }
+        generation = new Generation(next, newConfig, previous.capacities);
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+        size.reset();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return size.sum();
+    }
+
+    @Override
+    public long bytesPerClient() {
+        return footprintBytes() / maxClients;
+    }
+
+    public long footprintBytes() {
+        return (long) stripes.length * stripes[0].table.length() * Long.BYTES;
+    }
+
+    @Override
+    public String snapshotName() {
+        return "dynamic";
+    }
+
+    @Override
+    public void forEachClient(Visitor visitor) {
+        Generation current = generation;
+        long now = nowMillis();
+        long refillNanos = TimeUnit.MILLISECONDS.toNanos(current.periodMillis);
+        for (Stripe stripe : stripes) {
+            AtomicLongArray table = stripe.table;
+            // the overflow pair is shared by many clients and never snapshotted
+            for (int keyIndex = 0; keyIndex < stripe.slots * LONGS_PER_SLOT; keyIndex += LONGS_PER_SLOT) {
+                long key = table.get(keyIndex);
+                long state = table.get(keyIndex + 1);
+                if (key == EMPTY || state == FRESH) {
+                    continue;
+                }
+                long available = availableAt(state, now, current);
+                if (available < current.capacity) {
+                    visitor.accept(key, available, current.capacity, refillNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Seeds buckets from a snapshot section before the engine takes traffic. Levels are rescaled
+     * to the current capacity and start a fresh refill interval; clients that no longer fit in
+     * their probe chain are left to start full rather than share the overflow bucket.
+     */
+    public void restore(RestoredClients clients) {
+        Generation current = generation;
+        long now = nowMillis();
+        int[] count = new int[1];
+        clients.forEach((key, tokens, capacity, refillNanos) -> {
+            Stripe stripe = stripes[(int) (key >>> 32) & stripeMask];
+            int keyIndex = stripe.locate(key, now, current);
+            if (keyIndex == stripe.slots * LONGS_PER_SLOT) {
+                return;
+            }
+            long rescaled = Math.min(current.capacity, tokens * current.capacity / Math.max(1, capacity));
+            if (stripe.table.compareAndSet(keyIndex + 1, FRESH, pack(rescaled, current.id, now))) {
+                count[0]++;
+            }
+        });
+        log.info("Restored {} of {} client buckets from snapshot", count[0], clients.size());
+    }
+
+    private long availableAt(long state, long now, Generation current) {
+        long available = state >>> TOKEN_SHIFT;
+        int slotGeneration = (int) (state >>> TIME_BITS) & GENERATION_MASK;
+        if (slotGeneration != current.id) {
+            available = available * current.capacity / Math.max(1, current.capacities[slotGeneration]);
+        }
+        long periods = (now - (state & TIME_MASK)) / current.periodMillis;
+        return Math.min(current.capacity, available + periods * current.capacity);
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - epochNanos);
+    }
+
+    static long pack(long tokens, int generation, long intervalStartMillis) {
+        return (tokens << TOKEN_SHIFT) | ((long) generation << TIME_BITS) | (intervalStartMillis & TIME_MASK);
+    }
+
+    private final class Stripe {
+
+        private final int slots;
+        private final int mask;
+        // [key, state] pairs followed by the shared overflow pair
+        private final AtomicLongArray table;
+
+        private Stripe(int slots) {
+            this.slots = slots;
+            this.mask = slots - 1;
+            this.table = new AtomicLongArray((slots + 1) * LONGS_PER_SLOT);
+        }
+
+        private int locate(long key, long now, Generation generation) {
+            int home = (int) key & mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int keyIndex = ((home + probe) & mask) * LONGS_PER_SLOT;
+                long current = table.get(keyIndex);
+                if (current == key) {
+                    return keyIndex;
+                }
+                if (current == EMPTY) {
+                    if (table.compareAndSet(keyIndex, EMPTY, key)) {
+                        size.increment();
+                        return keyIndex;
+                    }
+                    if (table.get(keyIndex) == key) {
+                        return keyIndex;
+                    }
+                } else {
+                    long state = table.get(keyIndex + 1);
+                    if (isIdle(state, now, generation) && table.compareAndSet(keyIndex, current, key)) {
+                        // the previous owner's bucket was already full, so a fresh one is equivalent; a
+                        // failed reset means a consume got in first and its charge stands
+                        table.compareAndSet(keyIndex + 1, state, FRESH);
+                        return keyIndex;
+                    }
+                }
+            }
+            return slots * LONGS_PER_SLOT;
+        }
+
+        private int find(long key) {
+            int home = (int) key & mask;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int keyIndex = ((home + probe) & mask) * LONGS_PER_SLOT;
+                long current = table.get(keyIndex);
+                if (current == key) {
+                    return keyIndex;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+            }
+            // a full probe chain sends the key to the overflow bucket
+            return slots * LONGS_PER_SLOT;
+        }
+
+        private boolean isIdle(long state, long now, Generation generation) {
+            if (state == FRESH) {
+                return false;
+            }
+            long intervalStart = state & TIME_MASK;
+            long tokens = state >>> TOKEN_SHIFT;
+            long capacity = generation.capacities[(int) (state >>> TIME_BITS) & GENERATION_MASK];
+            long periods = (now - intervalStart) / generation.periodMillis;
+            return tokens + periods * capacity >= capacity;
+        }
+
+        /**
+         * Rescales buckets counted in generation {@code from} to {@code to}, the current one.
+         */
+        private void migrate(int from, Generation to) {
+            for (int stateIndex = 1; stateIndex < table.length(); stateIndex += LONGS_PER_SLOT) {
+                while (true) {
+                    long state = table.get(stateIndex);
+                    if (state == FRESH || ((int) (state >>> TIME_BITS) & GENERATION_MASK) != from) {
+                        break;
+                    }
+                    long tokens = (state >>> TOKEN_SHIFT) * to.capacity / Math.max(1, to.capacities[from]);
+                    if (table.compareAndSet(stateIndex, state,
+                            pack(Math.min(tokens, to.capacity), to.id, state & TIME_MASK))) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void clear() {
+            for (int i = 0; i < table.length(); i++) {
+                table.set(i, 0L);
+            }
+        }
+    }
+
+    private static final class Generation {
+
+        private final int id;
+        private final long capacity;
+        private final long periodMillis;
+        // capacity each generation id was counted against, copied on every change
+        private final long[] capacities;
+
+        private Generation(int id, RateLimitConfigValues config, long[] previousCapacities) {
+            this.id = id;
+            this.capacity = Math.min(config.getLimit(), MAX_TOKENS);
+            this.periodMillis = Math.max(1, config.getRefillDuration().toMillis());
+            this.capacities = previousCapacities.clone();
+            this.capacities[id] = capacity;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import io.github.bucket4j.ConsumptionProbe;
+
+/**
+ * Per-client token bucket storage used by {@code DynamicRateLimitInterceptor}.
+ * Implementations start from the limit of a {@code RateLimitConfigProvider} and are told about later changes.
+ */
+public interface RateLimiterEngine {
+
+    ConsumptionProbe tryConsumeAndReturnRemaining(ClientKey clientKey, long tokens);
+
+    default ConsumptionProbe tryConsumeAndReturnRemaining(String clientId, long tokens) {
+        return tryConsumeAndReturnRemaining(ClientKey.of(clientId), tokens);
+    }
+
+    /**
+     * Gives tokens back to a client's bucket, never beyond its capacity. Used when a request this
+     * engine admitted is rejected by another limit. Clients without a bucket are left untouched.
+     */
+    void addTokens(ClientKey clientKey, long tokens);
+
+    /**
+     * Takes tokens from a client's bucket after the fact, when an admitted request turned out to
+     * cost more than it was charged. Engines whose buckets can go into debt let the charge delay the
+     * client's next requests; the others empty the bucket at most. Clients without a bucket are
+     * left untouched.
+     */
+    void removeTokens(ClientKey clientKey, long tokens);
+
+    /**
+     * Tokens the client could take now, or -1 if the engine holds no bucket for it or cannot tell
+     * without a remote call. Never creates a bucket.
+     */
+    default long availableTokens(ClientKey clientKey) {
+        return -1;
+    }
+
+    /**
+     * Applies a new limit to existing buckets without discarding them. Remaining tokens are
+     * carried over in proportion to the new capacity.
+     */
+    void onConfigurationChange(RateLimitConfigValues newConfig);
+
+    void invalidateAll();
+
+    long estimatedSize();
+
+    /**
+     * Approximate retained heap per tracked client, in bytes.
+     */
+    long bytesPerClient();
+}
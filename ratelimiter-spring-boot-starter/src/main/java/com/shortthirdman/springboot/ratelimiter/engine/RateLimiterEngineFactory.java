@@ -0,0 +1,76 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.distributed.BatchingRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigProvider;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.RestoredClients;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.OptionalLong;
+
+@Slf4j
+public class RateLimiterEngineFactory {
+
+    private static final String LIMIT_SETTING = "dynamic.limit";
+    private static final String REFILL_SETTING = "dynamic.refill-nanos";
+
+    private final String engineType;
+    private final int maxClients;
+    private final int stripes;
+    private final ObjectProvider<BatchingRateLimiter> distributedLimiter;
+    private final ClientStateStoreFactory stores;
+
+    public RateLimiterEngineFactory(String engineType, int maxClients, int stripes,
+                                    ObjectProvider<BatchingRateLimiter> distributedLimiter, ClientStateStoreFactory stores) {
+        this.engineType = engineType.toLowerCase(Locale.ROOT);
+        this.maxClients = maxClients;
+        this.stripes = stripes;
+        this.distributedLimiter = distributedLimiter;
+        this.stores = stores;
+    }
+
+    /**
+     * The dynamic limit in force when the last snapshot was taken, or {@code fallback}.
+     */
+    public RateLimitConfigValues restoredConfig(RateLimitConfigValues fallback) {
+        OptionalLong limit = stores.restoredSetting(LIMIT_SETTING);
+        OptionalLong refillNanos = stores.restoredSetting(REFILL_SETTING);
+        if (limit.isEmpty() || refillNanos.isEmpty() || limit.getAsLong() <= 0 || refillNanos.getAsLong() <= 0) {
+            return fallback;
+        }
+        RateLimitConfigValues restored = new RateLimitConfigValues((int) Math.min(Integer.MAX_VALUE, limit.getAsLong()),
+                Duration.ofNanos(refillNanos.getAsLong()));
+        log.info("Restored dynamic rate limit {}/{}s", restored.getLimit(), restored.getRefillDuration().getSeconds());
+        return restored;
+    }
+
+    public RateLimiterEngine create(RateLimitConfigProvider configProvider) {
+        stores.registerSetting(LIMIT_SETTING, () -> configProvider.getRateLimitConfig().getLimit());
+        stores.registerSetting(REFILL_SETTING, () -> configProvider.getRateLimitConfig().getRefillDuration().toNanos());
+        RateLimiterEngine engine = switch (engineType) {
+            case "primitive" -> createPrimitive(configProvider);
+            case "distributed" -> new DistributedEngine(configProvider, distributedLimiter.getIfAvailable(() -> {
+                throw new IllegalStateException(
+                        "ratelimiter.dynamic.engine=distributed requires ratelimiter.distributed.enabled=true");
+            }));
+            default -> new BucketCacheEngine(configProvider, stores);
+        };
+        log.info("Using {} rate limiter engine (~{} bytes/client)", engineType, engine.bytesPerClient());
+        return engine;
+    }
+
+    private PrimitiveTokenBucketEngine createPrimitive(RateLimitConfigProvider configProvider) {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(configProvider, maxClients, stripes,
+                stores.nanoClock());
+        RestoredClients restored = stores.restoredClients(engine.snapshotName());
+        if (restored != null) {
+            engine.restore(restored);
+        }
+        stores.register(engine);
+        return engine;
+    }
+}
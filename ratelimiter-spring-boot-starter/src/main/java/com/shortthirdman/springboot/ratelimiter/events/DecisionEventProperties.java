@@ -0,0 +1,43 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Stream of limiter decisions, aggregated per client and endpoint over fixed windows and written
+ * to a sink. Request threads only publish to a ring buffer; when it is full, decisions are dropped.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.events")
+public class DecisionEventProperties {
+
+    private boolean enabled = false;
+
+    // decisions in flight to the consumer, rounded up to a power of two
+    private int bufferSize = 16_384;
+
+    private Duration window = Duration.ofSeconds(10);
+
+    // client and endpoint pairs per window; further clients are counted under "other"
+    private int maxKeysPerWindow = 10_000;
+
+    // log or file; a DecisionSink bean replaces both
+    private String sink = "log";
+
+    private File file = new File();
+
+    @Data
+    public static class File {
+
+        private Path path = Path.of("logs/ratelimiter-decisions.jsonl");
+
+        private DataSize maxSize = DataSize.ofMegabytes(10);
+
+        // rolled files kept next to the current one
+        private int maxHistory = 5;
+    }
+}
@@ -0,0 +1,100 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of decisions in preallocated parallel arrays.
+ * A producer claims a sequence by CAS, fills the slot with references and primitives only, and
+ * publishes it by writing the sequence into the slot. Nothing is allocated and nothing waits: a
+ * producer finding the ring full gives up. The consumer drains published slots in order.
+ */
+final class DecisionRing {
+
+    @FunctionalInterface
+    interface Handler {
+
+        void onDecision(ClientKey client, String endpoint, String deniedBy, long tokens, long atMillis);
+    }
+
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    // sequence held by each slot once published
+    private final AtomicLongArray published;
+    private final ClientKey[] clients;
+    private final String[] endpoints;
+    private final String[] deniedBy;
+    private final long[] tokens;
+    private final long[] atMillis;
+
+    DecisionRing(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size) - 1) << 1;
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.clients = new ClientKey[capacity];
+        this.endpoints = new String[capacity];
+        this.deniedBy = new String[capacity];
+        this.tokens = new long[capacity];
+        this.atMillis = new long[capacity];
+    }
+
+    /**
+     * @param deniedBy name of the limit that rejected the request, or {@code null} if it was admitted
+     * @return {@code false} if the ring was full and the decision dropped
+     */
+    boolean offer(ClientKey client, String endpoint, String deniedBy, long tokens, long atMillis) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() > mask) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        clients[slot] = client;
+        endpoints[slot] = endpoint;
+        this.deniedBy[slot] = deniedBy;
+        this.tokens[slot] = tokens;
+        this.atMillis[slot] = atMillis;
+        published.lazySet(slot, sequence);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code max} published decisions to the handler, in claim order. Only one thread
+     * may drain.
+     *
+     * @return decisions handed over
+     */
+    int drain(Handler handler, int max) {
+        long next = consumed.get();
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) next & mask;
+            if (published.get(slot) != next) {
+                break;
+            }
+            handler.onDecision(clients[slot], endpoints[slot], deniedBy[slot], tokens[slot], atMillis[slot]);
+            clients[slot] = null;
+            next++;
+            drained++;
+            // frees the slot for producers
+            consumed.lazySet(next);
+        }
+        return drained;
+    }
+
+    long backlog() {
+        return claimed.get() - consumed.get();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
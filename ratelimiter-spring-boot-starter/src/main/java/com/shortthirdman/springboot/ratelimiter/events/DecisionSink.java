@@ -0,0 +1,16 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of aggregated decisions. Called from the stream's consumer thread only, once per
+ * closed window, so implementations need not be thread-safe and may block.
+ */
+public interface DecisionSink {
+
+    void write(List<DecisionWindow> windows) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
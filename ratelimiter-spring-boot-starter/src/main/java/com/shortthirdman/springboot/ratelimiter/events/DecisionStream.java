@@ -0,0 +1,203 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Publishes every limiter decision to a {@link DecisionRing} and aggregates them on a background
+ * thread into per-client, per-endpoint {@link DecisionWindow}s, handed to the sink as each window
+ * closes. {@link #publish} never blocks or allocates; decisions that find the ring full are counted
+ * and dropped.
+ */
+@Slf4j
+public class DecisionStream {
+
+    static final String UNMATCHED = "UNMATCHED";
+    static final String OTHER_CLIENTS = "other";
+
+    private static final int BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final DecisionRing ring;
+    private final DecisionSink sink;
+    private final long windowMillis;
+    private final int maxKeysPerWindow;
+    private final LongSupplier wallClock;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    // window start -> client and endpoint -> counts; touched by the consumer thread only
+    private final Map<Long, Map<WindowKey, Counts>> windows = new HashMap<>();
+    private final DecisionRing.Handler aggregator = this::aggregate;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    public DecisionStream(DecisionEventProperties properties, DecisionSink sink, MeterRegistry registry) {
+        this(properties, sink, registry, System::currentTimeMillis, true);
+    }
+
+    DecisionStream(DecisionEventProperties properties, DecisionSink sink, MeterRegistry registry,
+                   LongSupplier wallClock, boolean start) {
+        if (properties.getWindow().toMillis() < 1) {
+            throw new IllegalArgumentException("Decision windows must be at least a millisecond");
+        }
+        this.ring = new DecisionRing(properties.getBufferSize());
+        this.sink = sink;
+        this.windowMillis = properties.getWindow().toMillis();
+        this.maxKeysPerWindow = Math.max(1, properties.getMaxKeysPerWindow());
+        this.wallClock = wallClock;
+        FunctionCounter.builder("rate_limit.events", published, LongAdder::sum)
+                .description("Limiter decisions handed to the event stream")
+                .tag("outcome", "published")
+                .register(registry);
+        FunctionCounter.builder("rate_limit.events", dropped, LongAdder::sum)
+                .description("Limiter decisions handed to the event stream")
+                .tag("outcome", "dropped")
+                .register(registry);
+        Gauge.builder("rate_limit.events.backlog", ring, DecisionRing::backlog)
+                .description("Decisions waiting for the consumer")
+                .register(registry);
+        this.consumer = Thread.ofPlatform().name("ratelimiter-decisions").daemon().unstarted(this::consume);
+        if (start) {
+            consumer.start();
+        }
+        log.info("Limiter decisions streamed to {} in {} windows, ring of {}",
+                sink.getClass().getSimpleName(), properties.getWindow(), ring.capacity());
+    }
+
+    /**
+     * Records one decision from a request thread.
+     *
+     * @param endpoint matched handler pattern, or {@code null}
+     * @param deniedBy name of the limit that rejected the request, or {@code null} if it was admitted
+     */
+    public void publish(ClientKey client, String endpoint, String deniedBy, long tokens) {
+        if (ring.offer(client, endpoint, deniedBy, tokens, wallClock.getAsLong())) {
+            published.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                if (poll() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (RuntimeException e) {
+                log.error("Decision stream consumer failed, continuing", e);
+            }
+        }
+    }
+
+    /**
+     * Drains one batch and writes the windows that have closed.
+     *
+     * @return decisions drained
+     */
+    int poll() {
+        int drained = ring.drain(aggregator, BATCH);
+        flush(wallClock.getAsLong());
+        return drained;
+    }
+
+    private void aggregate(ClientKey client, String endpoint, String deniedBy, long tokens, long atMillis) {
+        long start = atMillis - Math.floorMod(atMillis, windowMillis);
+        Map<WindowKey, Counts> window = windows.computeIfAbsent(start, s -> new HashMap<>());
+        String clientName = client == null ? OTHER_CLIENTS : client.toString();
+        WindowKey key = new WindowKey(clientName, endpoint == null ? UNMATCHED : endpoint);
+        Counts counts = window.get(key);
+        if (counts == null) {
+            if (window.size() >= maxKeysPerWindow) {
+                key = new WindowKey(OTHER_CLIENTS, key.endpoint());
+            }
+            counts = window.computeIfAbsent(key, k -> new Counts());
+        }
+        if (deniedBy == null) {
+            counts.allowed++;
+            counts.tokens += tokens;
+        } else {
+            counts.denied++;
+            counts.deniedBy.merge(deniedBy, 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Writes every window that ended before {@code nowMillis}.
+     */
+    private void flush(long nowMillis) {
+        Iterator<Map.Entry<Long, Map<WindowKey, Counts>>> iterator = windows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Map<WindowKey, Counts>> window = iterator.next();
+            long start = window.getKey();
+            if (start + windowMillis > nowMillis) {
+                continue;
+            }
+            iterator.remove();
+            write(start, window.getValue());
+        }
+    }
+
+    private void write(long start, Map<WindowKey, Counts> window) {
+        List<DecisionWindow> rows = new ArrayList<>(window.size());
+        window.forEach((key, counts) -> rows.add(new DecisionWindow(start, start + windowMillis, key.client(),
+                key.endpoint(), counts.allowed, counts.denied, counts.tokens, Map.copyOf(counts.deniedBy))));
+        try {
+            sink.write(rows);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Dropped {} decision windows the sink could not take", rows.size(), e);
+        }
+    }
+
+    /**
+     * Stops the consumer, then writes what is left, including the window still open.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (consumer.isAlive()) {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        int drained;
+        do {
+            drained = ring.drain(aggregator, BATCH);
+        } while (drained > 0);
+        flush(Long.MAX_VALUE);
+        try {
+            sink.close();
+        } catch (IOException e) {
+            log.warn("Could not close the decision sink", e);
+        }
+    }
+
+    private record WindowKey(String client, String endpoint) {
+    }
+
+    private static final class Counts {
+
+        private long allowed;
+        private long denied;
+        private long tokens;
+        private final Map<String, Long> deniedBy = new LinkedHashMap<>(4);
+    }
+}
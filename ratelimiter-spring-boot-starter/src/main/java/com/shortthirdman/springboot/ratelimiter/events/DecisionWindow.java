@@ -0,0 +1,14 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import java.util.Map;
+
+/**
+ * Decisions for one client and endpoint during one window.
+ *
+ * @param endpoint matched handler pattern, or {@code UNMATCHED}
+ * @param tokens   tokens charged to admitted requests, at their estimated cost
+ * @param deniedBy rejections by the name of the limit that rejected
+ */
+public record DecisionWindow(long startMillis, long endMillis, String client, String endpoint, long allowed,
+                             long denied, long tokens, Map<String, Long> deniedBy) {
+}
@@ -0,0 +1,24 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Writes one line per window to the {@code ratelimiter.decisions} logger, so an appender can route
+ * them apart from the application log.
+ */
+public class LogDecisionSink implements DecisionSink {
+
+    private static final Logger log = LoggerFactory.getLogger("ratelimiter.decisions");
+
+    @Override
+    public void write(List<DecisionWindow> windows) {
+        for (DecisionWindow window : windows) {
+            log.info("window={} client={} endpoint={} allowed={} denied={} tokens={} deniedBy={}",
+                    window.startMillis(), window.client(), window.endpoint(), window.allowed(), window.denied(),
+                    window.tokens(), window.deniedBy());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends windows as JSON lines to a local file. Once it reaches {@code maxBytes} the file is
+ * rolled to {@code .1}, older ones shift up, and those beyond {@code maxHistory} are deleted.
+ */
+public class RollingFileDecisionSink implements DecisionSink {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path path;
+    private final long maxBytes;
+    private final int maxHistory;
+    private BufferedWriter writer;
+    private long size;
+
+    public RollingFileDecisionSink(Path path, long maxBytes, int maxHistory) {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.maxHistory = Math.max(0, maxHistory);
+    }
+
+    @Override
+    public void write(List<DecisionWindow> windows) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        for (DecisionWindow window : windows) {
+            String line = mapper.writeValueAsString(window);
+            writer.write(line);
+            writer.newLine();
+            size += line.length() + 1;
+        }
+        writer.flush();
+        if (size >= maxBytes) {
+            roll();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        size = Files.size(path);
+    }
+
+    private void roll() throws IOException {
+        close();
+        if (maxHistory == 0) {
+            Files.delete(path);
+            return;
+        }
+        Files.deleteIfExists(rolled(maxHistory));
+        for (int i = maxHistory - 1; i >= 1; i--) {
+            if (Files.exists(rolled(i))) {
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rolled(int generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+}
@@ -0,0 +1,86 @@
+package com.shortthirdman.springboot.ratelimiter.filter;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.web.RateLimitResponses;
+import io.github.bucket4j.ConsumptionProbe;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.security.Principal;
+import java.time.Duration;
+
+/**
+ * Reactive adapter for {@link DynamicRateLimiter}. Consumption never blocks the event loop;
+ * with a wait budget configured a rejected request is retried after the refill delay instead.
+ */
+public class DynamicRateLimitWebFilter implements WebFilter {
+
+    private final DynamicRateLimiter rateLimiter;
+    private final ClientKeyResolver keyResolver;
+    private final PathPattern pathPattern;
+
+    public DynamicRateLimitWebFilter(DynamicRateLimiter rateLimiter, ClientKeyResolver keyResolver, String pathPattern) {
+        this.rateLimiter = rateLimiter;
+        this.keyResolver = keyResolver;
+        this.pathPattern = PathPatternParser.defaultInstance.parse(pathPattern);
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!pathPattern.matches(request.getPath().pathWithinApplication())) {
+            return chain.filter(exchange);
+        }
+
+        // handler mapping runs after web filters, so there is no matched pattern yet; raw paths would
+        // give every distinct URL its own timer, so these are all recorded under the unmatched tag
+        String method = request.getMethod().name();
+        long startNanos = rateLimiter.startRequest();
+        long deadline = System.nanoTime() + rateLimiter.getMaxWaitNanos();
+        // the principal is only available asynchronously, so it is looked up only when keys need it
+        Mono<ClientKey> clientKey = keyResolver.usesUser()
+                ? exchange.getPrincipal().map(Principal::getName).defaultIfEmpty("")
+                        .map(user -> keyResolver.resolve(request, user.isEmpty() ? null : user))
+                : Mono.just(keyResolver.resolve(request, null));
+
+        return clientKey.flatMap(key -> acquire(key, deadline)).flatMap(probe -> {
+            rateLimiter.completeRequest(startNanos, null, method, probe);
+            if (probe.isConsumed()) {
+                RateLimitResponses.addHeaders(exchange.getResponse().getHeaders(),
+                        rateLimiter.getRateLimitConfig().getLimit(), probe);
+                if (!rateLimiter.isConcurrencyLimited()) {
+                    return chain.filter(exchange);
+                }
+                return chain.filter(exchange).doFinally(signal -> rateLimiter.releasePermit(startNanos,
+                        signal == SignalType.ON_ERROR || isServerError(exchange.getResponse())));
+            }
+            return RateLimitResponses.reject(exchange.getResponse(), rateLimiter.getRateLimitConfig().getLimit(), probe);
+        });
+    }
+
+    private Mono<ConsumptionProbe> acquire(ClientKey clientKey, long deadline) {
+        return Mono.defer(() -> {
+            ConsumptionProbe probe = rateLimiter.tryConsume(clientKey);
+            long waitNanos = probe.getNanosToWaitForRefill();
+            if (probe.isConsumed() || System.nanoTime() + waitNanos - deadline > 0) {
+                return Mono.just(rateLimiter.acquirePermit(clientKey, 1, probe));
+            }
+            return Mono.delay(Duration.ofNanos(waitNanos)).then(acquire(clientKey, deadline));
+        });
+    }
+
+    private boolean isServerError(ServerHttpResponse response) {
+        return response.getStatusCode() != null && response.getStatusCode().is5xxServerError();
+    }
+}
@@ -0,0 +1,324 @@
+package com.shortthirdman.springboot.ratelimiter.interceptor;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.distributed.DistributedBucket;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionStream;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityAdmission;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityClass;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetRule;
+import com.shortthirdman.springboot.ratelimiter.web.RateLimitResponses;
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Optional;
+
+/**
+ * Evaluates every limit that applies to a request in one pass: the client's networks, the endpoint
+ * and plan policies, the dynamic per-client limit, the priority pool and finally the global bucket,
+ * so the shared pool and bucket are only contended by requests everything else admitted. Denied
+ * and over-limit networks are shed before any per-client bucket is created. A request is charged
+ * only if every limit admits it; when a later limit rejects, the tokens taken by the earlier ones
+ * are returned. Headers describe the limit closest to exhaustion and are written once.
+ * <p>
+ * Each limit is charged the request's estimated cost in tokens. When costs are corrected to
+ * handler time, the difference is refunded or charged once the request completes.
+ */
+public class CompositeRateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = CompositeRateLimitInterceptor.class.getName() + ".PERMIT";
+    private static final String CHARGE_ATTRIBUTE = CompositeRateLimitInterceptor.class.getName() + ".CHARGE";
+
+    private static final ConsumptionProbe UNLIMITED = ConsumptionProbe.consumed(Long.MAX_VALUE, 0);
+
+    private static final int SUBNET = 0;
+    private static final int ENDPOINT = 1;
+    private static final int PLAN = 2;
+    private static final int DYNAMIC = 3;
+    private static final int PRIORITY = 4;
+
+    // names of the limits that are not policies, as reported in decision events
+    private static final String DENIED = "subnet:deny";
+    private static final String DYNAMIC_LIMIT = "dynamic";
+    private static final String PRIORITY_POOL = "priority";
+    private static final String GLOBAL_BUCKET = "global";
+
+    private final DynamicRateLimiter rateLimiter;
+    private final RateLimitPolicyRegistry policies;
+    private final SubnetLimiter subnets;
+    private final ClientKeyResolver keyResolver;
+    private final RequestCostEstimator costs;
+    private final PriorityAdmission priorities;
+    private final StripedBucket globalBucket;
+    private final DistributedBucket distributedBucket;
+    private final long globalCapacity;
+    private final HeavyHitters heavyHitters;
+    private final DecisionStream decisions;
+
+    public CompositeRateLimitInterceptor(DynamicRateLimiter rateLimiter, RateLimitPolicyRegistry policies,
+                                         SubnetLimiter subnets, ClientKeyResolver keyResolver, RequestCostEstimator costs,
+                                         Optional<PriorityAdmission> priorities, StripedBucket globalBucket,
+                                         Optional<DistributedBucket> distributedBucket, BucketSpec globalBucketSpec,
+                                         HeavyHitters heavyHitters, Optional<DecisionStream> decisions) {
+        this.rateLimiter = rateLimiter;
+        this.policies = policies;
+        this.subnets = subnets;
+        this.keyResolver = keyResolver;
+        this.costs = costs;
+        this.priorities = priorities.orElse(null);
+        this.globalBucket = globalBucket;
+        this.distributedBucket = distributedBucket.orElse(null);
+        this.globalCapacity = globalBucketSpec.getCapacity();
+        this.heavyHitters = heavyHitters;
+        this.decisions = decisions.orElse(null);
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = request.getMethod();
+
+        long startNanos = rateLimiter.startRequest();
+        ConsumptionProbe outcome = null;
+        ClientKey decidedFor = null;
+        String deniedBy = null;
+        long charged = 0;
+        try {
+            ClientKey address = keyResolver.resolveAddress(request);
+            decidedFor = address;
+            SubnetRule subnet = subnets.match(address);
+            if (subnet.isDenied()) {
+                deniedBy = DENIED;
+                RateLimitResponses.deny(response);
+                return false;
+            }
+            if (subnet.isAllowed()) {
+                outcome = UNLIMITED;
+                return true;
+            }
+
+            long cost = costs.estimate(request, handler);
+            charged = cost;
+            PriorityClass priority = null;
+            ConsumptionProbe tightest = null;
+            long tightestLimit = 0;
+            ConsumptionProbe probe;
+
+            for (int level = 0; level < subnet.levels(); level++) {
+                RateLimitPolicy policy = subnet.policy(level);
+                probe = policy.tryConsumeAndReturnRemaining(subnet.key(level, address), policy.charge(cost));
+                if (!probe.isConsumed()) {
+                    subnets.refund(subnet, level, address, cost);
+                    outcome = probe;
+                    deniedBy = policy.getName();
+                    RateLimitResponses.reject(response, policy.getCapacity(), probe);
+                    return false;
+                }
+                if (tightest == null || probe.getRemainingTokens() < tightest.getRemainingTokens()) {
+                    tightest = probe;
+                    tightestLimit = policy.getCapacity();
+                }
+            }
+
+            String apiKey = request.getHeader(policies.getApiKeyHeader());
+            int plan = policies.resolvePlan(apiKey);
+            // plans belong to configured API keys, anyone else shares their address's quota
+            ClientKey client = keyResolver.resolve(request, address);
+            heavyHitters.record(client, cost);
+            decidedFor = client;
+            ClientKey subject = policies.isKnownApiKey(apiKey) ? ClientKey.named(apiKey) : address;
+            RateLimitPolicy endpointPolicy = handler instanceof HandlerMethod handlerMethod
+                    ? policies.endpointPolicy(handlerMethod, plan) : null;
+            RateLimitPolicy planPolicy = policies.planPolicy(plan);
+
+            if (endpointPolicy != null) {
+                probe = endpointPolicy.tryConsumeAndReturnRemaining(subject, endpointPolicy.charge(cost));
+                if (!probe.isConsumed()) {
+                    rollBack(SUBNET, cost, subnet, address, endpointPolicy, planPolicy, subject, client, priority);
+                    outcome = probe;
+                    deniedBy = endpointPolicy.getName();
+                    RateLimitResponses.reject(response, endpointPolicy.getCapacity(), probe);
+                    return false;
+                }
+                if (tightest == null || probe.getRemainingTokens() < tightest.getRemainingTokens()) {
+                    tightest = probe;
+                    tightestLimit = endpointPolicy.getCapacity();
+                }
+            }
+
+            if (planPolicy != null) {
+                probe = planPolicy.tryConsumeAndReturnRemaining(subject, planPolicy.charge(cost));
+                if (!probe.isConsumed()) {
+                    rollBack(ENDPOINT, cost, subnet, address, endpointPolicy, planPolicy, subject, client, priority);
+                    outcome = probe;
+                    deniedBy = planPolicy.getName();
+                    RateLimitResponses.reject(response, planPolicy.getCapacity(), probe);
+                    return false;
+                }
+                if (tightest == null || probe.getRemainingTokens() < tightest.getRemainingTokens()) {
+                    tightest = probe;
+                    tightestLimit = planPolicy.getCapacity();
+                }
+            }
+
+            probe = rateLimiter.consume(client, cost);
+            if (!probe.isConsumed()) {
+                rollBack(PLAN, cost, subnet, address, endpointPolicy, planPolicy, subject, client, priority);
+                outcome = probe;
+                deniedBy = DYNAMIC_LIMIT;
+                RateLimitResponses.reject(response, rateLimiter.getRateLimitConfig().getLimit(), probe);
+                return false;
+            }
+            if (tightest == null || probe.getRemainingTokens() < tightest.getRemainingTokens()) {
+                tightest = probe;
+                tightestLimit = rateLimiter.getRateLimitConfig().getLimit();
+            }
+
+            if (priorities != null) {
+                priority = priorities.resolve(plan, request.getHeader(priorities.getHeader()));
+                probe = priorities.acquire(priority, priorities.charge(priority, cost));
+                if (!probe.isConsumed()) {
+                    rollBack(DYNAMIC, cost, subnet, address, endpointPolicy, planPolicy, subject, client, priority);
+                    outcome = probe;
+                    deniedBy = PRIORITY_POOL;
+                    RateLimitResponses.reject(response, priorities.getCapacity(), probe);
+                    return false;
+                }
+                if (probe.getRemainingTokens() < tightest.getRemainingTokens()) {
+                    tightest = probe;
+                    tightestLimit = priorities.getCapacity();
+                }
+            }
+
+            long globalCost = Math.min(cost, globalCapacity);
+            probe = distributedBucket != null
+                    ? distributedBucket.tryConsumeAndReturnRemaining(globalCost)
+                    : globalBucket.tryConsumeAndReturnRemaining(globalCost);
+            if (!probe.isConsumed()) {
+                rollBack(PRIORITY, cost, subnet, address, endpointPolicy, planPolicy, subject, client, priority);
+                outcome = probe;
+                deniedBy = GLOBAL_BUCKET;
+                RateLimitResponses.reject(response, globalCapacity, probe);
+                return false;
+            }
+            if (probe.getRemainingTokens() < tightest.getRemainingTokens()) {
+                tightest = probe;
+                tightestLimit = globalCapacity;
+            }
+
+            if (rateLimiter.isConcurrencyLimited()) {
+                request.setAttribute(PERMIT_ATTRIBUTE, startNanos);
+            }
+            if (costs.isCorrecting()) {
+                request.setAttribute(CHARGE_ATTRIBUTE,
+                        new Charge(cost, System.nanoTime(), subnet, address, endpointPolicy, planPolicy, subject, client,
+                                priority));
+            }
+            RateLimitResponses.addHeaders(response, tightestLimit, tightest);
+            outcome = tightest;
+            return true;
+        } finally {
+            rateLimiter.completeRequest(startNanos, pattern, method, outcome);
+            if (decisions != null && (outcome != null || deniedBy != null)) {
+                decisions.publish(decidedFor, pattern, deniedBy, charged);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        Object startNanos = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (startNanos != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            rateLimiter.releasePermit((Long) startNanos, ex != null || response.getStatus() >= 500);
+        }
+        Object charge = request.getAttribute(CHARGE_ATTRIBUTE);
+        if (charge != null) {
+            request.removeAttribute(CHARGE_ATTRIBUTE);
+            correct((Charge) charge);
+        }
+    }
+
+    /**
+     * Reprices a finished request by its handler time: positive differences are charged on top,
+     * possibly into debt, negative ones returned to every limit that took the estimate. Each limit
+     * caps both costs at its capacity, as it did on admission.
+     */
+    private void correct(Charge charge) {
+        long estimated = charge.cost();
+        long measured = costs.measuredCost(System.nanoTime() - charge.admittedAt());
+        if (measured == estimated) {
+            return;
+        }
+        subnets.reprice(charge.subnet(), charge.address(), estimated, measured);
+        reprice(charge.endpointPolicy(), charge.subject(), estimated, measured);
+        reprice(charge.planPolicy(), charge.subject(), estimated, measured);
+        rateLimiter.reprice(charge.client(), estimated, measured);
+        if (charge.priority() != null) {
+            long delta = priorities.charge(charge.priority(), measured) - priorities.charge(charge.priority(), estimated);
+            if (delta > 0) {
+                priorities.removeTokens(delta);
+            } else if (delta < 0) {
+                priorities.refund(-delta);
+            }
+        }
+        long delta = Math.min(measured, globalCapacity) - Math.min(estimated, globalCapacity);
+        if (delta == 0) {
+            return;
+        }
+        if (distributedBucket != null) {
+            if (delta > 0) {
+                distributedBucket.removeTokens(delta);
+            } else {
+                distributedBucket.addTokens(-delta);
+            }
+        } else if (delta > 0) {
+            globalBucket.consumeIgnoringRateLimits(delta);
+        } else {
+            globalBucket.addTokens(-delta);
+        }
+    }
+
+    private static void reprice(RateLimitPolicy policy, ClientKey key, long estimated, long measured) {
+        if (policy != null) {
+            policy.reprice(key, estimated, measured);
+        }
+    }
+
+    private void rollBack(int admittedUpTo, long cost, SubnetRule subnet, ClientKey address,
+                          RateLimitPolicy endpointPolicy, RateLimitPolicy planPolicy, ClientKey subject,
+                          ClientKey client, PriorityClass priority) {
+        if (admittedUpTo >= PRIORITY && priority != null) {
+            priorities.refund(priorities.charge(priority, cost));
+        }
+        if (admittedUpTo >= DYNAMIC) {
+            rateLimiter.refund(client, cost);
+        }
+        if (admittedUpTo >= PLAN && planPolicy != null) {
+            planPolicy.addTokens(subject, planPolicy.charge(cost));
+        }
+        if (admittedUpTo >= ENDPOINT && endpointPolicy != null) {
+            endpointPolicy.addTokens(subject, endpointPolicy.charge(cost));
+        }
+        subnets.refund(subnet, subnet.levels(), address, cost);
+    }
+
+    private record Charge(long cost, long admittedAt, SubnetRule subnet, ClientKey address,
+                          RateLimitPolicy endpointPolicy, RateLimitPolicy planPolicy, ClientKey subject,
+                          ClientKey client, PriorityClass priority) {
+    }
+}
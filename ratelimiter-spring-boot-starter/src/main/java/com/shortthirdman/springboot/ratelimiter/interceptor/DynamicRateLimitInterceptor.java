@@ -0,0 +1,56 @@
+package com.shortthirdman.springboot.ratelimiter.interceptor;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.web.RateLimitResponses;
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+@RequiredArgsConstructor
+public class DynamicRateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = DynamicRateLimitInterceptor.class.getName() + ".PERMIT";
+
+    private final DynamicRateLimiter rateLimiter;
+    private final ClientKeyResolver keyResolver;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = request.getMethod();
+
+        long startNanos = rateLimiter.startRequest();
+        ConsumptionProbe probe = null;
+        try {
+            probe = rateLimiter.consume(keyResolver.resolve(request));
+
+            if (probe.isConsumed()) {
+                if (rateLimiter.isConcurrencyLimited()) {
+                    request.setAttribute(PERMIT_ATTRIBUTE, startNanos);
+                }
+                RateLimitResponses.addHeaders(response, rateLimiter.getRateLimitConfig().getLimit(), probe);
+                return true;
+            }
+
+            RateLimitResponses.reject(response, rateLimiter.getRateLimitConfig().getLimit(), probe);
+            return false;
+        } finally {
+            rateLimiter.completeRequest(startNanos, pattern, method, probe);
+        }
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        Object startNanos = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (startNanos != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            rateLimiter.releasePermit((Long) startNanos, ex != null || response.getStatus() >= 500);
+        }
+    }
+}
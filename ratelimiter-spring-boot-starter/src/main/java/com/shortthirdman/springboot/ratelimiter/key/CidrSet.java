@@ -0,0 +1,62 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import java.util.Collection;
+
+/**
+ * A small set of CIDR blocks matched by masking, for lists such as trusted proxies. IPv4 blocks
+ * are stored in their IPv4-mapped form, so they match addresses from either notation.
+ */
+public final class CidrSet {
+
+    private final long[] highs;
+    private final long[] lows;
+    private final long[] highMasks;
+    private final long[] lowMasks;
+
+    private CidrSet(int size) {
+        this.highs = new long[size];
+        this.lows = new long[size];
+        this.highMasks = new long[size];
+        this.lowMasks = new long[size];
+    }
+
+    /**
+     * @throws IllegalArgumentException for an entry that is not an address or {@code address/prefix}
+     */
+    public static CidrSet parse(Collection<String> blocks) {
+        CidrSet set = new CidrSet(blocks.size());
+        int i = 0;
+        for (String block : blocks) {
+            set.add(i++, block);
+        }
+        return set;
+    }
+
+    public boolean contains(ClientKey key) {
+        return key.hasAddress() && contains(key.high(), key.low());
+    }
+
+    boolean contains(long high, long low) {
+        for (int i = 0; i < highs.length; i++) {
+            if ((high & highMasks[i]) == highs[i] && (low & lowMasks[i]) == lows[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return highs.length == 0;
+    }
+
+    private void add(int index, String block) {
+        IpAddress address = new IpAddress();
+        int bits = address.parseBlock(block);
+        long highMask = IpAddress.highMask(bits);
+        long lowMask = IpAddress.lowMask(bits);
+        highMasks[index] = highMask;
+        lowMasks[index] = lowMask;
+        highs[index] = address.high & highMask;
+        lows[index] = address.low & lowMask;
+    }
+}
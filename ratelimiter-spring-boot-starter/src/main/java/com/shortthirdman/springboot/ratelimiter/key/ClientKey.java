@@ -0,0 +1,178 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Identity a client is rate limited by: a 128-bit address, a name such as an API key or user id,
+ * or both. Addresses are two {@code long}s rather than a String, so a key costs one small object,
+ * and hashing and comparing it in a cache is a handful of arithmetic operations instead of a
+ * walk over characters.
+ */
+public final class ClientKey {
+
+    private final long high;
+    private final long low;
+    private final String name;
+    private final boolean hasAddress;
+
+    private ClientKey(long high, long low, String name, boolean hasAddress) {
+        this.high = high;
+        this.low = low;
+        this.name = name;
+        this.hasAddress = hasAddress;
+    }
+
+    public static ClientKey ofAddress(long high, long low) {
+        return new ClientKey(high, low, null, true);
+    }
+
+    public static ClientKey ofIpv4(int address) {
+        return ofAddress(0, IpAddress.IPV4_MAPPED | (address & 0xffff_ffffL));
+    }
+
+    public static ClientKey named(String name) {
+        return new ClientKey(0, 0, name, false);
+    }
+
+    static ClientKey of(IpAddress address) {
+        return ofAddress(address.high, address.low);
+    }
+
+    public static ClientKey of(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return ofIpv4((bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | bytes[3] & 0xff);
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = high << 8 | bytes[i] & 0xff;
+            low = low << 8 | bytes[i + 8] & 0xff;
+        }
+        return ofAddress(high, low);
+    }
+
+    /**
+     * Key for an address literal, or a named key for any other id.
+     */
+    public static ClientKey of(String clientId) {
+        IpAddress address = new IpAddress();
+        return address.parse(clientId) ? ofAddress(address.high, address.low) : named(clientId);
+    }
+
+    /**
+     * Adds a name to an address key, for limits per address and API key or user.
+     */
+    public ClientKey withName(String name) {
+        return new ClientKey(high, low, name, hasAddress);
+    }
+
+    /**
+     * Key of the network containing this address: its first {@code ipv4Bits} if it is an IPv4
+     * address, otherwise its first {@code ipv6Bits}. The name is dropped.
+     */
+    public ClientKey network(int ipv4Bits, int ipv6Bits) {
+        return network(high == 0 && (low & ~0xffff_ffffL) == IpAddress.IPV4_MAPPED ? 96 + ipv4Bits : ipv6Bits);
+    }
+
+    /**
+     * Key of the network of the first {@code bits} of the 128-bit address, IPv4 counted as IPv4-mapped.
+     */
+    public ClientKey network(int bits) {
+        return ofAddress(high & IpAddress.highMask(bits), low & IpAddress.lowMask(bits));
+    }
+
+    public boolean hasAddress() {
+        return hasAddress;
+    }
+
+    public long high() {
+        return high;
+    }
+
+    public long low() {
+        return low;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Well-mixed 64-bit hash, never 0, stable across restarts.
+     */
+    public long fingerprint() {
+        long h = hasAddress ? mix(high ^ mix(low)) : 0;
+        if (name != null) {
+            // FNV-1a over the UTF-16 chars
+            long n = 0xcbf29ce484222325L;
+            for (int i = 0; i < name.length(); i++) {
+                n ^= name.charAt(i);
+                n *= 0x100000001b3L;
+            }
+            h = mix(h * 31 + n);
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Estimated heap of the key beyond the fixed-size object, for cache weighing.
+     */
+    public int extraBytes() {
+        return name == null ? 0 : 40 + name.length();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ClientKey other && high == other.high && low == other.low
+                && hasAddress == other.hasAddress
+                && (name == null ? other.name == null : name.equals(other.name));
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Long.hashCode(high * 31 + low);
+        return name == null ? h : h * 31 + name.hashCode();
+    }
+
+    /**
+     * The address in its usual text form, followed by the name if any. Used where a String key
+     * is needed, such as the distributed store.
+     */
+    @Override
+    public String toString() {
+        if (!hasAddress) {
+            return name;
+        }
+        String address = formatAddress();
+        return name == null ? address : address + "|" + name;
+    }
+
+    private String formatAddress() {
+        if (high == 0 && (low & ~0xffff_ffffL) == IpAddress.IPV4_MAPPED) {
+            return ((low >>> 24) & 0xff) + "." + ((low >>> 16) & 0xff) + "." + ((low >>> 8) & 0xff) + "." + (low & 0xff);
+        }
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        try {
+            return Inet6Address.getByAddress(null, bytes, -1).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long mix(long h) {
+        // murmur3 finalizer
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
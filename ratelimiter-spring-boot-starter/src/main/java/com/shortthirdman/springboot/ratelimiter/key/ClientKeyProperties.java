@@ -0,0 +1,28 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How clients are identified for the dynamic per-client limit.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.client-key")
+public class ClientKeyProperties {
+
+    public enum Part {
+        IP, API_KEY, USER
+    }
+
+    // combined into one key; callers without a configured API key or a user fall back to their address
+    private List<Part> parts = new ArrayList<>(List.of(Part.IP));
+
+    // X-Forwarded-For, or Forwarded for RFC 7239 elements such as for="[2001:db8::1]:80";proto=https
+    private String forwardingHeader = "X-Forwarded-For";
+
+    // only these peers may name the client in Forwarded / X-Forwarded-For; list the proxies in front of the application
+    private List<String> trustedProxies = new ArrayList<>(List.of("127.0.0.0/8", "::1/128"));
+}
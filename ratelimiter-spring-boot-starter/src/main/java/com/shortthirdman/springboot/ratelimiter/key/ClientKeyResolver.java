@@ -0,0 +1,208 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Derives {@link ClientKey}s from requests. The client address is the peer address unless the
+ * peer is a trusted proxy, in which case the forwarding header ({@code X-Forwarded-For} or RFC 7239
+ * {@code Forwarded}) is walked from the right past further trusted proxies to the first address
+ * they vouch for. Headers are scanned in place: no splitting, trimming or substrings. Only API keys
+ * listed under {@code ratelimiter.policy.api-keys} name a client; any other value is ignored.
+ */
+@Slf4j
+public class ClientKeyResolver {
+
+    private static final String FORWARDED = "Forwarded";
+    private static final ClientKey UNKNOWN = ClientKey.named("unknown");
+
+    private final CidrSet trustedProxies;
+    private final String forwardingHeader;
+    private final boolean forwarded;
+    private final boolean useAddress;
+    private final boolean useApiKey;
+    private final boolean useUser;
+    private final String apiKeyHeader;
+    private final Set<String> apiKeys;
+
+    public ClientKeyResolver(ClientKeyProperties properties, RateLimitPolicyProperties policyProperties) {
+        this.trustedProxies = CidrSet.parse(properties.getTrustedProxies());
+        this.forwardingHeader = properties.getForwardingHeader();
+        this.forwarded = FORWARDED.equalsIgnoreCase(forwardingHeader);
+        this.useAddress = properties.getParts().contains(ClientKeyProperties.Part.IP);
+        this.useApiKey = properties.getParts().contains(ClientKeyProperties.Part.API_KEY);
+        this.useUser = properties.getParts().contains(ClientKeyProperties.Part.USER);
+        this.apiKeyHeader = policyProperties.getApiKeyHeader();
+        this.apiKeys = Set.copyOf(policyProperties.getApiKeys().keySet());
+        log.info("Client keys from {}, {} from {} trusted proxy blocks", properties.getParts(), forwardingHeader,
+                properties.getTrustedProxies().size());
+    }
+
+    /**
+     * Key for the configured combination of address, API key and user.
+     */
+    public ClientKey resolve(HttpServletRequest request) {
+        return resolve(request, null);
+    }
+
+    /**
+     * Like {@link #resolve(HttpServletRequest)}, reusing the result of {@link #resolveAddress} if the caller has it.
+     */
+    public ClientKey resolve(HttpServletRequest request, ClientKey address) {
+        String name = name(useApiKey ? knownApiKey(request.getHeader(apiKeyHeader)) : null,
+                useUser ? request.getRemoteUser() : null);
+        if (name != null && !useAddress) {
+            return ClientKey.named(name);
+        }
+        ClientKey key = address != null ? address : resolveAddress(request);
+        return name == null ? key : key.withName(name);
+    }
+
+    /**
+     * Reactive variant; the caller supplies the user, which WebFlux only exposes asynchronously.
+     */
+    public ClientKey resolve(ServerHttpRequest request, String user) {
+        String name = name(useApiKey ? knownApiKey(request.getHeaders().getFirst(apiKeyHeader)) : null,
+                useUser ? user : null);
+        if (name != null && !useAddress) {
+            return ClientKey.named(name);
+        }
+        IpAddress address = address(request);
+        ClientKey key = address == null ? UNKNOWN : ClientKey.of(address);
+        return name == null ? key : key.withName(name);
+    }
+
+    /**
+     * Key for the client address alone.
+     */
+    public ClientKey resolveAddress(HttpServletRequest request) {
+        IpAddress address = address(request);
+        return address == null ? UNKNOWN : ClientKey.of(address);
+    }
+
+    public boolean usesUser() {
+        return useUser;
+    }
+
+    private IpAddress address(HttpServletRequest request) {
+        IpAddress client = new IpAddress();
+        if (!client.parse(request.getRemoteAddr())) {
+            return null;
+        }
+        if (trustedProxies.isEmpty() || !trustedProxies.contains(client.high, client.low)) {
+            return client;
+        }
+        Enumeration<String> values = request.getHeaders(forwardingHeader);
+        if (values == null || !values.hasMoreElements()) {
+            return client;
+        }
+        String first = values.nextElement();
+        if (!values.hasMoreElements()) {
+            walk(first, client);
+            return client;
+        }
+        // several header lines form one list, walked from the last line backwards
+        List<String> lines = new ArrayList<>();
+        lines.add(first);
+        while (values.hasMoreElements()) {
+            lines.add(values.nextElement());
+        }
+        walk(lines, client);
+        return client;
+    }
+
+    private IpAddress address(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null || remote.getAddress() == null) {
+            return null;
+        }
+        ClientKey peer = ClientKey.of(remote.getAddress());
+        IpAddress client = new IpAddress();
+        client.set(peer.high(), peer.low());
+        if (trustedProxies.isEmpty() || !trustedProxies.contains(client.high, client.low)) {
+            return client;
+        }
+        List<String> lines = request.getHeaders().get(forwardingHeader);
+        if (lines != null) {
+            walk(lines, client);
+        }
+        return client;
+    }
+
+    private void walk(List<String> lines, IpAddress client) {
+        int i = lines.size() - 1;
+        while (i >= 0 && walk(lines.get(i), client)) {
+            i--;
+        }
+    }
+
+    /**
+     * Moves {@code client} right to left through one header line.
+     *
+     * @return {@code true} if every hop in the line was a trusted proxy, so earlier lines are walked too
+     */
+    private boolean walk(String line, IpAddress client) {
+        int end = line.length();
+        while (end > 0) {
+            int comma = line.lastIndexOf(',', end - 1);
+            int start = comma + 1;
+            boolean parsed = forwarded ? parseForwardedElement(line, start, end, client) : client.parseHop(line, start, end);
+            if (!parsed) {
+                // an obfuscated or malformed hop: the last trusted proxy is as close to the client as we get
+                return false;
+            }
+            if (!trustedProxies.contains(client.high, client.low)) {
+                return false;
+            }
+            end = comma < 0 ? 0 : comma;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the {@code for=} pair of an RFC 7239 element such as {@code for="[2001:db8::1]:80";proto=https}.
+     */
+    private static boolean parseForwardedElement(String line, int start, int end, IpAddress hop) {
+        int pairStart = start;
+        while (pairStart < end) {
+            int pairEnd = IpAddress.indexOf(line, ';', pairStart, end);
+            if (pairEnd < 0) {
+                pairEnd = end;
+            }
+            int i = pairStart;
+            while (i < pairEnd && IpAddress.isSpace(line.charAt(i))) {
+                i++;
+            }
+            if (pairEnd - i > 4 && line.regionMatches(true, i, "for", 0, 3)) {
+                int equals = i + 3;
+                while (equals < pairEnd && IpAddress.isSpace(line.charAt(equals))) {
+                    equals++;
+                }
+                if (equals < pairEnd && line.charAt(equals) == '=') {
+                    return hop.parseHop(line, equals + 1, pairEnd);
+                }
+            }
+            pairStart = pairEnd + 1;
+        }
+        return false;
+    }
+
+    private String knownApiKey(String apiKey) {
+        return apiKey != null && apiKeys.contains(apiKey) ? apiKey : null;
+    }
+
+    private static String name(String apiKey, String user) {
+        if (apiKey == null) {
+            return user;
+        }
+        return user == null ? apiKey : apiKey + '\n' + user;
+    }
+}
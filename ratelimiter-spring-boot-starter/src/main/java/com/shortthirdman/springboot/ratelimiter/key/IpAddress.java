@@ -0,0 +1,264 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+/**
+ * Mutable 128-bit address a parser writes into, so parsing a header needs no substrings or arrays.
+ * IPv4 addresses are held in their IPv4-mapped IPv6 form ({@code ::ffff:a.b.c.d}), so both
+ * notations of the same client produce the same key.
+ */
+final class IpAddress {
+
+    static final long IPV4_MAPPED = 0xffffL << 32;
+
+    long high;
+    long low;
+
+    void set(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    boolean isIpv4() {
+        return high == 0 && (low & ~0xffff_ffffL) == IPV4_MAPPED;
+    }
+
+    /**
+     * Parses {@code address} or {@code address/prefix}. IPv4 prefixes count from bit 96 of the
+     * mapped address, so {@code 10.0.0.0/8} becomes a 104-bit prefix.
+     *
+     * @return the prefix length in bits of the 128-bit address
+     * @throws IllegalArgumentException if the text is not a CIDR block
+     */
+    int parseBlock(String block) {
+        block = block.trim();
+        int slash = block.indexOf('/');
+        if (!parse(slash < 0 ? block : block.substring(0, slash))) {
+            throw new IllegalArgumentException("Not a CIDR block: " + block);
+        }
+        int maxPrefix = isIpv4() && block.indexOf(':') < 0 ? 32 : 128;
+        int prefix;
+        try {
+            prefix = slash < 0 ? maxPrefix : Integer.parseInt(block.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a CIDR block: " + block, e);
+        }
+        if (prefix < 0 || prefix > maxPrefix) {
+            throw new IllegalArgumentException("Prefix out of range in CIDR block: " + block);
+        }
+        return prefix + 128 - maxPrefix;
+    }
+
+    static long highMask(int bits) {
+        return bits >= 64 ? -1L : bits == 0 ? 0 : -1L << (64 - bits);
+    }
+
+    static long lowMask(int bits) {
+        return bits <= 64 ? 0 : bits == 128 ? -1L : -1L << (128 - bits);
+    }
+
+    /**
+     * Parses a single hop as found in {@code X-Forwarded-For} or a {@code Forwarded} {@code for=}
+     * value: an IPv4 or IPv6 literal, optionally quoted, bracketed, with a port or with a zone id.
+     *
+     * @return {@code false}, leaving this address unchanged, if the text is not an address
+     */
+    boolean parseHop(CharSequence text, int start, int end) {
+        while (start < end && isSpace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isSpace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && text.charAt(start) == '"' && text.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (start < end && text.charAt(start) == '[') {
+            int close = indexOf(text, ']', start, end);
+            return close > 0 && parseIpv6(text, start + 1, close);
+        }
+        int colon = indexOf(text, ':', start, end);
+        if (colon < 0) {
+            return parseIpv4(text, start, end);
+        }
+        if (indexOf(text, ':', colon + 1, end) < 0) {
+            // a single colon is an IPv4 address with a port
+            return parseIpv4(text, start, colon);
+        }
+        return parseIpv6(text, start, end);
+    }
+
+    /**
+     * Parses an address literal with nothing around it, as returned by {@code getRemoteAddr()}.
+     */
+    boolean parse(CharSequence text) {
+        return indexOf(text, ':', 0, text.length()) < 0
+                ? parseIpv4(text, 0, text.length())
+                : parseIpv6(text, 0, text.length());
+    }
+
+    boolean parseIpv4(CharSequence text, int start, int end) {
+        long address = parseIpv4Bits(text, start, end);
+        if (address < 0) {
+            return false;
+        }
+        set(0, IPV4_MAPPED | address);
+        return true;
+    }
+
+    boolean parseIpv6(CharSequence text, int start, int end) {
+        int zone = indexOf(text, '%', start, end);
+        if (zone >= 0) {
+            end = zone;
+        }
+        if (end - start < 2) {
+            return false;
+        }
+        // groups before a "::" fill from the left, groups after it are shifted in from the right
+        long headHigh = 0;
+        long headLow = 0;
+        int headGroups = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (text.charAt(i) == ':') {
+            if (text.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupEnd = i;
+            int value = 0;
+            while (groupEnd < end && groupEnd - i < 5) {
+                int digit = hexDigit(text.charAt(groupEnd));
+                if (digit < 0) {
+                    break;
+                }
+                value = value << 4 | digit;
+                groupEnd++;
+            }
+            int groupsBefore = compressed ? tailGroups : headGroups;
+            if (groupEnd < end && text.charAt(groupEnd) == '.') {
+                // embedded IPv4 in the last 32 bits
+                long ipv4 = parseIpv4Bits(text, i, end);
+                if (ipv4 < 0 || groupsBefore + (compressed ? headGroups : 0) > 6) {
+                    return false;
+                }
+                if (compressed) {
+                    tailHigh = tailHigh << 32 | tailLow >>> 32;
+                    tailLow = tailLow << 32 | ipv4;
+                    tailGroups += 2;
+                } else {
+                    headLow = headLow << 32 | ipv4;
+                    headGroups += 2;
+                }
+                i = end;
+                break;
+            }
+            if (groupEnd == i || groupEnd - i > 4) {
+                return false;
+            }
+            if (compressed) {
+                tailHigh = tailHigh << 16 | tailLow >>> 48;
+                tailLow = tailLow << 16 | value;
+                tailGroups++;
+            } else {
+                if (headGroups < 4) {
+                    headHigh = headHigh << 16 | value;
+                } else {
+                    headLow = headLow << 16 | value;
+                }
+                headGroups++;
+            }
+            if (headGroups + tailGroups > 8) {
+                return false;
+            }
+            i = groupEnd;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':' || i + 1 == end) {
+                return false;
+            }
+            i++;
+            if (text.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        if (compressed ? headGroups + tailGroups > 7 : headGroups != 8) {
+            return false;
+        }
+        // left-align the head groups in the 128-bit address
+        if (headGroups < 4) {
+            headHigh <<= 16 * (4 - headGroups);
+        } else if (headGroups < 8) {
+            headLow <<= 16 * (8 - headGroups);
+        }
+        set(headHigh | tailHigh, headLow | tailLow);
+        return true;
+    }
+
+    private static long parseIpv4Bits(CharSequence text, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int i = start;
+        while (octets < 4) {
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits < 3) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || value > 255) {
+                return -1;
+            }
+            address = address << 8 | value;
+            octets++;
+            if (octets < 4) {
+                if (i == end || text.charAt(i) != '.') {
+                    return -1;
+                }
+                i++;
+            }
+        }
+        return i == end ? address : -1;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    static int indexOf(CharSequence text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,172 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import java.util.Arrays;
+
+/**
+ * Longest-prefix match over 128-bit addresses, for CIDR allow/deny lists and per-prefix rules.
+ * A path-compressed binary trie: each node covers a whole run of bits, so a lookup visits at
+ * most one node per stored prefix on the path and allocates nothing. Nodes are packed into one
+ * {@code long[]}, eight longs each, so a step down the trie reads a single cache line instead
+ * of chasing an object per node.
+ * <p>
+ * Filled at startup through {@link #put} and only read afterwards; publish it safely, e.g. in a
+ * final field.
+ *
+ * @param <V> value stored per prefix
+ */
+public final class PrefixTrie<V> {
+
+    private static final int HIGH = 0;
+    private static final int LOW = 1;
+    private static final int HIGH_MASK = 2;
+    private static final int LOW_MASK = 3;
+    private static final int BITS = 4;
+    private static final int ZERO = 5;
+    private static final int ONE = 6;
+    private static final int VALUE = 7;
+    private static final int NODE_LONGS = 8;
+    private static final long NONE = -1;
+
+    // node 0 is the root, so child offset 0 means no child
+    private long[] nodes = new long[NODE_LONGS * 16];
+    private int nodeCount;
+    private Object[] values = new Object[16];
+    private int size;
+
+    public PrefixTrie() {
+        newNode(0, 0, 0);
+    }
+
+    /**
+     * Maps {@code address/prefix} to the value, replacing the value of an identical block.
+     *
+     * @throws IllegalArgumentException if the block is not a CIDR block
+     */
+    public void put(String block, V value) {
+        IpAddress address = new IpAddress();
+        int bits = address.parseBlock(block);
+        put(address.high, address.low, bits, value);
+    }
+
+    /**
+     * Length of a CIDR block's prefix in bits of the 128-bit address, so {@code 10.0.0.0/8} is 104.
+     *
+     * @throws IllegalArgumentException if the block is not a CIDR block
+     */
+    public static int prefixLength(String block) {
+        return new IpAddress().parseBlock(block);
+    }
+
+    void put(long high, long low, int bits, V value) {
+        high &= IpAddress.highMask(bits);
+        low &= IpAddress.lowMask(bits);
+        int node = 0;
+        while (true) {
+            int nodeBits = (int) nodes[node + BITS];
+            if (nodeBits == bits) {
+                setValue(node, value);
+                return;
+            }
+            int branch = (bit(high, low, nodeBits) == 0 ? ZERO : ONE);
+            int child = (int) nodes[node + branch];
+            if (child == 0) {
+                int leaf = newNode(high, low, bits);
+                nodes[node + branch] = leaf;
+                setValue(leaf, value);
+                return;
+            }
+            long childHigh = nodes[child + HIGH];
+            long childLow = nodes[child + LOW];
+            int childBits = (int) nodes[child + BITS];
+            int common = Math.min(commonBits(childHigh, childLow, high, low), Math.min(bits, childBits));
+            if (common == childBits) {
+                node = child;
+                continue;
+            }
+            // the new prefix diverges inside the child's run of bits, or ends there: split the run
+            int split = newNode(high & IpAddress.highMask(common), low & IpAddress.lowMask(common), common);
+            nodes[split + (bit(childHigh, childLow, common) == 0 ? ZERO : ONE)] = child;
+            nodes[node + branch] = split;
+            if (common == bits) {
+                setValue(split, value);
+            } else {
+                int leaf = newNode(high, low, bits);
+                nodes[split + (bit(high, low, common) == 0 ? ZERO : ONE)] = leaf;
+                setValue(leaf, value);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Value of the longest stored prefix containing the key's address, or {@code null} if there
+     * is none or the key has no address.
+     */
+    public V find(ClientKey key) {
+        return key.hasAddress() ? find(key.high(), key.low()) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V find(long high, long low) {
+        long[] nodes = this.nodes;
+        long best = nodes[VALUE];
+        int node = 0;
+        int bits = 0;
+        while (bits < 128) {
+            node = (int) nodes[node + (bit(high, low, bits) == 0 ? ZERO : ONE)];
+            if (node == 0 || (high & nodes[node + HIGH_MASK]) != nodes[node + HIGH]
+                    || (low & nodes[node + LOW_MASK]) != nodes[node + LOW]) {
+                break;
+            }
+            if (nodes[node + VALUE] != NONE) {
+                best = nodes[node + VALUE];
+            }
+            bits = (int) nodes[node + BITS];
+        }
+        return best == NONE ? null : (V) values[(int) best];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int newNode(long high, long low, int bits) {
+        int node = nodeCount * NODE_LONGS;
+        if (node == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        nodeCount++;
+        nodes[node + HIGH] = high;
+        nodes[node + LOW] = low;
+        nodes[node + HIGH_MASK] = IpAddress.highMask(bits);
+        nodes[node + LOW_MASK] = IpAddress.lowMask(bits);
+        nodes[node + BITS] = bits;
+        nodes[node + VALUE] = NONE;
+        return node;
+    }
+
+    private void setValue(int node, V value) {
+        if (nodes[node + VALUE] != NONE) {
+            values[(int) nodes[node + VALUE]] = value;
+            return;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        nodes[node + VALUE] = size++;
+    }
+
+    private static int bit(long high, long low, int index) {
+        return index < 64 ? (int) (high >>> (63 - index)) & 1 : (int) (low >>> (127 - index)) & 1;
+    }
+
+    private static int commonBits(long high1, long low1, long high2, long low2) {
+        long diff = high1 ^ high2;
+        return diff != 0 ? Long.numberOfLeadingZeros(diff) : 64 + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+}
@@ -0,0 +1,36 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+/**
+ * Additive increase while the limit is in use, multiplicative decrease on errors or slow responses.
+ */
+public class AimdLimitAlgorithm implements ConcurrencyLimitAlgorithm {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long timeoutNanos;
+    private volatile int limit;
+
+    public AimdLimitAlgorithm(int initialLimit, int minLimit, int maxLimit, long timeoutNanos) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized int onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped || rttNanos > timeoutNanos) {
+            limit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        return limit;
+    }
+}
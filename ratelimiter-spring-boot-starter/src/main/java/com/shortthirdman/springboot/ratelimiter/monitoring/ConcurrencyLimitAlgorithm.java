@@ -0,0 +1,17 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+/**
+ * Adjusts a concurrency limit from per-request latency samples taken on the request path.
+ */
+public interface ConcurrencyLimitAlgorithm {
+
+    int getLimit();
+
+    /**
+     * @param rttNanos time the request spent in the handler
+     * @param inFlight requests in flight when this one started
+     * @param dropped  whether the request failed
+     * @return the new limit
+     */
+    int onSample(long rttNanos, int inFlight, boolean dropped);
+}
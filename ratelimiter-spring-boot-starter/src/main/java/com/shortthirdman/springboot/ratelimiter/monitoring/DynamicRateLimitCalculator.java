@@ -1,19 +1,24 @@
 package com.shortthirdman.springboot.ratelimiter.monitoring;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 
 @Slf4j
-@Component
 public class DynamicRateLimitCalculator {
 
-    private static final int BASE_LIMIT = 100;
+    /**
+     * Limit at full health, before any load factor applies.
+     */
+    public static final int BASE_LIMIT = 100;
     private static final double CPU_THRESHOLD_HIGH = 0.8;
     private static final double CPU_THRESHOLD_MEDIUM = 0.5;
     private static final double MEMORY_THRESHOLD_HIGH = 0.8;
     private static final double MEMORY_THRESHOLD_MEDIUM = 0.5;
+    private static final double GC_PAUSE_THRESHOLD_HIGH = 0.1;
+    private static final double GC_PAUSE_THRESHOLD_MEDIUM = 0.05;
+    private static final double THREAD_THRESHOLD_HIGH = 0.9;
+    private static final double THREAD_THRESHOLD_MEDIUM = 0.75;
 
     public RateLimitConfigValues calculateLimit(SystemMetrics metrics) {
         int limit = BASE_LIMIT;
@@ -24,6 +29,10 @@ public class DynamicRateLimitCalculator {
         // Apply memory usage factor
         limit = adjustLimitBasedOnMemory(limit, metrics.getMemoryUsage());
 
+        // Apply GC pause and request thread pool factors
+        limit = adjustLimitBasedOnGcPauses(limit, metrics.getGcPauseFraction());
+        limit = adjustLimitBasedOnThreads(limit, metrics);
+
         Duration refillDuration = calculateRefillDuration(metrics);
 
         log.debug("Calculated rate limit: {}/{}s", limit,
@@ -51,6 +60,25 @@ public class DynamicRateLimitCalculator {
         return currentLimit;
     }
 
+    private int adjustLimitBasedOnGcPauses(int currentLimit, double gcPauseFraction) {
+        if (gcPauseFraction > GC_PAUSE_THRESHOLD_HIGH) {
+            return (int) (currentLimit * 0.5);
+        } else if (gcPauseFraction > GC_PAUSE_THRESHOLD_MEDIUM) {
+            return (int) (currentLimit * 0.8);
+        }
+        return currentLimit;
+    }
+
+    private int adjustLimitBasedOnThreads(int currentLimit, SystemMetrics metrics) {
+        double utilization = metrics.getThreadUtilization();
+        if (utilization > THREAD_THRESHOLD_HIGH && metrics.getQueueDepth() > 0) {
+            return (int) (currentLimit * 0.5); // requests are already queueing for a worker
+        } else if (utilization > THREAD_THRESHOLD_MEDIUM) {
+            return (int) (currentLimit * 0.8);
+        }
+        return currentLimit;
+    }
+
     private Duration calculateRefillDuration(SystemMetrics metrics) {
         double maxLoad = Math.max(metrics.getCpuLoad(),
                 metrics.getMemoryUsage());
@@ -0,0 +1,42 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exponentially weighted moving average over irregularly spaced samples. A sample's weight
+ * depends on the time since the previous one, so a burst of GC notifications counts no more
+ * than the same pressure reported once. Updates are lock-free and reads never block.
+ */
+class Ewma {
+
+    private final double tauNanos;
+    private final AtomicReference<Sample> state = new AtomicReference<>();
+
+    Ewma(long tauNanos) {
+        this.tauNanos = Math.max(1, tauNanos);
+    }
+
+    double update(double value, long nowNanos) {
+        while (true) {
+            Sample previous = state.get();
+            Sample next;
+            if (previous == null) {
+                next = new Sample(value, nowNanos);
+            } else {
+                double alpha = 1.0 - Math.exp(-Math.max(0, nowNanos - previous.timeNanos) / tauNanos);
+                next = new Sample(previous.value + alpha * (value - previous.value), nowNanos);
+            }
+            if (state.compareAndSet(previous, next)) {
+                return next.value;
+            }
+        }
+    }
+
+    double get() {
+        Sample current = state.get();
+        return current == null ? 0.0 : current.value;
+    }
+
+    private record Sample(double value, long timeNanos) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+/**
+ * Gradient-based limit in the spirit of TCP Vegas: compares each sample with a slow moving
+ * average of latency and shrinks the limit as soon as queueing shows up in the samples,
+ * while a {@code sqrt(limit)} allowance lets it probe upwards when latency is flat.
+ */
+public class GradientLimitAlgorithm implements ConcurrencyLimitAlgorithm {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double longRtt;
+    private double estimatedLimit;
+    private volatile int limit;
+
+    public GradientLimitAlgorithm(int initialLimit, int minLimit, int maxLimit) {
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized int onSample(long rttNanos, int inFlight, boolean dropped) {
+        double rtt = Math.max(1, rttNanos);
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+        }
+        // after a load spike the long average lags behind; let it catch up with recovered latency
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // the limit is not what is holding throughput back, so there is nothing to learn
+        if (!dropped && inFlight < estimatedLimit / 2) {
+            return limit;
+        }
+
+        double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+        return limit;
+    }
+}
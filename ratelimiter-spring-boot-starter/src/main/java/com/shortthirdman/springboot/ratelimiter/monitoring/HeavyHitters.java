@@ -0,0 +1,109 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate heaviest clients by tokens requested, in fixed memory: a count-min sketch estimates
+ * every client's total and a small map keeps the top {@code size} estimates. Recording is a few
+ * atomic adds; the map is only locked when a client not in it overtakes its lightest entry. All
+ * counts are halved every {@code decay-after} tokens, so the ranking follows recent traffic.
+ */
+public class HeavyHitters {
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH_BITS = 12;
+    private static final int WIDTH = 1 << WIDTH_BITS;
+    private static final long[] SEEDS = {
+            0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L
+    };
+
+    private final int size;
+    private final long decayAfter;
+    private final AtomicLongArray counts = new AtomicLongArray(DEPTH * WIDTH);
+    private final Map<ClientKey, AtomicLong> top = new ConcurrentHashMap<>();
+    private final AtomicLong sinceDecay = new AtomicLong();
+    // estimate a client must exceed to enter a full map
+    private volatile long threshold;
+
+    public HeavyHitters(int size, long decayAfter) {
+        if (size < 1 || decayAfter < 1) {
+            throw new IllegalArgumentException("Heavy hitters need a positive size and decay interval");
+        }
+        this.size = size;
+        this.decayAfter = decayAfter;
+    }
+
+    public void record(ClientKey client, long tokens) {
+        long fingerprint = client.fingerprint();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int column = (int) ((fingerprint * SEEDS[row]) >>> (64 - WIDTH_BITS));
+            estimate = Math.min(estimate, counts.addAndGet(row * WIDTH + column, tokens));
+        }
+        AtomicLong tracked = top.get(client);
+        if (tracked != null) {
+            tracked.set(estimate);
+        } else if (estimate > threshold) {
+            offer(client, estimate);
+        }
+        if (sinceDecay.addAndGet(tokens) >= decayAfter) {
+            decay();
+        }
+    }
+
+    /**
+     * Up to {@code limit} clients with their estimated tokens, heaviest first. Estimates never
+     * undercount; a light client sharing all its cells with heavy ones may be overcounted.
+     */
+    public List<Map.Entry<ClientKey, Long>> top(int limit) {
+        List<Map.Entry<ClientKey, Long>> entries = new ArrayList<>(top.size());
+        top.forEach((client, estimate) -> entries.add(Map.entry(client, estimate.get())));
+        entries.sort(Map.Entry.<ClientKey, Long>comparingByValue().reversed());
+        return entries.size() > limit ? entries.subList(0, limit) : entries;
+    }
+
+    private synchronized void offer(ClientKey client, long estimate) {
+        if (top.containsKey(client)) {
+            return;
+        }
+        if (top.size() >= size) {
+            Map.Entry<ClientKey, AtomicLong> lightest = lightest();
+            if (lightest.getValue().get() >= estimate) {
+                threshold = lightest.getValue().get();
+                return;
+            }
+            top.remove(lightest.getKey());
+        }
+        top.put(client, new AtomicLong(estimate));
+        if (top.size() >= size) {
+            threshold = lightest().getValue().get();
+        }
+    }
+
+    private Map.Entry<ClientKey, AtomicLong> lightest() {
+        return top.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().get()))
+                .orElseThrow();
+    }
+
+    private synchronized void decay() {
+        // another thread may have decayed while this one waited for the lock
+        if (sinceDecay.get() < decayAfter) {
+            return;
+        }
+        sinceDecay.set(0);
+        for (int i = 0; i < counts.length(); i++) {
+            counts.getAndUpdate(i, count -> count >> 1);
+        }
+        top.values().forEach(estimate -> estimate.getAndUpdate(count -> count >> 1));
+        threshold >>= 1;
+    }
+}
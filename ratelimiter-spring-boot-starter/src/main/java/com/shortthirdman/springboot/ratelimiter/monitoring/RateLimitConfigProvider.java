@@ -0,0 +1,6 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+public interface RateLimitConfigProvider {
+
+    RateLimitConfigValues getRateLimitConfig();
+}
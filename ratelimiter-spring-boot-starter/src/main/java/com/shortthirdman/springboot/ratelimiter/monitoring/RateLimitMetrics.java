@@ -0,0 +1,151 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class RateLimitMetrics {
+
+    static final String OVERFLOW_PATH = "OVERFLOW";
+    static final String UNMATCHED_PATH = "UNMATCHED";
+
+    private static final String[] METHODS = {
+            "GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE", "OTHER"
+    };
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rateLimitExceeded;
+    private final Counter requestsTotal;
+    private final Gauge currentLimit;
+    private final ConcurrentMap<String, EndpointTimers> endpointTimers;
+    private final EndpointTimers overflowTimers;
+    private final EndpointTimers unmatchedTimers;
+    private final int maxEndpoints;
+
+    public RateLimitMetrics(MeterRegistry registry,
+                            RateLimitConfigProvider configProvider) {
+        this(registry, configProvider, 100);
+    }
+
+    public RateLimitMetrics(MeterRegistry registry,
+                            RateLimitConfigProvider configProvider,
+                            int maxEndpoints) {
+        this.meterRegistry = registry;
+        this.maxEndpoints = maxEndpoints;
+        this.endpointTimers = new ConcurrentHashMap<>();
+        this.overflowTimers = new EndpointTimers(OVERFLOW_PATH);
+        this.unmatchedTimers = new EndpointTimers(UNMATCHED_PATH);
+
+        this.rateLimitExceeded = Counter.builder("rate_limit.exceeded")
+                .description("Number of rate limit exceeded events")
+                .tag("type", "exceeded")
+                .register(registry);
+
+        this.requestsTotal = Counter.builder("rate_limit.requests")
+                .description("Total number of requests processed")
+                .tag("type", "total")
+                .register(registry);
+
+        this.currentLimit = Gauge.builder("rate_limit.current",
+                        configProvider,
+                        this::getCurrentLimit)
+                .description("Current rate limit value")
+                .tag("type", "limit")
+                .register(registry);
+    }
+
+    public long startTimer() {
+        return meterRegistry.config().clock().monotonicTime();
+    }
+
+    /**
+     * Records the time since {@link #startTimer()} against a timer resolved from the matched
+     * handler pattern, method and outcome. Timers are registered once per combination; patterns
+     * beyond {@code maxEndpoints} are recorded under a shared {@value #OVERFLOW_PATH} path tag.
+     */
+    public void stopTimer(long startNanos, String pattern, String method, boolean rateLimited) {
+        long duration = meterRegistry.config().clock().monotonicTime() - startNanos;
+        timerFor(pattern, method, rateLimited).record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    Timer timerFor(String pattern, String method, boolean rateLimited) {
+        EndpointTimers endpoint = pattern == null ? unmatchedTimers : endpointTimers.get(pattern);
+        if (endpoint == null) {
+            endpoint = endpointTimers.size() < maxEndpoints
+                    ? endpointTimers.computeIfAbsent(pattern, EndpointTimers::new)
+                    : overflowTimers;
+        }
+        return endpoint.get(methodIndex(method), rateLimited);
+    }
+
+    private static int methodIndex(String method) {
+        return switch (method) {
+            case "GET" -> 0;
+            case "HEAD" -> 1;
+            case "POST" -> 2;
+            case "PUT" -> 3;
+            case "PATCH" -> 4;
+            case "DELETE" -> 5;
+            case "OPTIONS" -> 6;
+            case "TRACE" -> 7;
+            default -> 8;
+        };
+    }
+
+    public void incrementRateLimitExceeded() {
+        rateLimitExceeded.increment();
+    }
+
+    public void recordRequest() {
+        requestsTotal.increment();
+    }
+
+    private double getCurrentLimit(RateLimitConfigProvider provider) {
+        return provider.getRateLimitConfig().getLimit();
+    }
+
+    public Map<String, Number> getCurrentMetrics() {
+        return Map.of(
+                "rateLimitExceeded", rateLimitExceeded.count(),
+                "totalRequests", requestsTotal.count(),
+                "currentLimit", currentLimit.value()
+        );
+    }
+
+    private final class EndpointTimers {
+
+        private final String path;
+        // indexed by method * 2 + (rateLimited ? 1 : 0)
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(METHODS.length * 2);
+
+        private EndpointTimers(String path) {
+            this.path = path;
+        }
+
+        private Timer get(int methodIndex, boolean rateLimited) {
+            int slot = methodIndex * 2 + (rateLimited ? 1 : 0);
+            Timer timer = timers.get(slot);
+            if (timer == null) {
+                // registration is idempotent, so a racing thread just gets the same meter back
+                timer = Timer.builder("rate_limit.request.duration")
+                        .description("Request duration through rate limiter")
+                        .tags(
+                                "path", path,
+                                "method", METHODS[methodIndex],
+                                "rate_limited", Boolean.toString(rateLimited),
+                                "component", "rate_limiter"
+                        )
+                        .register(meterRegistry);
+                timers.set(slot, timer);
+            }
+            return timer;
+        }
+    }
+}
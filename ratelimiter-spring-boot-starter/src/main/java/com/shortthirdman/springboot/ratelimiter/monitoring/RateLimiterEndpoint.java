@@ -0,0 +1,143 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetRule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/ratelimiter}: the active limit, the heaviest clients, reject rates per policy
+ * and one client's remaining tokens, read without creating state for anyone. Writing pins the
+ * dynamic limit until deleted, or changes how often it is recalculated; buckets take a pinned
+ * limit in place, so no client loses its fill level.
+ */
+@Endpoint(id = "ratelimiter")
+@RequiredArgsConstructor
+public class RateLimiterEndpoint {
+
+    private static final int TOP_CLIENTS = 10;
+
+    private final DynamicRateLimiter rateLimiter;
+    private final RateLimitPolicyRegistry policies;
+    private final SubnetLimiter subnets;
+    private final HeavyHitters heavyHitters;
+
+    @ReadOperation
+    public Summary summary() {
+        List<HeavyClient> heaviest = new ArrayList<>();
+        for (Map.Entry<ClientKey, Long> entry : heavyHitters.top(TOP_CLIENTS)) {
+            heaviest.add(new HeavyClient(entry.getKey().toString(), entry.getValue()));
+        }
+        List<PolicyStats> stats = new ArrayList<>();
+        for (RateLimitPolicy policy : subnets.policies()) {
+            stats.add(PolicyStats.of(policy));
+        }
+        for (RateLimitPolicy policy : policies.policies()) {
+            stats.add(PolicyStats.of(policy));
+        }
+        return new Summary(config(), rateLimiter.getMetrics(), rateLimiter.estimatedClients(), heaviest, stats);
+    }
+
+    /**
+     * Tokens left for the client in each limit that holds state for it, -1 where none does. The
+     * client is an address, an API key or a key as listed under the heaviest clients.
+     */
+    @ReadOperation
+    public ClientState client(@Selector String client) {
+        ClientKey key = parse(client);
+        ClientKey address = key.hasAddress() ? ClientKey.of(client.split("\\|", 2)[0]) : key;
+        Map<String, Long> tokens = new LinkedHashMap<>();
+        SubnetRule rule = subnets.match(address);
+        for (int level = 0; level < rule.levels(); level++) {
+            tokens.put(rule.policy(level).getName(), rule.policy(level).availableTokens(rule.key(level, address)));
+        }
+        for (RateLimitPolicy policy : policies.policies()) {
+            tokens.put(policy.getName(), policy.availableTokens(address));
+        }
+        tokens.put("dynamic", rateLimiter.availableTokens(key));
+        return new ClientState(key.toString(), tokens);
+    }
+
+    /**
+     * Pins the dynamic limit when a limit or refill period is given, keeping the current value of
+     * the other, and sets the recalculation interval when {@code refreshSeconds} is given.
+     */
+    @WriteOperation
+    public Config override(@Nullable Integer limit, @Nullable Long refillSeconds, @Nullable Long refreshSeconds) {
+        if (refreshSeconds != null) {
+            rateLimiter.setRefreshInterval(Duration.ofSeconds(refreshSeconds));
+        }
+        if (limit != null || refillSeconds != null) {
+            RateLimitConfigValues current = rateLimiter.getRateLimitConfig();
+            rateLimiter.override(new RateLimitConfigValues(limit == null ? current.getLimit() : limit,
+                    refillSeconds == null ? current.getRefillDuration() : Duration.ofSeconds(refillSeconds)));
+        }
+        return config();
+    }
+
+    @DeleteOperation
+    public Config clearOverride() {
+        rateLimiter.clearOverride();
+        return config();
+    }
+
+    private Config config() {
+        RateLimitConfigValues config = rateLimiter.getRateLimitConfig();
+        return new Config(config.getLimit(), config.getRefillDuration().toSeconds(), rateLimiter.isOverridden(),
+                rateLimiter.getRefreshInterval().toSeconds());
+    }
+
+    /**
+     * Inverse of {@link ClientKey#toString()}: an address, optionally followed by {@code |name}.
+     */
+    static ClientKey parse(String client) {
+        int separator = client.indexOf('|');
+        if (separator > 0) {
+            ClientKey address = ClientKey.of(client.substring(0, separator));
+            if (address.hasAddress()) {
+                return address.withName(client.substring(separator + 1));
+            }
+        }
+        return ClientKey.of(client);
+    }
+
+    public record Summary(Config config, Map<String, Number> metrics, long dynamicClients,
+                          List<HeavyClient> heaviestClients, List<PolicyStats> policies) {
+    }
+
+    public record Config(long limit, long refillSeconds, boolean overridden, long refreshSeconds) {
+    }
+
+    public record HeavyClient(String client, long estimatedTokens) {
+    }
+
+    public record PolicyStats(String name, long capacity, long clients, long admitted, long rejected,
+                              double rejectRate) {
+
+        static PolicyStats of(RateLimitPolicy policy) {
+            long admitted = policy.getAdmitted();
+            long rejected = policy.getRejected();
+            long total = admitted + rejected;
+            return new PolicyStats(policy.getName(), policy.getCapacity(), policy.estimatedClients(),
+                    admitted, rejected, total == 0 ? 0 : (double) rejected / total);
+        }
+    }
+
+    public record ClientState(String client, Map<String, Long> availableTokens) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SystemMetrics {
+    private double cpuLoad;
+    // old generation occupancy measured right after collections
+    private double memoryUsage;
+    // share of wall-clock time spent in GC pauses
+    private double gcPauseFraction;
+    private int activeThreads;
+    private int maxThreads;
+    private int queueDepth;
+
+    public SystemMetrics(double cpuLoad, double memoryUsage) {
+        this(cpuLoad, memoryUsage, 0.0, 0, 0, 0);
+    }
+
+    public double getThreadUtilization() {
+        return maxThreads <= 0 ? 0.0 : (double) activeThreads / maxThreads;
+    }
+}
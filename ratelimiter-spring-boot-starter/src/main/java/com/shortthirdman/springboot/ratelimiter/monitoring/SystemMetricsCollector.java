@@ -0,0 +1,247 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.event.EventListener;
+import org.springframework.util.ClassUtils;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Samples process pressure for {@link DynamicRateLimitCalculator}. Heap pressure is the old
+ * generation occupancy reported by GC notifications after each collection, so the young-gen
+ * sawtooth does not register as load. Every signal is smoothed with a time-based EWMA and the
+ * latest values are published as an immutable snapshot that readers get without locking.
+ */
+@Slf4j
+public class SystemMetricsCollector {
+
+    private static final long DEFAULT_SMOOTHING_SECONDS = 30;
+    private static final ThreadPoolView NO_THREAD_POOL = new ThreadPoolView(() -> 0, () -> 0, () -> 0);
+    // Tomcat classes are only touched through TomcatPools, so other servers never load them
+    private static final boolean TOMCAT_PRESENT = ClassUtils.isPresent("org.apache.catalina.startup.Tomcat",
+            SystemMetricsCollector.class.getClassLoader());
+
+    private final OperatingSystemMXBean osBean;
+    private final Set<String> oldGenPoolNames;
+    private final List<MemoryPoolMXBean> oldGenPools;
+    private final List<NotificationEmitter> gcEmitters = new ArrayList<>();
+    private final NotificationListener gcListener = this::onGarbageCollection;
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+    private final Ewma cpuLoad;
+    private final Ewma oldGenOccupancy;
+    private final Ewma gcPauseFraction;
+    private final Ewma activeThreads;
+    private final Ewma queueDepth;
+    private volatile ThreadPoolView threadPool = NO_THREAD_POOL;
+    private volatile SystemMetrics snapshot = new SystemMetrics(0.0, 0.0);
+    private long lastSampleNanos;
+    private long lastGcPauseMillis;
+
+    public SystemMetricsCollector() {
+        this(DEFAULT_SMOOTHING_SECONDS);
+    }
+
+    public SystemMetricsCollector(long smoothingSeconds) {
+        this.osBean = ManagementFactory.getOperatingSystemMXBean();
+        long tauNanos = TimeUnit.SECONDS.toNanos(smoothingSeconds);
+        this.cpuLoad = new Ewma(tauNanos);
+        this.oldGenOccupancy = new Ewma(tauNanos);
+        this.gcPauseFraction = new Ewma(tauNanos);
+        this.activeThreads = new Ewma(tauNanos);
+        this.queueDepth = new Ewma(tauNanos);
+        this.oldGenPools = findOldGenPools();
+        this.oldGenPoolNames = oldGenPools.stream().map(MemoryPoolMXBean::getName).collect(Collectors.toSet());
+        this.lastSampleNanos = System.nanoTime();
+        oldGenOccupancy.update(initialOldGenOccupancy(), lastSampleNanos);
+        registerGcListeners();
+    }
+
+    /**
+     * Takes a sample of every signal, folds it into the averages and publishes a new snapshot.
+     */
+    public synchronized SystemMetrics collectMetrics() {
+        long now = System.nanoTime();
+        long pauseMillis = gcPauseMillis.get();
+        double elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(now - lastSampleNanos));
+        double pauseFraction = Math.min(1.0, (pauseMillis - lastGcPauseMillis) / elapsedMillis);
+        lastSampleNanos = now;
+        lastGcPauseMillis = pauseMillis;
+
+        ThreadPoolView pool = threadPool;
+        SystemMetrics metrics = new SystemMetrics(
+                cpuLoad.update(getProcessCpuLoad(), now),
+                oldGenOccupancy.get(),
+                gcPauseFraction.update(pauseFraction, now),
+                (int) Math.round(activeThreads.update(pool.active().getAsInt(), now)),
+                pool.max().getAsInt(),
+                (int) Math.round(queueDepth.update(pool.queued().getAsInt(), now)));
+        snapshot = metrics;
+        return metrics;
+    }
+
+    /**
+     * Latest published values, without taking a new sample.
+     */
+    public SystemMetrics getSnapshot() {
+        return snapshot;
+    }
+
+    @EventListener
+    public void onWebServerInitialized(WebServerInitializedEvent event) {
+        // only the application's own connector, not a separate management port
+        if (event.getApplicationContext().getServerNamespace() == null && TOMCAT_PRESENT) {
+            Executor executor = TomcatPools.requestExecutor(event.getWebServer());
+            if (executor != null) {
+                bindExecutor(executor);
+            }
+        }
+    }
+
+    /**
+     * Reports the given request executor's active threads and queue depth. Executors without a
+     * bounded pool, such as virtual threads, contribute nothing.
+     */
+    public void bindExecutor(Executor executor) {
+        ThreadPoolView tomcatPool = TOMCAT_PRESENT ? TomcatPools.view(executor) : null;
+        if (tomcatPool != null) {
+            threadPool = tomcatPool;
+        } else if (executor instanceof ThreadPoolExecutor pool) {
+            threadPool = new ThreadPoolView(pool::getActiveCount, pool::getMaximumPoolSize,
+                    () -> pool.getQueue().size());
+        } else {
+            threadPool = NO_THREAD_POOL;
+            return;
+        }
+        log.info("Sampling request thread pool {}", executor.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (NotificationEmitter emitter : gcEmitters) {
+            try {
+                emitter.removeNotificationListener(gcListener);
+            } catch (ListenerNotFoundException e) {
+                // already gone
+            }
+        }
+        gcEmitters.clear();
+    }
+
+    private void registerGcListeners() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(gcListener, null, null);
+                gcEmitters.add(emitter);
+            }
+        }
+    }
+
+    private void onGarbageCollection(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // concurrent cycles run beside the application and are reported separately from their pauses
+        String gcName = info.getGcName();
+        if (!gcName.contains("Concurrent") && !gcName.contains("Cycles")) {
+            gcPauseMillis.addAndGet(info.getGcInfo().getDuration());
+        }
+
+        long used = 0;
+        long max = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (oldGenPoolNames.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+                max += capacity(pool.getValue());
+            }
+        }
+        if (max > 0) {
+            oldGenOccupancy.update((double) used / max, System.nanoTime());
+        }
+    }
+
+    private double initialOldGenOccupancy() {
+        long used = 0;
+        long max = 0;
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            MemoryUsage usage = pool.getCollectionUsage() != null && pool.getCollectionUsage().getUsed() > 0
+                    ? pool.getCollectionUsage() : pool.getUsage();
+            used += usage.getUsed();
+            max += capacity(usage);
+        }
+        return max > 0 ? (double) used / max : 0.0;
+    }
+
+    private static long capacity(MemoryUsage usage) {
+        return usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+    }
+
+    private static List<MemoryPoolMXBean> findOldGenPools() {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        List<MemoryPoolMXBean> oldPools = heapPools.stream()
+                .filter(pool -> isOldGen(pool.getName()))
+                .toList();
+        // single-generation collectors (ZGC, Shenandoah) have one heap pool to watch
+        return oldPools.isEmpty() ? heapPools : oldPools;
+    }
+
+    private static boolean isOldGen(String poolName) {
+        return poolName.contains("Old Gen") || poolName.contains("Tenured") || poolName.contains("Old Generation");
+    }
+
+    private double getProcessCpuLoad() {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return Math.max(0.0, ((com.sun.management.OperatingSystemMXBean) osBean)
+                    .getProcessCpuLoad());
+        }
+        // the load average counts runnable threads, so normalise it to a ratio like the HotSpot value
+        double loadAverage = osBean.getSystemLoadAverage();
+        return loadAverage < 0 ? 0.0 : Math.min(1.0, loadAverage / osBean.getAvailableProcessors());
+    }
+
+    private static final class TomcatPools {
+
+        private static Executor requestExecutor(WebServer webServer) {
+            return webServer instanceof TomcatWebServer tomcat
+                    ? tomcat.getTomcat().getConnector().getProtocolHandler().getExecutor()
+                    : null;
+        }
+
+        private static ThreadPoolView view(Executor executor) {
+            return executor instanceof org.apache.tomcat.util.threads.ThreadPoolExecutor pool
+                    ? new ThreadPoolView(pool::getActiveCount, pool::getMaximumPoolSize, () -> pool.getQueue().size())
+                    : null;
+        }
+    }
+
+    private record ThreadPoolView(IntSupplier active, IntSupplier max, IntSupplier queued) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.shortthirdman.springboot.ratelimiter.policy;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One bandwidth of a {@link RateLimited} endpoint: {@code capacity} tokens, refilled by
+ * {@code refillTokens} (defaults to the capacity) every {@code period} {@code unit}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Limit {
+
+    long capacity();
+
+    long refillTokens() default -1;
+
+    long period() default 1;
+
+    TimeUnit unit() default TimeUnit.MINUTES;
+
+    /**
+     * Plan the bandwidth applies to; empty applies it to callers of every plan.
+     */
+    String plan() default "";
+}
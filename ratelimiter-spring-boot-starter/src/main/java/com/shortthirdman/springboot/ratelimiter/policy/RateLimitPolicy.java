@@ -0,0 +1,160 @@
+package com.shortthirdman.springboot.ratelimiter.policy;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.algorithm.RateLimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A compiled set of bandwidths together with the per-client state enforcing it, kept by the
+ * policy's {@link LimitAlgorithm}. Every client of a policy shares the one compiled algorithm.
+ */
+public class RateLimitPolicy {
+
+    // estimated: Caffeine node with expiry and ClientKey, on top of the algorithm's state; FootprintBenchmark
+    // POLICY derives the total
+    private static final long BYTES_PER_ENTRY = 136;
+
+    private final String name;
+    private final Limits<?> limits;
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimitPolicy(String name, RateLimitAlgorithm<?> algorithm, ClientStateStoreFactory stores) {
+        this.name = name;
+        this.limits = new Limits<>(name, algorithm, stores);
+    }
+
+    /**
+     * Compiles configured bandwidths, as used by plans and subnet limits.
+     */
+    public static BucketConfiguration configuration(List<RateLimitPolicyProperties.Bandwidth> limits) {
+        ConfigurationBuilder builder = BucketConfiguration.builder();
+        for (RateLimitPolicyProperties.Bandwidth limit : limits) {
+            builder.addLimit(bandwidth(limit.getCapacity(), limit.getRefillTokens(), limit.getPeriod()));
+        }
+        return builder.build();
+    }
+
+    static Bandwidth bandwidth(long capacity, long refillTokens, Duration period) {
+        return Bandwidth.classic(capacity, Refill.intervally(refillTokens < 0 ? capacity : refillTokens, period));
+    }
+
+    /**
+     * Tokens a request worth {@code cost} is charged: at most the capacity, so a request more
+     * expensive than the policy allows empties the client's bucket instead of never fitting.
+     */
+    public long charge(long cost) {
+        return Math.min(cost, limits.algorithm.capacity());
+    }
+
+    public ConsumptionProbe tryConsumeAndReturnRemaining(ClientKey clientKey, long tokens) {
+        ConsumptionProbe probe = limits.tryConsume(clientKey, tokens);
+        (probe.isConsumed() ? admitted : rejected).increment();
+        return probe;
+    }
+
+    public void addTokens(ClientKey clientKey, long tokens) {
+        limits.addTokens(clientKey, tokens);
+    }
+
+    /**
+     * Charges tokens after the fact, letting the client go into debt.
+     */
+    public void removeTokens(ClientKey clientKey, long tokens) {
+        limits.removeTokens(clientKey, tokens);
+    }
+
+    /**
+     * Corrects the charge of a finished request from the estimated to the measured cost, both
+     * capped like {@link #charge}.
+     */
+    public void reprice(ClientKey clientKey, long estimated, long measured) {
+        long delta = charge(measured) - charge(estimated);
+        if (delta > 0) {
+            limits.removeTokens(clientKey, delta);
+        } else if (delta < 0) {
+            limits.addTokens(clientKey, -delta);
+        }
+    }
+
+    /**
+     * Tokens the client could take now, or -1 if the policy holds no state for it. Never creates state.
+     */
+    public long availableTokens(ClientKey clientKey) {
+        return limits.availableTokens(clientKey);
+    }
+
+    /**
+     * Clients the policy currently holds state for.
+     */
+    public long estimatedClients() {
+        return limits.states.estimatedSize();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Capacity of the tightest bandwidth, reported as the limit in response headers.
+     */
+    public long getCapacity() {
+        return limits.algorithm.capacity();
+    }
+
+    private static final class Limits<S> {
+
+        private final RateLimitAlgorithm<S> algorithm;
+        private final ClientStateStore<S> states;
+
+        Limits(String name, RateLimitAlgorithm<S> algorithm, ClientStateStoreFactory stores) {
+            this.algorithm = algorithm;
+            long nanosToFull = algorithm.nanosToFull();
+            long capacity = algorithm.capacity();
+            this.states = stores.create(name, BYTES_PER_ENTRY + algorithm.bytesPerState(),
+                    state -> nanosToFull, algorithm::availableTokens, state -> capacity);
+        }
+
+        ConsumptionProbe tryConsume(ClientKey clientKey, long tokens) {
+            return algorithm.tryConsume(states.get(clientKey, algorithm::newState), tokens);
+        }
+
+        long availableTokens(ClientKey clientKey) {
+            S state = states.getIfPresent(clientKey);
+            return state == null ? -1 : algorithm.availableTokens(state);
+        }
+
+        void addTokens(ClientKey clientKey, long tokens) {
+            S state = states.getIfPresent(clientKey);
+            if (state != null) {
+                algorithm.addTokens(state, tokens);
+            }
+        }
+
+        void removeTokens(ClientKey clientKey, long tokens) {
+            S state = states.getIfPresent(clientKey);
+            if (state != null) {
+                algorithm.removeTokens(state, tokens);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.shortthirdman.springboot.ratelimiter.policy;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client plans and the API keys that select them. Requests without a known key use {@code defaultPlan}.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.policy")
+public class RateLimitPolicyProperties {
+
+    private String defaultPlan = "free";
+
+    private String apiKeyHeader = "X-API-Key";
+
+    // API key -> plan name
+    private Map<String, String> apiKeys = new LinkedHashMap<>();
+
+    private Map<String, Plan> plans = new LinkedHashMap<>();
+
+    @Data
+    public static class Plan {
+
+        // e.g. a short burst limit next to a sustained hourly one
+        private List<Bandwidth> limits = new ArrayList<>();
+
+        private LimitAlgorithm algorithm = LimitAlgorithm.TOKEN_BUCKET;
+    }
+
+    @Data
+    public static class Bandwidth {
+
+        private long capacity;
+
+        // defaults to the capacity
+        private long refillTokens = -1;
+
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
@@ -0,0 +1,183 @@
+package com.shortthirdman.springboot.ratelimiter.policy;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConfigurationBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles plan limits from {@link RateLimitPolicyProperties} at startup and endpoint limits from
+ * {@link RateLimited} on first use of each handler method. Plans are addressed by index, so
+ * request-time lookup is one hit on the handler method's cache entry and an array read.
+ */
+@Slf4j
+public class RateLimitPolicyRegistry {
+
+    private static final RateLimitPolicy[] NO_ENDPOINT_POLICIES = new RateLimitPolicy[0];
+
+    private final ClientStateStoreFactory stores;
+    private final String apiKeyHeader;
+    private final List<String> planNames;
+    private final RateLimitPolicy[] planPolicies;
+    private final Map<String, Integer> apiKeyPlans = new HashMap<>();
+    private final int defaultPlan;
+    private final Map<Method, RateLimitPolicy[]> endpointPolicies = new ConcurrentHashMap<>();
+
+    public RateLimitPolicyRegistry(RateLimitPolicyProperties properties, ClientStateStoreFactory stores) {
+        this.stores = stores;
+        this.apiKeyHeader = properties.getApiKeyHeader();
+        this.planNames = new ArrayList<>(properties.getPlans().keySet());
+        if (!planNames.contains(properties.getDefaultPlan())) {
+            planNames.add(properties.getDefaultPlan());
+        }
+        this.planPolicies = new RateLimitPolicy[planNames.size()];
+        for (int i = 0; i < planNames.size(); i++) {
+            RateLimitPolicyProperties.Plan plan = properties.getPlans().get(planNames.get(i));
+            if (plan != null && !plan.getLimits().isEmpty()) {
+                planPolicies[i] = new RateLimitPolicy("plan:" + planNames.get(i),
+                        plan.getAlgorithm().create(RateLimitPolicy.configuration(plan.getLimits()), stores.nanoClock()), stores);
+            }
+        }
+        this.defaultPlan = planNames.indexOf(properties.getDefaultPlan());
+        properties.getApiKeys().forEach((apiKey, plan) -> apiKeyPlans.put(apiKey, indexOf(plan)));
+        log.info("Rate limit plans {} (default {})", planNames, properties.getDefaultPlan());
+    }
+
+    public String getApiKeyHeader() {
+        return apiKeyHeader;
+    }
+
+    /**
+     * Index of the plan the API key belongs to, or of the default plan for unknown or missing keys.
+     */
+    public int resolvePlan(String apiKey) {
+        if (apiKey == null) {
+            return defaultPlan;
+        }
+        Integer plan = apiKeyPlans.get(apiKey);
+        return plan == null ? defaultPlan : plan;
+    }
+
+    /**
+     * Whether the API key is configured. Only configured keys get limits of their own; any other
+     * value is a caller's choice and is limited by its address.
+     */
+    public boolean isKnownApiKey(String apiKey) {
+        return apiKey != null && apiKeyPlans.containsKey(apiKey);
+    }
+
+    public int planCount() {
+        return planNames.size();
+    }
+
+    public String planName(int plan) {
+        return planNames.get(plan);
+    }
+
+    /**
+     * Client-wide limits of the plan, or {@code null} if the plan is unlimited.
+     */
+    public RateLimitPolicy planPolicy(int plan) {
+        return planPolicies[plan];
+    }
+
+    /**
+     * Plan policies followed by the endpoint policies compiled so far, each listed once.
+     */
+    public List<RateLimitPolicy> policies() {
+        Set<RateLimitPolicy> policies = new LinkedHashSet<>();
+        for (RateLimitPolicy policy : planPolicies) {
+            if (policy != null) {
+                policies.add(policy);
+            }
+        }
+        for (RateLimitPolicy[] endpoint : endpointPolicies.values()) {
+            for (RateLimitPolicy policy : endpoint) {
+                if (policy != null) {
+                    policies.add(policy);
+                }
+            }
+        }
+        return new ArrayList<>(policies);
+    }
+
+    /**
+     * Endpoint limits the handler declares for callers of the plan, or {@code null} if there are none.
+     */
+    public RateLimitPolicy endpointPolicy(HandlerMethod handler, int plan) {
+        Method method = handler.getMethod();
+        RateLimitPolicy[] policies = endpointPolicies.get(method);
+        if (policies == null) {
+            policies = endpointPolicies.computeIfAbsent(method, m -> compileEndpoint(handler));
+        }
+        return policies.length == 0 ? null : policies[plan];
+    }
+
+    private RateLimitPolicy[] compileEndpoint(HandlerMethod handler) {
+        RateLimited annotation = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(), RateLimited.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), RateLimited.class);
+        }
+        if (annotation == null) {
+            return NO_ENDPOINT_POLICIES;
+        }
+        for (Limit limit : annotation.value()) {
+            if (!limit.plan().isEmpty()) {
+                indexOf(limit.plan());
+            }
+        }
+
+        String endpoint = handler.getBeanType().getSimpleName() + "#" + handler.getMethod().getName();
+        LimitAlgorithm algorithm = annotation.algorithm();
+        RateLimitPolicy[] policies = new RateLimitPolicy[planNames.size()];
+        // plans whose callers see the same bandwidths share one policy
+        Map<List<Limit>, RateLimitPolicy> distinct = new LinkedHashMap<>();
+        for (int i = 0; i < policies.length; i++) {
+            String plan = planNames.get(i);
+            List<Limit> limits = new ArrayList<>();
+            for (Limit limit : annotation.value()) {
+                if (limit.plan().isEmpty() || limit.plan().equals(plan)) {
+                    limits.add(limit);
+                }
+            }
+            if (!limits.isEmpty()) {
+                // named after the first plan using it, so each policy's store metrics get their own tag
+                policies[i] = distinct.computeIfAbsent(limits, l -> new RateLimitPolicy(
+                        "endpoint:" + endpoint + ":" + plan, algorithm.create(compileEndpointLimits(l), stores.nanoClock()), stores));
+            }
+        }
+        log.debug("Compiled rate limits of {} into {} policies", endpoint, distinct.size());
+        return policies;
+    }
+
+    private int indexOf(String plan) {
+        int index = planNames.indexOf(plan);
+        if (index < 0) {
+            throw new IllegalStateException("Unknown rate limit plan '" + plan + "', configured plans are " + planNames);
+        }
+        return index;
+    }
+
+    private static BucketConfiguration compileEndpointLimits(List<Limit> limits) {
+        ConfigurationBuilder builder = BucketConfiguration.builder();
+        for (Limit limit : limits) {
+            builder.addLimit(RateLimitPolicy.bandwidth(limit.capacity(), limit.refillTokens(),
+                    Duration.ofNanos(limit.unit().toNanos(limit.period()))));
+        }
+        return builder.build();
+    }
+}
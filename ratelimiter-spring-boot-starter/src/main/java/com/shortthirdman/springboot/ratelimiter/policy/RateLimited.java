@@ -0,0 +1,29 @@
+package com.shortthirdman.springboot.ratelimiter.policy;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares limits for a handler method, or every handler of a controller. They are enforced per
+ * client and endpoint, on top of the limits of the client's plan which span all endpoints.
+ * <pre>
+ * &#64;RateLimited({
+ *         &#64;Limit(capacity = 5, period = 1, unit = TimeUnit.SECONDS),
+ *         &#64;Limit(capacity = 100, period = 1, unit = TimeUnit.HOURS, plan = "free")
+ * })
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimited {
+
+    Limit[] value();
+
+    LimitAlgorithm algorithm() default LimitAlgorithm.TOKEN_BUCKET;
+}
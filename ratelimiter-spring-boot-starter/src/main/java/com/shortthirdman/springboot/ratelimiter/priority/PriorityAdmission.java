@@ -0,0 +1,220 @@
+package com.shortthirdman.springboot.ratelimiter.priority;
+
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigProvider;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-wide admission pool shared by the priority classes, kept as a GCRA theoretical arrival
+ * time in one {@link AtomicLong}. A class with reserve {@code r} is admitted only while more than
+ * {@code r} of the pool is left, so lower classes run dry first and the reserved share stays
+ * available to the classes above them. The pool shrinks in proportion to the dynamic limit, so
+ * when the calculator cuts the limit under load, the cut lands on the lowest classes.
+ * <p>
+ * A class with a wait queue books the time its request will fit and parks until then, instead of
+ * being rejected, if that is within its {@code max-wait} and the queue has room. Bookings count
+ * against the pool like admissions, so waiting high-priority requests push lower ones out.
+ */
+@Slf4j
+public class PriorityAdmission {
+
+    private final RateLimitConfigProvider configProvider;
+    private final LongSupplier nanoClock;
+    private final long capacity;
+    private final long periodNanos;
+    private final String header;
+    private final PriorityClass[] classes;
+    private final PriorityClass[] planClasses;
+    private final AtomicLong theoreticalArrival;
+    private volatile Scale scale;
+
+    public PriorityAdmission(PriorityProperties properties, RateLimitPolicyRegistry policies,
+                             RateLimitConfigProvider configProvider, MeterRegistry registry) {
+        this(properties, policies, configProvider, registry, System::nanoTime);
+    }
+
+    PriorityAdmission(PriorityProperties properties, RateLimitPolicyRegistry policies,
+                      RateLimitConfigProvider configProvider, MeterRegistry registry, LongSupplier nanoClock) {
+        if (properties.getCapacity() < 1 || properties.getPeriod().isZero() || properties.getPeriod().isNegative()) {
+            throw new IllegalArgumentException("Priority pool needs a positive capacity and period");
+        }
+        this.configProvider = configProvider;
+        this.nanoClock = nanoClock;
+        this.capacity = properties.getCapacity();
+        this.periodNanos = properties.getPeriod().toNanos();
+        this.header = properties.getHeader();
+        List<PriorityProperties.TrafficClass> configured = properties.getClasses();
+        this.classes = new PriorityClass[configured.size()];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new PriorityClass(configured.get(i), i, registry);
+        }
+        PriorityClass defaultClass = byName(properties.getDefaultClass(), true);
+        this.planClasses = new PriorityClass[policies.planCount()];
+        for (int plan = 0; plan < planClasses.length; plan++) {
+            String name = properties.getPlans().get(policies.planName(plan));
+            planClasses[plan] = name == null ? defaultClass : byName(name, true);
+        }
+        this.scale = scaleFor(configProvider.getRateLimitConfig());
+        this.theoreticalArrival = new AtomicLong(nanoClock.getAsLong());
+        Gauge.builder("rate_limit.priority.capacity", this, admission -> admission.scale().capacity())
+                .description("Requests per period the admission pool currently allows")
+                .register(registry);
+        log.info("Priority classes {} sharing {} requests per {}", List.of(classes), capacity, properties.getPeriod());
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Class of the plan's callers, or the class named by {@code requested} if that is lower.
+     */
+    public PriorityClass resolve(int plan, String requested) {
+        PriorityClass planClass = planClasses[plan];
+        if (requested != null) {
+            PriorityClass requestedClass = byName(requested, false);
+            if (requestedClass != null && requestedClass.getRank() > planClass.getRank()) {
+                return requestedClass;
+            }
+        }
+        return planClass;
+    }
+
+    /**
+     * Tokens a request worth {@code cost} is charged in the class: at most the share of the pool
+     * the class may use, so an expensive request can still be admitted.
+     */
+    public long charge(PriorityClass priority, long cost) {
+        Scale current = scale();
+        return Math.min(cost, Math.max(1, current.tolerance()[priority.getRank()] / current.intervalNanos()));
+    }
+
+    /**
+     * Takes {@code tokens} from the pool for the class, waiting in the class's queue if the pool
+     * will have room soon enough. A rejected probe carries the wait until the class would fit.
+     */
+    public ConsumptionProbe acquire(PriorityClass priority, long tokens) {
+        Scale current = scale();
+        long interval = current.intervalNanos();
+        long tolerance = current.tolerance()[priority.getRank()];
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long arrival = theoreticalArrival.get();
+            long start = Math.max(arrival, now);
+            long next = start + tokens * interval;
+            long excess = next - now - tolerance;
+            if (excess <= 0) {
+                if (theoreticalArrival.compareAndSet(arrival, next)) {
+                    priority.recordAdmitted();
+                    return ConsumptionProbe.consumed(-excess / interval, next - now);
+                }
+                continue;
+            }
+            if (excess > priority.maxWaitNanos() || !priority.enterQueue()) {
+                priority.recordShed();
+                return ConsumptionProbe.rejected(Math.max(0, (now + tolerance - start) / interval), excess, excess);
+            }
+            if (!theoreticalArrival.compareAndSet(arrival, next)) {
+                priority.leaveQueue();
+                continue;
+            }
+            try {
+                if (!await(now + excess)) {
+                    refund(tokens);
+                    priority.recordShed();
+                    return ConsumptionProbe.rejected(0, excess, excess);
+                }
+            } finally {
+                priority.leaveQueue();
+            }
+            priority.recordQueued();
+            return ConsumptionProbe.consumed(0, next - nanoClock.getAsLong());
+        }
+    }
+
+    /**
+     * Returns tokens of a request another limit rejected, or that turned out cheaper.
+     */
+    public void refund(long tokens) {
+        theoreticalArrival.addAndGet(-tokens * scale().intervalNanos());
+    }
+
+    /**
+     * Charges tokens after the fact, for a request that turned out more expensive.
+     */
+    public void removeTokens(long tokens) {
+        long interval = scale().intervalNanos();
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, nanoClock.getAsLong()) + tokens * interval;
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Requests per period the pool currently admits, reported as the limit in response headers.
+     */
+    public long getCapacity() {
+        return scale().capacity();
+    }
+
+    private boolean await(long deadline) {
+        long remaining;
+        while ((remaining = deadline - nanoClock.getAsLong()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Scale scale() {
+        RateLimitConfigValues config = configProvider.getRateLimitConfig();
+        Scale current = scale;
+        if (current.config() != config) {
+            current = scaleFor(config);
+            scale = current;
+        }
+        return current;
+    }
+
+    private Scale scaleFor(RateLimitConfigValues config) {
+        double factor = Math.min(1.0, (double) config.getLimit() / DynamicRateLimitCalculator.BASE_LIMIT);
+        long scaled = Math.max(1, Math.round(capacity * factor));
+        long interval = Math.max(1, periodNanos / scaled);
+        long[] tolerance = new long[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            tolerance[i] = Math.round(scaled * (1 - classes[i].reserve())) * interval;
+        }
+        return new Scale(config, scaled, interval, tolerance);
+    }
+
+    private PriorityClass byName(String name, boolean required) {
+        for (PriorityClass priority : classes) {
+            if (priority.getName().equalsIgnoreCase(name)) {
+                return priority;
+            }
+        }
+        if (required) {
+            throw new IllegalArgumentException("Unknown priority class '" + name + "', configured classes are "
+                    + List.of(classes));
+        }
+        return null;
+    }
+
+    private record Scale(RateLimitConfigValues config, long capacity, long intervalNanos, long[] tolerance) {
+    }
+}
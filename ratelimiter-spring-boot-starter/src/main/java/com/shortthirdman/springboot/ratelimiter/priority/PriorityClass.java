@@ -0,0 +1,99 @@
+package com.shortthirdman.springboot.ratelimiter.priority;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A compiled priority class with its wait queue and meters. Lower ranks are higher priorities.
+ */
+public final class PriorityClass {
+
+    private final String name;
+    private final int rank;
+    private final double reserve;
+    private final long maxWaitNanos;
+    private final int queueSize;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter admitted;
+    private final Counter queued;
+    private final Counter shed;
+
+    PriorityClass(PriorityProperties.TrafficClass properties, int rank, MeterRegistry registry) {
+        if (properties.getReserve() < 0 || properties.getReserve() >= 1) {
+            throw new IllegalArgumentException("Reserve of priority class '" + properties.getName()
+                    + "' must be in [0, 1), got " + properties.getReserve());
+        }
+        this.name = properties.getName();
+        this.rank = rank;
+        this.reserve = properties.getReserve();
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+        this.queueSize = Math.max(0, properties.getQueueSize());
+        this.admitted = counter(registry, "admitted");
+        this.queued = counter(registry, "queued");
+        this.shed = counter(registry, "shed");
+        Gauge.builder("rate_limit.priority.waiting", waiting, AtomicInteger::get)
+                .description("Requests waiting for the admission pool")
+                .tag("class", name)
+                .register(registry);
+    }
+
+    private Counter counter(MeterRegistry registry, String outcome) {
+        return Counter.builder("rate_limit.priority.requests")
+                .description("Requests by priority class and admission outcome")
+                .tag("class", name)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    double reserve() {
+        return reserve;
+    }
+
+    long maxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    boolean enterQueue() {
+        while (true) {
+            int current = waiting.get();
+            if (current >= queueSize) {
+                return false;
+            }
+            if (waiting.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void leaveQueue() {
+        waiting.decrementAndGet();
+    }
+
+    void recordAdmitted() {
+        admitted.increment();
+    }
+
+    void recordQueued() {
+        queued.increment();
+    }
+
+    void recordShed() {
+        shed.increment();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,66 @@
+package com.shortthirdman.springboot.ratelimiter.priority;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Priority classes sharing a node-wide admission pool. Each class leaves a share of the pool to
+ * the classes above it, so as the pool drains, and it shrinks with the dynamic limit under load,
+ * the lowest class is shed first. The class comes from the client's plan; a header can lower it.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.priority")
+public class PriorityProperties {
+
+    private boolean enabled = false;
+
+    // names a class; it can only lower a client's priority, e.g. for its batch jobs
+    private String header = "X-Priority";
+
+    // requests per period the node admits at full health
+    private long capacity = 1000;
+
+    private Duration period = Duration.ofSeconds(1);
+
+    private String defaultClass = "standard";
+
+    // plan name -> class name
+    private Map<String, String> plans = new LinkedHashMap<>();
+
+    // highest priority first
+    private List<TrafficClass> classes = new ArrayList<>(List.of(
+            new TrafficClass("critical", 0, Duration.ofMillis(200), 64),
+            new TrafficClass("standard", 0.2, Duration.ZERO, 0),
+            new TrafficClass("batch", 0.5, Duration.ZERO, 0)));
+
+    @Data
+    public static class TrafficClass {
+
+        private String name;
+
+        // share of the pool this class never takes, kept for the classes above it
+        private double reserve;
+
+        // how long a request may wait for the pool instead of being rejected right away
+        private Duration maxWait = Duration.ZERO;
+
+        // requests that may wait at once; waiting holds a worker thread
+        private int queueSize;
+
+        public TrafficClass() {
+        }
+
+        public TrafficClass(String name, double reserve, Duration maxWait, int queueSize) {
+            this.name = name;
+            this.reserve = reserve;
+            this.maxWait = maxWait;
+            this.queueSize = queueSize;
+        }
+    }
+}
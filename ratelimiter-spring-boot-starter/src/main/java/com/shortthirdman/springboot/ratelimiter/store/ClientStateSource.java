@@ -0,0 +1,31 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+
+/**
+ * Per-client bucket levels that can be written to a {@link StateSnapshot}.
+ */
+public interface ClientStateSource {
+
+    /**
+     * Section name in the snapshot; the same name restores the state after a restart.
+     */
+    String snapshotName();
+
+    /**
+     * Reports every client whose bucket is not full. Must not block request threads.
+     */
+    void forEachClient(Visitor visitor);
+
+    @FunctionalInterface
+    interface Visitor {
+
+        /**
+         * @param fingerprint {@link ClientKey#fingerprint} of the client
+         * @param tokens      tokens currently available
+         * @param capacity    tokens the bucket holds when full
+         * @param refillNanos time the bucket takes to refill from empty
+         */
+        void accept(long fingerprint, long tokens, long capacity, long refillNanos);
+    }
+}
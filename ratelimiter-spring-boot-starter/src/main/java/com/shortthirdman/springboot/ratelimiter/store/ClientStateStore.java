@@ -0,0 +1,221 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded per-client state, such as token buckets, keyed by client id.
+ * <p>
+ * Entries expire once they have been untouched long enough for their bucket to be full again,
+ * so expiry never hands a client more than waiting would. Past {@code maxSize} entries, or
+ * {@code maxWeight} estimated bytes, Caffeine's frequency-based admission keeps hot clients and
+ * evicts one-off keys first. A bucket evicted for size while not full leaves a tombstone holding
+ * the evicted state itself in a fixed-size table, and a client that comes back before the bucket
+ * would have refilled gets that state back, so flooding the store cannot reset a bucket. States
+ * refill by time, so the returning client is credited the refill earned meanwhile, and every
+ * bandwidth of a multi-limit state keeps its own level. Tombstones are lossy: a slot taken over
+ * by another key just forgets the older one.
+ * <p>
+ * Levels restored from a {@link StateSnapshot} are handed out the same way, to the first
+ * request of each client after a restart.
+ */
+public class ClientStateStore<V> implements ClientStateSource {
+
+    /**
+     * Passed to the entry factory when nothing is remembered about the client.
+     */
+    public static final long FULL = -1;
+
+    private final String name;
+    private final Cache<ClientKey, V> cache;
+    private final Ticker ticker;
+    private final ToLongFunction<V> nanosToFull;
+    private final ToLongFunction<V> availableTokens;
+    private final ToLongFunction<V> capacity;
+    private final AtomicReferenceArray<Tombstone<V>> tombstones;
+    private final int tombstoneMask;
+    private final Counter restored;
+    private volatile RestoredClients snapshot;
+
+    ClientStateStore(String name, long maxSize, long maxWeight, long bytesPerEntry, int tombstoneSlots,
+                     ToLongFunction<V> nanosToFull, ToLongFunction<V> availableTokens, ToLongFunction<V> capacity,
+                     RestoredClients snapshot, MeterRegistry registry, Ticker ticker) {
+        this.name = name;
+        this.ticker = ticker;
+        this.nanosToFull = nanosToFull;
+        this.availableTokens = availableTokens;
+        this.capacity = capacity;
+        this.snapshot = snapshot;
+        int slots = tombstoneSlots <= 0 ? 0 : Integer.highestOneBit(tombstoneSlots - 1) << 1;
+        this.tombstones = new AtomicReferenceArray<>(Math.max(1, slots));
+        this.tombstoneMask = slots - 1;
+
+        Caffeine<ClientKey, V> builder = Caffeine.newBuilder()
+                .recordStats()
+                .ticker(ticker)
+                .expireAfter(new UntilFull())
+                .evictionListener((ClientKey key, V value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && key != null && value != null) {
+                        remember(key, value);
+                    }
+                });
+        if (maxWeight > 0) {
+            // weighing every entry at least maxWeight / maxSize keeps both bounds in force
+            long minWeight = Math.max(1, maxWeight / Math.max(1, maxSize));
+            builder.maximumWeight(maxWeight)
+                    .weigher((ClientKey key, V value) ->
+                            (int) Math.min(Integer.MAX_VALUE, Math.max(minWeight, bytesPerEntry + key.extraBytes())));
+        } else {
+            builder.maximumSize(maxSize);
+        }
+        this.cache = builder.build();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        this.restored = Counter.builder("rate_limit.store.restored")
+                .description("Clients that resumed from a remembered bucket level after eviction or restart")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    /**
+     * Returns the client's entry: the state evicted from a tombstone, or a new one created with
+     * {@code factory}. The factory receives the client's level restored from a snapshot, or {@link #FULL}.
+     */
+    public V get(ClientKey clientId, LongFunction<V> factory) {
+        return cache.get(clientId, key -> {
+            V evicted = fromTombstone(key.fingerprint());
+            if (evicted != null) {
+                restored.increment();
+                return evicted;
+            }
+            return factory.apply(restore(key));
+        });
+    }
+
+    public V getIfPresent(ClientKey clientId) {
+        return cache.getIfPresent(clientId);
+    }
+
+    /**
+     * Drops every entry, tombstone and restored level, deliberately resetting all clients.
+     */
+    public void invalidateAll() {
+        snapshot = null;
+        cache.invalidateAll();
+        for (int i = 0; i < tombstones.length(); i++) {
+            tombstones.set(i, null);
+        }
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Runs pending evictions now instead of on a later access.
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @Override
+    public String snapshotName() {
+        return name;
+    }
+
+    @Override
+    public void forEachClient(Visitor visitor) {
+        // a weakly consistent walk over the map view, which neither locks nor counts as an access
+        cache.asMap().forEach((key, value) -> {
+            long tokens = availableTokens.applyAsLong(value);
+            long full = capacity.applyAsLong(value);
+            if (tokens < full) {
+                visitor.accept(key.fingerprint(), tokens, full, nanosToFull.applyAsLong(value));
+            }
+        });
+    }
+
+    /**
+     * Longest time any bandwidth of the configuration needs to refill from empty.
+     */
+    public static long nanosToFull(BucketConfiguration configuration) {
+        long nanos = 0;
+        for (Bandwidth bandwidth : configuration.getBandwidths()) {
+            long refills = (bandwidth.getCapacity() + bandwidth.getRefillTokens() - 1) / bandwidth.getRefillTokens();
+            nanos = Math.max(nanos, refills * bandwidth.getRefillPeriodNanos());
+        }
+        return nanos;
+    }
+
+    private void remember(ClientKey key, V value) {
+        // a full bucket is what a new client gets anyway; its tombstone would only push out a drained one
+        if (tombstoneMask < 0 || availableTokens.applyAsLong(value) >= capacity.applyAsLong(value)) {
+            return;
+        }
+        long fingerprint = key.fingerprint();
+        tombstones.set((int) fingerprint & tombstoneMask,
+                new Tombstone<>(fingerprint, value, ticker.read() + nanosToFull.applyAsLong(value)));
+    }
+
+    private long restore(ClientKey key) {
+        RestoredClients restoredClients = snapshot;
+        if (restoredClients == null) {
+            return FULL;
+        }
+        long tokens = restoredClients.take(key.fingerprint());
+        if (tokens == FULL && restoredClients.isExpired()) {
+            snapshot = null;
+        }
+        if (tokens != FULL) {
+            restored.increment();
+        }
+        return tokens;
+    }
+
+    private V fromTombstone(long fingerprint) {
+        if (tombstoneMask < 0) {
+            return null;
+        }
+        int slot = (int) fingerprint & tombstoneMask;
+        Tombstone<V> tombstone = tombstones.get(slot);
+        if (tombstone == null || tombstone.fingerprint != fingerprint
+                || !tombstones.compareAndSet(slot, tombstone, null)
+                || ticker.read() - tombstone.fullAtNanos >= 0) {
+            return null;
+        }
+        return tombstone.value;
+    }
+
+    private record Tombstone<V>(long fingerprint, V value, long fullAtNanos) {
+    }
+
+    private final class UntilFull implements Expiry<ClientKey, V> {
+
+        @Override
+        public long expireAfterCreate(ClientKey key, V value, long currentTime) {
+            return nanosToFull.applyAsLong(value);
+        }
+
+        @Override
+        public long expireAfterUpdate(ClientKey key, V value, long currentTime, long currentDuration) {
+            return nanosToFull.applyAsLong(value);
+        }
+
+        @Override
+        public long expireAfterRead(ClientKey key, V value, long currentTime, long currentDuration) {
+            return nanosToFull.applyAsLong(value);
+        }
+    }
+}
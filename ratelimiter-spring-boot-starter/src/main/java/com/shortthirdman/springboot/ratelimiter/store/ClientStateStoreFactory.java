@@ -0,0 +1,130 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Creates {@link ClientStateStore}s sharing the configured bounds and meter registry, and keeps
+ * track of everything that goes into a {@link StateSnapshot}. When snapshots are enabled the
+ * previous one is read up front, so each store, including ones created lazily, starts from its
+ * section of it.
+ * <p>
+ * The factory also owns the time source of client state: bucket refills, and idle expiry of
+ * entries, follow its nano clock, the system clock unless a simulation supplies its own.
+ */
+@Slf4j
+public class ClientStateStoreFactory {
+
+    private final ClientStoreProperties properties;
+    private final MeterRegistry registry;
+    private final List<ClientStateSource> sources = new CopyOnWriteArrayList<>();
+    private final Map<String, LongSupplier> settings = new ConcurrentHashMap<>();
+    private final StateSnapshot restored;
+    private final LongSupplier nanoClock;
+    private final Ticker ticker;
+
+    public ClientStateStoreFactory(ClientStoreProperties properties, MeterRegistry registry) {
+        this(properties, registry, null);
+    }
+
+    /**
+     * @param nanoClock time source for client state, or {@code null} for the system clock
+     */
+    public ClientStateStoreFactory(ClientStoreProperties properties, MeterRegistry registry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.registry = registry;
+        this.nanoClock = nanoClock;
+        this.ticker = nanoClock == null ? Ticker.systemTicker() : nanoClock::getAsLong;
+        this.restored = properties.getSnapshot().isEnabled() ? readSnapshot(properties.getSnapshot().getPath()) : null;
+    }
+
+    /**
+     * @param name            tag for the store's cache metrics and its snapshot section, unique per registry
+     * @param bytesPerEntry   estimated heap per entry with an address key
+     * @param nanosToFull     time after which an untouched entry's bucket is full again
+     * @param availableTokens tokens left in an entry's bucket
+     * @param capacity        tokens in an entry's bucket when full
+     */
+    public <V> ClientStateStore<V> create(String name, long bytesPerEntry, ToLongFunction<V> nanosToFull,
+                                          ToLongFunction<V> availableTokens, ToLongFunction<V> capacity) {
+        long maxWeight = properties.getMaxWeight() == null ? 0 : properties.getMaxWeight().toBytes();
+        ClientStateStore<V> store = new ClientStateStore<>(name, properties.getMaxSize(), maxWeight, bytesPerEntry,
+                properties.getTombstones(), nanosToFull, availableTokens, capacity, indexed(restoredClients(name)), registry, ticker);
+        sources.add(store);
+        return store;
+    }
+
+    /**
+     * Clock that limiters keeping their own client state should refill by, or {@code null} for the
+     * system clock.
+     */
+    public LongSupplier nanoClock() {
+        return nanoClock;
+    }
+
+    /**
+     * Adds client state kept outside a {@link ClientStateStore} to future snapshots.
+     */
+    public void register(ClientStateSource source) {
+        sources.add(source);
+    }
+
+    /**
+     * Adds a value, such as a tuned limit, to future snapshots.
+     */
+    public void registerSetting(String name, LongSupplier value) {
+        settings.put(name, value);
+    }
+
+    /**
+     * The snapshot's section of that name, or {@code null}. Each section is handed out once.
+     */
+    public RestoredClients restoredClients(String name) {
+        return restored == null ? null : restored.takeSection(name);
+    }
+
+    public OptionalLong restoredSetting(String name) {
+        return restored == null ? OptionalLong.empty() : restored.setting(name);
+    }
+
+    /**
+     * Writes the current state of every store, registered source and setting.
+     *
+     * @return number of client records written
+     */
+    public long writeSnapshot(Path path) throws IOException {
+        return StateSnapshot.write(path, Map.copyOf(settings), List.copyOf(sources));
+    }
+
+    private static RestoredClients indexed(RestoredClients clients) {
+        return clients == null ? null : clients.indexed();
+    }
+
+    private static StateSnapshot readSnapshot(Path path) {
+        if (!Files.exists(path)) {
+            log.info("No limiter snapshot at {}, starting with full buckets", path);
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            StateSnapshot snapshot = StateSnapshot.read(path);
+            log.info("Read limiter snapshot {} in {} ms", path, (System.nanoTime() - start) / 1_000_000);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable limiter snapshot {}, starting with full buckets", path, e);
+            return null;
+        }
+    }
+}
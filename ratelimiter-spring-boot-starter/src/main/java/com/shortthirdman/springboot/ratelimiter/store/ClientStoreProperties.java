@@ -0,0 +1,39 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Bounds applied to every per-client state store.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.client-store")
+public class ClientStoreProperties {
+
+    private long maxSize = 1_000_000;
+
+    // estimated heap per store; unset means only max-size applies
+    private DataSize maxWeight;
+
+    // buckets evicted for size that are kept until they would have refilled, see ClientStateStore
+    private int tombstones = 65_536;
+
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * Periodic snapshot of bucket levels and the dynamic limit, restored on the next start.
+     */
+    @Data
+    public static class Snapshot {
+
+        private boolean enabled = false;
+
+        private Path path = Path.of("ratelimiter-state.bin");
+
+        private Duration interval = Duration.ofSeconds(30);
+    }
+}
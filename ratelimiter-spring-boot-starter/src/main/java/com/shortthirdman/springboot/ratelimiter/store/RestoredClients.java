@@ -0,0 +1,132 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bucket levels of one snapshot section as packed {@code long} records: fingerprint, tokens and
+ * capacity, refill time. Records are kept in file order, so bulk restores such as
+ * {@code PrimitiveTokenBucketEngine}'s walk them sequentially; per-client lookups first build an
+ * open-addressing index of record numbers with {@link #indexed()}.
+ * <p>
+ * Levels are credited with the refill earned since the snapshot was taken, at the bucket's
+ * average rate, so a client resuming after a restart sees about what it would have seen had
+ * the process kept running. Each client is handed out at most once, and the whole section
+ * lapses once every bucket in it would have refilled.
+ */
+public final class RestoredClients {
+
+    static final int LONGS_PER_RECORD = 3;
+
+    private static final VarHandle RECORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long TAKEN = -1L;
+    private static final long INT_MASK = 0xffff_ffffL;
+
+    private final long[] records;
+    private final int size;
+    private final long snapshotNanos;
+    private final long longestRefillNanos;
+    // record number + 1 per slot, 0 for a free slot
+    private int[] index;
+    private int mask;
+
+    RestoredClients(long[] records, long snapshotNanos) {
+        this.records = records;
+        this.size = records.length / LONGS_PER_RECORD;
+        this.snapshotNanos = snapshotNanos;
+        long longest = 0;
+        for (int i = 2; i < records.length; i += LONGS_PER_RECORD) {
+            longest = Math.max(longest, records[i]);
+        }
+        this.longestRefillNanos = longest;
+    }
+
+    /**
+     * Builds the fingerprint index {@link #take} needs, once.
+     */
+    public synchronized RestoredClients indexed() {
+        if (index != null) {
+            return this;
+        }
+        // at most three quarters full so probe chains stay short and always end at a free slot
+        int slots = Integer.highestOneBit(Math.max(2, size + size / 3) - 1) << 1;
+        int[] table = new int[slots];
+        int slotMask = slots - 1;
+        for (int record = 0; record < size; record++) {
+            long fingerprint = records[record * LONGS_PER_RECORD];
+            int slot = (int) fingerprint & slotMask;
+            while (table[slot] != 0 && records[(table[slot] - 1) * LONGS_PER_RECORD] != fingerprint) {
+                slot = (slot + 1) & slotMask;
+            }
+            if (table[slot] == 0) {
+                table[slot] = record + 1;
+            }
+        }
+        this.mask = slotMask;
+        this.index = table;
+        return this;
+    }
+
+    /**
+     * Claims the client's restored level, or returns {@link ClientStateStore#FULL} if the
+     * snapshot has none or its bucket has refilled since. Requires {@link #indexed()}.
+     */
+    public long take(long fingerprint) {
+        long now = System.nanoTime();
+        if (isExpired(now)) {
+            return ClientStateStore.FULL;
+        }
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            int record = index[slot];
+            if (record == 0) {
+                return ClientStateStore.FULL;
+            }
+            int offset = (record - 1) * LONGS_PER_RECORD;
+            if (records[offset] == fingerprint) {
+                long level = (long) RECORDS.getVolatile(records, offset + 1);
+                if (level == TAKEN || !RECORDS.compareAndSet(records, offset + 1, level, TAKEN)) {
+                    return ClientStateStore.FULL;
+                }
+                return tokensAt(level, records[offset + 2], now);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Visits every client not yet taken whose bucket is still short of full, with its current level.
+     */
+    public void forEach(ClientStateSource.Visitor visitor) {
+        long now = System.nanoTime();
+        for (int offset = 0; offset < records.length; offset += LONGS_PER_RECORD) {
+            long level = (long) RECORDS.getVolatile(records, offset + 1);
+            if (level == TAKEN) {
+                continue;
+            }
+            long tokens = tokensAt(level, records[offset + 2], now);
+            if (tokens != ClientStateStore.FULL) {
+                visitor.accept(records[offset], tokens, level & INT_MASK, records[offset + 2]);
+            }
+        }
+    }
+
+    public boolean isExpired() {
+        return isExpired(System.nanoTime());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private boolean isExpired(long now) {
+        return now - snapshotNanos >= longestRefillNanos;
+    }
+
+    private long tokensAt(long level, long refillNanos, long now) {
+        long elapsed = Math.max(0, now - snapshotNanos);
+        long capacity = level & INT_MASK;
+        long tokens = (level >>> 32) + (long) ((double) capacity * elapsed / Math.max(1, refillNanos));
+        return tokens >= capacity ? ClientStateStore.FULL : tokens;
+    }
+}
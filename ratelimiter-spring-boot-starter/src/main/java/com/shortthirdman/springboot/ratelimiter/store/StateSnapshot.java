@@ -0,0 +1,197 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Binary snapshot of limiter state: named settings such as the current dynamic limit, and one
+ * section of bucket levels per {@link ClientStateSource}. Only buckets short of full are written,
+ * 24 bytes each (fingerprint, tokens and capacity as ints, refill time). The file is written
+ * through a channel to a temporary sibling and moved into place, so readers never see it half
+ * written, and read back through a single read-only mapping.
+ */
+public final class StateSnapshot {
+
+    private static final int MAGIC = 0x524C5354; // "RLST"
+    // 2: records keyed by ClientKey fingerprints instead of hashes of the key string
+    private static final int VERSION = 2;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int RECORD_BYTES = 24;
+
+    private final Map<String, Long> settings;
+    private final Map<String, RestoredClients> sections;
+
+    private StateSnapshot(Map<String, Long> settings, Map<String, RestoredClients> sections) {
+        this.settings = settings;
+        this.sections = sections;
+    }
+
+    public OptionalLong setting(String name) {
+        Long value = settings.get(name);
+        return value == null ? OptionalLong.empty() : OptionalLong.of(value);
+    }
+
+    /**
+     * Hands out a section once; later calls for the same name return {@code null}.
+     */
+    public synchronized RestoredClients takeSection(String name) {
+        return sections.remove(name);
+    }
+
+    public static StateSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " exceeds 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " limiter snapshot: " + path);
+            }
+            long ageMillis = Math.max(0, System.currentTimeMillis() - buffer.getLong());
+            long snapshotNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ageMillis);
+
+            Map<String, Long> settings = new HashMap<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                settings.put(readName(buffer), buffer.getLong());
+            }
+            Map<String, RestoredClients> sections = new HashMap<>();
+            for (int i = buffer.getInt(); i > 0; i--) {
+                String name = readName(buffer);
+                long count = buffer.getLong();
+                if (count < 0 || count * RECORD_BYTES > buffer.remaining()) {
+                    throw new IOException("Truncated snapshot section " + name + " in " + path);
+                }
+                // big-endian tokens and capacity ints read as one long are exactly the packed level
+                long[] records = new long[Math.toIntExact(count * RestoredClients.LONGS_PER_RECORD)];
+                buffer.asLongBuffer().get(records);
+                buffer.position(buffer.position() + records.length * Long.BYTES);
+                sections.put(name, new RestoredClients(records, snapshotNanos));
+            }
+            return new StateSnapshot(settings, sections);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Writes the settings and the current levels of every source, replacing {@code path}.
+     *
+     * @return number of client records written
+     */
+    public static long write(Path path, Map<String, LongSupplier> settings,
+                             Collection<? extends ClientStateSource> sources) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter writer = new SectionWriter(channel);
+            ByteBuffer buffer = writer.buffer;
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+            buffer.putInt(settings.size());
+            for (Map.Entry<String, LongSupplier> setting : settings.entrySet()) {
+                writer.ensure(Short.BYTES + setting.getKey().length() * 3 + Long.BYTES);
+                putName(buffer, setting.getKey());
+                buffer.putLong(setting.getValue().getAsLong());
+            }
+            writer.ensure(Integer.BYTES);
+            buffer.putInt(sources.size());
+            for (ClientStateSource source : sources) {
+                records += writer.section(source);
+            }
+            writer.flush();
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records;
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putName(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static final class SectionWriter implements ClientStateSource.Visitor {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private long count;
+        private IOException failure;
+
+        private SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private long section(ClientStateSource source) throws IOException {
+            ensure(Short.BYTES + source.snapshotName().length() * 3 + Long.BYTES);
+            putName(buffer, source.snapshotName());
+            // the count is patched in once the source has been walked
+            flush();
+            long countPosition = channel.position();
+            buffer.putLong(0);
+            count = 0;
+            source.forEachClient(this);
+            if (failure != null) {
+                throw failure;
+            }
+            flush();
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, count), countPosition);
+            return count;
+        }
+
+        @Override
+        public void accept(long fingerprint, long tokens, long capacity, long refillNanos) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                ensure(RECORD_BYTES);
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            buffer.putLong(fingerprint)
+                    .putInt((int) Math.max(0, Math.min(Integer.MAX_VALUE, tokens)))
+                    .putInt((int) Math.max(0, Math.min(Integer.MAX_VALUE, capacity)))
+                    .putLong(refillNanos);
+            count++;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
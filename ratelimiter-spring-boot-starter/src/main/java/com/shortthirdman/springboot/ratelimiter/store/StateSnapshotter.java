@@ -0,0 +1,50 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a {@link StateSnapshot} every {@code ratelimiter.client-store.snapshot.interval} and once
+ * more on shutdown. Snapshots run on their own thread and only read bucket state, so the
+ * request path never waits on them.
+ */
+@Slf4j
+public class StateSnapshotter {
+
+    private final ClientStateStoreFactory stores;
+    private final Path path;
+    private final ScheduledExecutorService scheduler;
+
+    public StateSnapshotter(ClientStateStoreFactory stores, ClientStoreProperties properties) {
+        this.stores = stores;
+        this.path = properties.getSnapshot().getPath();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimiter-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = properties.getSnapshot().getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void snapshot() {
+        long start = System.nanoTime();
+        try {
+            long clients = stores.writeSnapshot(path);
+            log.debug("Wrote {} client levels to {} in {} ms", clients, path, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Error writing limiter snapshot to {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        snapshot();
+    }
+}
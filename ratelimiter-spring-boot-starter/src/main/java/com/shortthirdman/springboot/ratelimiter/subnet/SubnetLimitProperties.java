@@ -0,0 +1,52 @@
+package com.shortthirdman.springboot.ratelimiter.subnet;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits on whole networks rather than single addresses, and CIDR blocks that are always allowed,
+ * always denied or limited differently. Of several matching blocks the longest prefix wins.
+ */
+@Data
+@ConfigurationProperties(prefix = "ratelimiter.subnet")
+public class SubnetLimitProperties {
+
+    // each level limits every network of its size, e.g. one level per /24 and /64 and one per /16 and /48
+    private List<Level> levels = new ArrayList<>();
+
+    // never limited
+    private List<String> allow = new ArrayList<>();
+
+    // rejected with 403 before any bucket is touched
+    private List<String> deny = new ArrayList<>();
+
+    // a block with one bucket of its own instead of the levels, e.g. a known carrier-grade NAT range
+    private List<PrefixOverride> overrides = new ArrayList<>();
+
+    @Data
+    public static class Level {
+
+        private int ipv4Prefix = 24;
+
+        private int ipv6Prefix = 64;
+
+        private List<RateLimitPolicyProperties.Bandwidth> limits = new ArrayList<>();
+
+        private LimitAlgorithm algorithm = LimitAlgorithm.TOKEN_BUCKET;
+    }
+
+    @Data
+    public static class PrefixOverride {
+
+        private List<String> blocks = new ArrayList<>();
+
+        private List<RateLimitPolicyProperties.Bandwidth> limits = new ArrayList<>();
+
+        private LimitAlgorithm algorithm = LimitAlgorithm.TOKEN_BUCKET;
+    }
+}
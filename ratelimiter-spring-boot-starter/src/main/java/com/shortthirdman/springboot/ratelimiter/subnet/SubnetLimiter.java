@@ -0,0 +1,111 @@
+package com.shortthirdman.springboot.ratelimiter.subnet;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.key.PrefixTrie;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compiles {@link SubnetLimitProperties} into a {@link PrefixTrie} at startup. One lookup per
+ * request decides whether the client's network is allowed, denied, overridden or limited by the
+ * configured levels, before any per-client bucket is looked up or created. An attacker rotating
+ * through the addresses of an IPv6 /64 still draws on the one /64 bucket.
+ */
+@Slf4j
+public class SubnetLimiter {
+
+    private static final int[] NO_PREFIXES = new int[0];
+    private static final RateLimitPolicy[] NO_POLICIES = new RateLimitPolicy[0];
+
+    private final PrefixTrie<SubnetRule> rules = new PrefixTrie<>();
+    private final SubnetRule levels;
+    private final List<RateLimitPolicy> compiled = new ArrayList<>();
+    private final SubnetRule unlimited = new SubnetRule(SubnetRule.Action.LIMIT, NO_POLICIES, NO_PREFIXES, NO_PREFIXES, -1);
+
+    public SubnetLimiter(SubnetLimitProperties properties, ClientStateStoreFactory stores) {
+        // widest networks first, so a flood from one range is shed by the fewest, largest buckets
+        List<SubnetLimitProperties.Level> configured = new ArrayList<>(properties.getLevels());
+        configured.removeIf(level -> level.getLimits().isEmpty());
+        configured.sort(Comparator.comparingInt(SubnetLimitProperties.Level::getIpv4Prefix)
+                .thenComparingInt(SubnetLimitProperties.Level::getIpv6Prefix));
+        RateLimitPolicy[] policies = new RateLimitPolicy[configured.size()];
+        int[] ipv4Prefixes = new int[configured.size()];
+        int[] ipv6Prefixes = new int[configured.size()];
+        for (int i = 0; i < policies.length; i++) {
+            SubnetLimitProperties.Level level = configured.get(i);
+            if (level.getIpv4Prefix() < 0 || level.getIpv4Prefix() > 32 || level.getIpv6Prefix() < 0 || level.getIpv6Prefix() > 128) {
+                throw new IllegalArgumentException("Subnet level prefixes out of range: /" + level.getIpv4Prefix() + ", /" + level.getIpv6Prefix());
+            }
+            ipv4Prefixes[i] = level.getIpv4Prefix();
+            ipv6Prefixes[i] = level.getIpv6Prefix();
+            policies[i] = new RateLimitPolicy("subnet:/" + ipv4Prefixes[i] + ",/" + ipv6Prefixes[i],
+                    level.getAlgorithm().create(RateLimitPolicy.configuration(level.getLimits()), stores.nanoClock()), stores);
+        }
+        this.levels = new SubnetRule(SubnetRule.Action.LIMIT, policies, ipv4Prefixes, ipv6Prefixes, -1);
+        compiled.addAll(List.of(policies));
+
+        List<SubnetLimitProperties.PrefixOverride> overrides = properties.getOverrides();
+        for (int i = 0; i < overrides.size(); i++) {
+            SubnetLimitProperties.PrefixOverride override = overrides.get(i);
+            RateLimitPolicy[] policy = {new RateLimitPolicy("subnet:override:" + i,
+                    override.getAlgorithm().create(RateLimitPolicy.configuration(override.getLimits()), stores.nanoClock()), stores)};
+            compiled.add(policy[0]);
+            for (String block : override.getBlocks()) {
+                rules.put(block, new SubnetRule(SubnetRule.Action.LIMIT, policy, NO_PREFIXES, NO_PREFIXES,
+                        PrefixTrie.prefixLength(block)));
+            }
+        }
+        SubnetRule allow = new SubnetRule(SubnetRule.Action.ALLOW, NO_POLICIES, NO_PREFIXES, NO_PREFIXES, -1);
+        properties.getAllow().forEach(block -> rules.put(block, allow));
+        // added last, so a block listed twice is denied
+        SubnetRule deny = new SubnetRule(SubnetRule.Action.DENY, NO_POLICIES, NO_PREFIXES, NO_PREFIXES, -1);
+        properties.getDeny().forEach(block -> rules.put(block, deny));
+
+        log.info("Subnet limits at {} levels, {} CIDR rules", policies.length, rules.size());
+    }
+
+    /**
+     * Policies of the configured levels followed by those of the prefix overrides.
+     */
+    public List<RateLimitPolicy> policies() {
+        return compiled;
+    }
+
+    /**
+     * Rule for the client's network. Keys without an address are only subject to per-client limits.
+     */
+    public SubnetRule match(ClientKey address) {
+        if (!address.hasAddress()) {
+            return unlimited;
+        }
+        if (rules.isEmpty()) {
+            return levels;
+        }
+        SubnetRule rule = rules.find(address);
+        return rule != null ? rule : levels;
+    }
+
+    /**
+     * Returns what every level below {@code admittedLevels} charged for a request worth {@code cost}.
+     */
+    public void refund(SubnetRule rule, int admittedLevels, ClientKey address, long cost) {
+        for (int level = 0; level < admittedLevels; level++) {
+            RateLimitPolicy policy = rule.policy(level);
+            policy.addTokens(rule.key(level, address), policy.charge(cost));
+        }
+    }
+
+    /**
+     * Corrects every level of the rule from the estimated to the measured cost of a finished request.
+     */
+    public void reprice(SubnetRule rule, ClientKey address, long estimated, long measured) {
+        for (int level = 0; level < rule.levels(); level++) {
+            rule.policy(level).reprice(rule.key(level, address), estimated, measured);
+        }
+    }
+}
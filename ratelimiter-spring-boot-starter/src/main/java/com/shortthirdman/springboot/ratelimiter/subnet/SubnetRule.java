@@ -0,0 +1,53 @@
+package com.shortthirdman.springboot.ratelimiter.subnet;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+
+/**
+ * What applies to the network a client is in: allowed, denied, or a list of network limits
+ * ordered from the widest network to the narrowest.
+ */
+public final class SubnetRule {
+
+    enum Action {
+        LIMIT, ALLOW, DENY
+    }
+
+    private final Action action;
+    private final RateLimitPolicy[] policies;
+    private final int[] ipv4Prefixes;
+    private final int[] ipv6Prefixes;
+    // prefix length of an override block, whose addresses all share one bucket; -1 for the levels
+    private final int blockBits;
+
+    SubnetRule(Action action, RateLimitPolicy[] policies, int[] ipv4Prefixes, int[] ipv6Prefixes, int blockBits) {
+        this.action = action;
+        this.policies = policies;
+        this.ipv4Prefixes = ipv4Prefixes;
+        this.ipv6Prefixes = ipv6Prefixes;
+        this.blockBits = blockBits;
+    }
+
+    public boolean isAllowed() {
+        return action == Action.ALLOW;
+    }
+
+    public boolean isDenied() {
+        return action == Action.DENY;
+    }
+
+    public int levels() {
+        return policies.length;
+    }
+
+    public RateLimitPolicy policy(int level) {
+        return policies[level];
+    }
+
+    /**
+     * Bucket key of the client's network at the level.
+     */
+    public ClientKey key(int level, ClientKey address) {
+        return blockBits >= 0 ? address.network(blockBits) : address.network(ipv4Prefixes[level], ipv6Prefixes[level]);
+    }
+}
@@ -0,0 +1,192 @@
+package com.shortthirdman.springboot.ratelimiter.web;
+
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rate limit headers and rejections for the servlet interceptors and the WebFlux filter.
+ * Rejections are the hottest path under attack, so header values for small numbers are cached
+ * strings and 429 bodies are precomputed bytes; only numbers outside the cached range cost an
+ * allocation. The status is set directly instead of through {@code sendError}, which would
+ * dispatch to the container's error page.
+ * <p>
+ * Sends {@code Retry-After} and the IETF {@code RateLimit-Limit}, {@code RateLimit-Remaining} and
+ * {@code RateLimit-Reset} fields (draft-ietf-httpapi-ratelimit-headers), next to the older
+ * {@code X-Rate-Limit-*} headers existing clients read. Times are whole seconds, rounded up so a
+ * client that waits as told is not rejected again. {@code RateLimit-Reset} is the probe's reset,
+ * which the policies take from the same tightest bandwidth as the limit; on a rejection it is
+ * never shorter than {@code Retry-After}, since a slower bandwidth may be the one that ran out.
+ */
+public final class RateLimitResponses {
+
+    public static final String LIMIT = "RateLimit-Limit";
+    public static final String REMAINING = "RateLimit-Remaining";
+    public static final String RESET = "RateLimit-Reset";
+
+    private static final String LEGACY_LIMIT = "X-Rate-Limit-Limit";
+    private static final String LEGACY_REMAINING = "X-Rate-Limit-Remaining";
+    private static final String LEGACY_RESET = "X-Rate-Limit-Reset";
+    private static final String LEGACY_RETRY_AFTER = "X-Rate-Limit-Retry-After-Seconds";
+
+    private static final int CACHED_NUMBERS = 1024;
+    private static final String[] NUMBERS = new String[CACHED_NUMBERS];
+    private static final byte[][] REJECTION_BODIES = new byte[CACHED_NUMBERS][];
+    private static final byte[] BODY_START = "{\"error\": \"Rate limit exceeded. Try again in ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_MIDDLE = " seconds\", \"retryAfter\": ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_END = "}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DENIED_BODY = "{\"error\": \"Access denied\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final String JSON = MediaType.APPLICATION_JSON_VALUE;
+
+    static {
+        for (int i = 0; i < CACHED_NUMBERS; i++) {
+            NUMBERS[i] = Integer.toString(i).intern();
+            REJECTION_BODIES[i] = rejectionBody(i);
+        }
+    }
+
+    private RateLimitResponses() {
+    }
+
+    /**
+     * Headers of an admitted request.
+     *
+     * @param limit capacity of the limit the probe came from, or a negative value if unknown
+     */
+    public static void addHeaders(HttpServletResponse response, long limit, ConsumptionProbe probe) {
+        String remaining = number(probe.getRemainingTokens());
+        String reset = number(secondsUntil(probe.getNanosToWaitForReset()));
+        if (limit >= 0) {
+            String limitValue = number(limit);
+            response.addHeader(LIMIT, limitValue);
+            response.addHeader(LEGACY_LIMIT, limitValue);
+        }
+        response.addHeader(REMAINING, remaining);
+        response.addHeader(RESET, reset);
+        response.addHeader(LEGACY_REMAINING, remaining);
+        response.addHeader(LEGACY_RESET, reset);
+    }
+
+    /**
+     * Answers 429 with {@code Retry-After} and a JSON body, without error-page dispatch.
+     *
+     * @param limit capacity of the limit that rejected, or a negative value if unknown
+     */
+    public static void reject(HttpServletResponse response, long limit, ConsumptionProbe probe) throws IOException {
+        long retryAfter = secondsUntil(probe.getNanosToWaitForRefill());
+        String retryAfterValue = number(retryAfter);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.addHeader(HttpHeaders.RETRY_AFTER, retryAfterValue);
+        response.addHeader(LEGACY_RETRY_AFTER, retryAfterValue);
+        if (limit >= 0) {
+            response.addHeader(LIMIT, number(limit));
+        }
+        response.addHeader(REMAINING, NUMBERS[0]);
+        response.addHeader(RESET, number(Math.max(retryAfter, secondsUntil(probe.getNanosToWaitForReset()))));
+        write(response, rejectionBody(retryAfter));
+    }
+
+    /**
+     * Answers 403 for a denied client.
+     */
+    public static void deny(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        write(response, DENIED_BODY);
+    }
+
+    public static void addHeaders(HttpHeaders headers, long limit, ConsumptionProbe probe) {
+        String remaining = number(probe.getRemainingTokens());
+        String reset = number(secondsUntil(probe.getNanosToWaitForReset()));
+        if (limit >= 0) {
+            String limitValue = number(limit);
+            headers.add(LIMIT, limitValue);
+            headers.add(LEGACY_LIMIT, limitValue);
+        }
+        headers.add(REMAINING, remaining);
+        headers.add(RESET, reset);
+        headers.add(LEGACY_REMAINING, remaining);
+        headers.add(LEGACY_RESET, reset);
+    }
+
+    public static Mono<Void> reject(ServerHttpResponse response, long limit, ConsumptionProbe probe) {
+        long retryAfter = secondsUntil(probe.getNanosToWaitForRefill());
+        String retryAfterValue = number(retryAfter);
+        HttpHeaders headers = response.getHeaders();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        headers.add(HttpHeaders.RETRY_AFTER, retryAfterValue);
+        headers.add(LEGACY_RETRY_AFTER, retryAfterValue);
+        if (limit >= 0) {
+            headers.add(LIMIT, number(limit));
+        }
+        headers.add(REMAINING, NUMBERS[0]);
+        headers.add(RESET, number(Math.max(retryAfter, secondsUntil(probe.getNanosToWaitForReset()))));
+        byte[] body = rejectionBody(retryAfter);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(body.length);
+        // wrap shares the cached array; the buffer is read-only as far as the response is concerned
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Decimal text of a non-negative number, cached for small values.
+     */
+    public static String number(long value) {
+        return value >= 0 && value < CACHED_NUMBERS ? NUMBERS[(int) value] : Long.toString(value);
+    }
+
+    static long secondsUntil(long nanos) {
+        // rounded up without overflowing for the Long.MAX_VALUE of requests no bucket can ever fit
+        return nanos <= 0 ? 0 : (nanos - 1) / 1_000_000_000 + 1;
+    }
+
+    static byte[] rejectionBody(long retryAfter) {
+        if (retryAfter >= 0 && retryAfter < CACHED_NUMBERS && REJECTION_BODIES[(int) retryAfter] != null) {
+            return REJECTION_BODIES[(int) retryAfter];
+        }
+        int digits = digits(retryAfter);
+        byte[] body = new byte[BODY_START.length + BODY_MIDDLE.length + BODY_END.length + 2 * digits];
+        int position = copy(BODY_START, body, 0);
+        position = writeDigits(retryAfter, digits, body, position);
+        position = copy(BODY_MIDDLE, body, position);
+        position = writeDigits(retryAfter, digits, body, position);
+        copy(BODY_END, body, position);
+        return body;
+    }
+
+    private static void write(HttpServletResponse response, byte[] body) throws IOException {
+        response.setContentType(JSON);
+        response.setContentLength(body.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+    }
+
+    private static int copy(byte[] source, byte[] target, int position) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int writeDigits(long value, int digits, byte[] target, int position) {
+        for (int i = position + digits - 1; i >= position; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+}
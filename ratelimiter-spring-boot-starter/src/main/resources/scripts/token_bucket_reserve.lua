@@ -0,0 +1,33 @@
+-- KEYS[1] bucket key
+-- ARGV: requested, capacity, refill tokens, refill period (ms)
+-- returns {granted, remaining, ms until next refill}
+local requested = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local refill_tokens = tonumber(ARGV[3])
+local period = tonumber(ARGV[4])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'start')
+local tokens = tonumber(state[1])
+local start = tonumber(state[2])
+if tokens == nil or start == nil then
+    tokens = capacity
+    start = now
+end
+
+local periods = math.floor((now - start) / period)
+if periods > 0 then
+    tokens = math.min(capacity, tokens + periods * refill_tokens)
+    start = start + periods * period
+end
+
+local granted = math.min(tokens, requested)
+tokens = tokens - granted
+
+redis.call('HSET', KEYS[1], 'tokens', tokens, 'start', start)
+-- once the bucket would be full again the key carries no information
+redis.call('PEXPIRE', KEYS[1], period * math.ceil(capacity / refill_tokens) + period)
+
+return {granted, tokens, start + period - now}
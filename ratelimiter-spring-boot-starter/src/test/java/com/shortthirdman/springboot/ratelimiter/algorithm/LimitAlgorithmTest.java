@@ -0,0 +1,124 @@
+package com.shortthirdman.springboot.ratelimiter.algorithm;
+
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitAlgorithmTest {
+
+    private static final long MILLI = Duration.ofMillis(1).toNanos();
+    private static final BucketConfiguration TEN_PER_SECOND = BucketConfiguration.builder()
+            .addLimit(Bandwidth.classic(10, Refill.intervally(10, Duration.ofSeconds(1))))
+            .build();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void onlyTheSlidingLogHoldsEveryWindowToTheCapacity() {
+        Duration second = Duration.ofSeconds(1);
+
+        // a full bucket spent just before the refill, and the refilled one right after it
+        assertEquals(20, busiest(LimitAlgorithm.TOKEN_BUCKET, second, Duration.ZERO));
+        assertEquals(10, busiest(LimitAlgorithm.SLIDING_LOG, second, Duration.ZERO));
+        assertTrue(busiest(LimitAlgorithm.SLIDING_WINDOW, second, Duration.ZERO) < 20);
+        assertTrue(busiest(LimitAlgorithm.GCRA, second, Duration.ZERO) < 20);
+    }
+
+    @Test
+    void slidingWindowAndGcraReleaseWaitingRequestsOneAtATime() {
+        Duration tenMillis = Duration.ofMillis(10);
+        Duration afterFirstBurst = Duration.ofMillis(1500);
+
+        assertEquals(10, busiest(LimitAlgorithm.TOKEN_BUCKET, tenMillis, afterFirstBurst));
+        assertEquals(10, busiest(LimitAlgorithm.SLIDING_LOG, tenMillis, afterFirstBurst));
+        assertEquals(1, busiest(LimitAlgorithm.SLIDING_WINDOW, tenMillis, afterFirstBurst));
+        assertEquals(1, busiest(LimitAlgorithm.GCRA, tenMillis, afterFirstBurst));
+    }
+
+    @ParameterizedTest
+    @EnumSource(LimitAlgorithm.class)
+    void refundsAndAfterTheFactChargesMoveTheLimit(LimitAlgorithm type) {
+        RateLimitAlgorithm<Object> algorithm = create(type, TEN_PER_SECOND);
+        Object state = algorithm.newState(4);
+        assertEquals(4, algorithm.availableTokens(state));
+        assertEquals(10, algorithm.capacity());
+
+        assertTrue(algorithm.tryConsume(state, 4).isConsumed());
+        ConsumptionProbe rejected = algorithm.tryConsume(state, 1);
+        assertFalse(rejected.isConsumed());
+        assertTrue(rejected.getNanosToWaitForRefill() > 0);
+
+        algorithm.addTokens(state, 3);
+        assertEquals(3, algorithm.availableTokens(state));
+        algorithm.removeTokens(state, 5);
+        assertTrue(algorithm.availableTokens(state) <= 0);
+        assertTrue(algorithm.nanosToFull() >= Duration.ofSeconds(1).toNanos());
+
+        // paying off the debt takes up to one more refill
+        clock.addAndGet(2 * algorithm.nanosToFull());
+        assertEquals(10, algorithm.availableTokens(state));
+        assertEquals(10, algorithm.availableTokens(algorithm.newState(ClientStateStore.FULL)));
+    }
+
+    @Test
+    void slidingLogIsOnlyForSmallCapacities() {
+        BucketConfiguration large = BucketConfiguration.builder()
+                .addLimit(Bandwidth.simple(10_000, Duration.ofMinutes(1)))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> LimitAlgorithm.SLIDING_LOG.create(large));
+    }
+
+    /**
+     * Most admissions within any {@code window} of a client retrying every millisecond, counting
+     * from {@code after} its first request.
+     */
+    private int busiest(LimitAlgorithm type, Duration window, Duration after) {
+        List<Long> admitted = admissions(type, Duration.ofSeconds(5));
+        admitted.removeIf(at -> at < after.toNanos());
+        int busiest = 0;
+        int from = 0;
+        for (int to = 0; to < admitted.size(); to++) {
+            while (admitted.get(to) - admitted.get(from) >= window.toNanos()) {
+                from++;
+            }
+            busiest = Math.max(busiest, to - from + 1);
+        }
+        return busiest;
+    }
+
+    private List<Long> admissions(LimitAlgorithm type, Duration duration) {
+        clock.set(0);
+        RateLimitAlgorithm<Object> algorithm = create(type, TEN_PER_SECOND);
+        Object state = algorithm.newState(ClientStateStore.FULL);
+        // an idle start, so the bucket's first refill falls mid-way through the client's traffic
+        clock.set(990 * MILLI);
+        List<Long> admitted = new ArrayList<>();
+        for (long at = clock.get(); at < duration.toNanos(); at = clock.addAndGet(MILLI)) {
+            if (algorithm.tryConsume(state, 1).isConsumed()) {
+                admitted.add(at - 990 * MILLI);
+            }
+        }
+        return admitted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RateLimitAlgorithm<Object> create(LimitAlgorithm type, BucketConfiguration configuration) {
+        return (RateLimitAlgorithm<Object>) type.create(configuration, clock::get);
+    }
+}
@@ -0,0 +1,154 @@
+package com.shortthirdman.springboot.ratelimiter.config;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionStream;
+import com.shortthirdman.springboot.ratelimiter.events.DecisionWindow;
+import com.shortthirdman.springboot.ratelimiter.filter.DynamicRateLimitWebFilter;
+import com.shortthirdman.springboot.ratelimiter.interceptor.CompositeRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimiterEndpoint;
+import com.shortthirdman.springboot.ratelimiter.priority.PriorityAdmission;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskSchedulingAutoConfiguration;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitConfigurationTest {
+
+    private static final AutoConfigurations LIMITERS = AutoConfigurations.of(RateLimitConfiguration.class,
+            AdaptiveLimitConfiguration.class, PriorityConfiguration.class,
+            DistributedRateLimitConfiguration.class, DecisionEventConfiguration.class, WebMvcConfiguration.class,
+            WebFluxConfiguration.class);
+
+    private final WebApplicationContextRunner servlet = new WebApplicationContextRunner()
+            .withConfiguration(LIMITERS)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void servletApplicationsGetTheCompositeInterceptorAndNothingOptional() {
+        servlet.run(context -> {
+            assertThat(context).hasSingleBean(DynamicRateLimiter.class)
+                    .hasSingleBean(CompositeRateLimitInterceptor.class)
+                    .doesNotHaveBean(DynamicRateLimitWebFilter.class)
+                    .doesNotHaveBean(PriorityAdmission.class)
+                    .doesNotHaveBean(DecisionStream.class)
+                    .doesNotHaveBean(TaskScheduler.class)
+                    .doesNotHaveBean(RateLimiterEndpoint.class);
+            assertThat(context.getBean(DynamicRateLimiter.class).getRefreshInterval()).isEqualTo(Duration.ofSeconds(10));
+        });
+    }
+
+    @Test
+    void propertiesSwitchOnOptionalParts() {
+        servlet.withPropertyValues("ratelimiter.refresh.mode=scheduled", "ratelimiter.refresh.interval=5s",
+                        "ratelimiter.events.enabled=true", "ratelimiter.priority.enabled=true",
+                        "management.endpoints.web.exposure.include=ratelimiter")
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(TaskScheduler.class)
+                            .hasSingleBean(DecisionStream.class)
+                            .hasSingleBean(PriorityAdmission.class)
+                            .hasSingleBean(RateLimiterEndpoint.class);
+                    assertThat(context.getBean(DynamicRateLimiter.class).getRefreshInterval())
+                            .isEqualTo(Duration.ofSeconds(5));
+                });
+    }
+
+    @Test
+    void scheduledRefreshLeavesTheApplicationsTaskSchedulerToBoot() {
+        servlet.withConfiguration(AutoConfigurations.of(TaskSchedulingAutoConfiguration.class))
+                .withUserConfiguration(Scheduling.class)
+                .withPropertyValues("ratelimiter.refresh.mode=scheduled")
+                .run(context -> assertThat(context).hasSingleBean(TaskScheduler.class)
+                        .hasBean("taskScheduler"));
+    }
+
+    @Test
+    void applicationBeansReplaceTheDefaults() {
+        HeavyHitters own = new HeavyHitters(4, 100);
+        BucketSpec globalSpec = new BucketSpec(5, 5, Duration.ofSeconds(1));
+        servlet.withBean(HeavyHitters.class, () -> own)
+                .withBean(BucketSpec.class, () -> globalSpec)
+                .run(context -> {
+                    assertThat(context.getBean(HeavyHitters.class)).isSameAs(own);
+                    assertThat(context.getBean(BucketSpec.class)).isSameAs(globalSpec);
+                    assertThat(context.getBean(Bucket.class).getAvailableTokens()).isEqualTo(5);
+                });
+    }
+
+    @Test
+    void applicationsWithoutActuatorGetTheLimitersAndNoEndpoint() {
+        new WebApplicationContextRunner()
+                .withClassLoader(new FilteredClassLoader("org.springframework.boot.actuate"))
+                .withConfiguration(LIMITERS)
+                .withPropertyValues("management.endpoints.web.exposure.include=ratelimiter")
+                .run(context -> assertThat(context).hasSingleBean(DynamicRateLimiter.class)
+                        .hasSingleBean(MeterRegistry.class)
+                        .hasSingleBean(CompositeRateLimitInterceptor.class)
+                        .doesNotHaveBean(RateLimiterEndpoint.class));
+    }
+
+    @Test
+    void reactiveApplicationsGetTheWebFilterInstead() {
+        new ReactiveWebApplicationContextRunner()
+                .withConfiguration(LIMITERS)
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .run(context -> assertThat(context).hasSingleBean(DynamicRateLimitWebFilter.class)
+                        .doesNotHaveBean(CompositeRateLimitInterceptor.class));
+    }
+
+    @Test
+    void reactiveApplicationsWithoutSpringMvcStillStart() {
+        new ReactiveWebApplicationContextRunner()
+                .withClassLoader(new FilteredClassLoader("org.springframework.web.servlet", "jakarta.servlet"))
+                .withConfiguration(LIMITERS)
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .run(context -> assertThat(context).hasSingleBean(DynamicRateLimitWebFilter.class)
+                        .doesNotHaveBean(CompositeRateLimitInterceptor.class));
+    }
+
+    @Test
+    void redisStoreWithoutRedisOnTheClasspathFailsAtStartup() {
+        servlet.withClassLoader(new FilteredClassLoader(StringRedisTemplate.class))
+                .withPropertyValues("ratelimiter.distributed.enabled=true", "ratelimiter.distributed.store=redis")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().isInstanceOf(BeanCreationException.class)
+                        .rootCause().hasMessageContaining("spring-boot-starter-data-redis"));
+    }
+
+    @Test
+    void redisStoreWithoutAConnectionFactoryFailsAtStartup() {
+        servlet.withPropertyValues("ratelimiter.distributed.enabled=true", "ratelimiter.distributed.store=redis")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().rootCause().hasMessageContaining("needs a RedisConnectionFactory"));
+    }
+
+    @Test
+    void nativeImagesGetTheScriptAndTheDecisionWindows() {
+        RuntimeHints hints = new RuntimeHints();
+        new RateLimiterRuntimeHints().registerHints(hints, getClass().getClassLoader());
+        assertThat(RuntimeHintsPredicates.resource().forResource(RateLimiterRuntimeHints.RESERVE_SCRIPT)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(DecisionWindow.class)).accepts(hints);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableScheduling
+    static class Scheduling {
+    }
+}
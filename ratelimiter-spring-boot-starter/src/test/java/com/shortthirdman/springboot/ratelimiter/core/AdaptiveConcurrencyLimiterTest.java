@@ -0,0 +1,57 @@
+package com.shortthirdman.springboot.ratelimiter.core;
+
+import com.shortthirdman.springboot.ratelimiter.monitoring.AimdLimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.monitoring.GradientLimitAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void whenLimitReached_thenShedUntilReleased() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AimdLimitAlgorithm(2, 1, 10, 500 * MILLI), new SimpleMeterRegistry());
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void whenRequestsFailOrTimeOut_thenAimdBacksOff() {
+        AimdLimitAlgorithm algorithm = new AimdLimitAlgorithm(100, 10, 1000, 500 * MILLI);
+
+        assertEquals(90, algorithm.onSample(MILLI, 90, true));
+        assertEquals(81, algorithm.onSample(600 * MILLI, 81, false));
+        assertEquals(82, algorithm.onSample(MILLI, 81, false));
+        // requests well below the limit do not prove it can grow
+        assertEquals(82, algorithm.onSample(MILLI, 10, false));
+    }
+
+    @Test
+    void whenLatencyInflates_thenGradientShrinksWithinFewSamples() {
+        GradientLimitAlgorithm algorithm = new GradientLimitAlgorithm(100, 10, 1000);
+        for (int i = 0; i < 1000; i++) {
+            algorithm.onSample(10 * MILLI, algorithm.getLimit(), false);
+        }
+        int steadyLimit = algorithm.getLimit();
+        assertTrue(steadyLimit > 100);
+
+        for (int i = 0; i < 20; i++) {
+            algorithm.onSample(50 * MILLI, algorithm.getLimit(), false);
+        }
+        assertTrue(algorithm.getLimit() < steadyLimit / 2);
+    }
+}
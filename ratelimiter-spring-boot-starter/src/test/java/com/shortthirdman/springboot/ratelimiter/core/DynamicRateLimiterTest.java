@@ -0,0 +1,142 @@
+package com.shortthirdman.springboot.ratelimiter.core;
+
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetrics;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DynamicRateLimiterTest {
+
+    @Test
+    void requestsRecalculateTheLimitAtMostOncePerInterval() throws Exception {
+        CountingCalculator calculator = new CountingCalculator(60);
+        DynamicRateLimiter rateLimiter = rateLimiter(calculator, Duration.ofHours(1), false);
+        assertEquals(0, calculator.calls.get(), "nothing runs before the first request");
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = Thread.ofPlatform().start(() -> {
+                for (int request = 0; request < 1000; request++) {
+                    rateLimiter.startRequest();
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, calculator.calls.get());
+        assertEquals(60, rateLimiter.getRateLimitConfig().getLimit());
+
+        // a shorter interval does not wait out the hour in progress
+        rateLimiter.setRefreshInterval(Duration.ofMillis(1));
+        Thread.sleep(5);
+        rateLimiter.startRequest();
+        assertEquals(2, calculator.calls.get());
+    }
+
+    @Test
+    void scheduledRefreshRecalculatesWithoutTraffic() throws Exception {
+        CountingCalculator calculator = new CountingCalculator(60);
+        DynamicRateLimiter rateLimiter = rateLimiter(calculator, Duration.ofMillis(10), true);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (rateLimiter.getRateLimitConfig().getLimit() != 60 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(60, rateLimiter.getRateLimitConfig().getLimit());
+
+        rateLimiter.shutdown();
+        int calls = calculator.calls.get();
+        Thread.sleep(50);
+        assertTrue(calculator.calls.get() <= calls + 1, "at most a run already under way");
+    }
+
+    @Test
+    void onlyVirtualThreadsWaitForTheBucketToRefill() throws Exception {
+        DynamicRateLimiter rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(),
+                new CountingCalculator(1, Duration.ofMillis(50)), new SimpleMeterRegistry(), engineFactory(),
+                100, 1000, Optional.empty());
+        try {
+            ClientKey client = ClientKey.of("10.0.0.1");
+            rateLimiter.startRequest();
+            assertTrue(rateLimiter.consume(client).isConsumed());
+            // a platform thread is turned away at once rather than holding a worker
+            assertFalse(rateLimiter.consume(client).isConsumed());
+
+            AtomicReference<ConsumptionProbe> waited = new AtomicReference<>();
+            Thread.ofVirtual().start(() -> waited.set(rateLimiter.consume(client))).join();
+            assertTrue(waited.get().isConsumed());
+        } finally {
+            rateLimiter.shutdown();
+        }
+    }
+
+    @Test
+    void virtualThreadsAreRejectedWhenTheRefillIsBeyondTheWaitBudget() throws Exception {
+        DynamicRateLimiter rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(),
+                new CountingCalculator(1, Duration.ofHours(1)), new SimpleMeterRegistry(), engineFactory(),
+                100, 1000, Optional.empty());
+        try {
+            ClientKey client = ClientKey.of("10.0.0.1");
+            rateLimiter.startRequest();
+            assertTrue(rateLimiter.consume(client).isConsumed());
+
+            AtomicReference<ConsumptionProbe> rejected = new AtomicReference<>();
+            long start = System.nanoTime();
+            Thread.ofVirtual().start(() -> rejected.set(rateLimiter.consume(client))).join();
+            assertFalse(rejected.get().isConsumed());
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500), "no waiting in vain");
+        } finally {
+            rateLimiter.shutdown();
+        }
+    }
+
+    private static DynamicRateLimiter rateLimiter(DynamicRateLimitCalculator calculator, Duration refreshInterval,
+                                                  boolean scheduledRefresh) {
+        return new DynamicRateLimiter(new SystemMetricsCollector(), calculator, new SimpleMeterRegistry(),
+                engineFactory(), 100, 0, Optional.empty(), refreshInterval, scheduledRefresh);
+    }
+
+    private static RateLimiterEngineFactory engineFactory() {
+        return new RateLimiterEngineFactory("caffeine", 1024, 4, null,
+                new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+    }
+
+    private static final class CountingCalculator extends DynamicRateLimitCalculator {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final int limit;
+        private final Duration period;
+
+        private CountingCalculator(int limit) {
+            this(limit, Duration.ofMinutes(1));
+        }
+
+        private CountingCalculator(int limit, Duration period) {
+            this.limit = limit;
+            this.period = period;
+        }
+
+        @Override
+        public RateLimitConfigValues calculateLimit(SystemMetrics metrics) {
+            calls.incrementAndGet();
+            return new RateLimitConfigValues(limit, period);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.shortthirdman.springboot.ratelimiter.core;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TimeMeter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void tokensParkedInOtherStripesAreTakenBeforeRejecting() throws InterruptedException {
+        StripedBucket bucket = new StripedBucket(central(100), 100, 4, 0.2);
+        consumeOnAnotherThread(bucket);
+
+        assertEquals(99, drain(bucket));
+        assertEquals(0, bucket.availableTokens());
+        assertFalse(bucket.tryConsumeAndReturnRemaining(1).isConsumed());
+    }
+
+    @Test
+    void aRefillAdmitsAtMostTheToleranceOnTopOfTheCapacity() throws InterruptedException {
+        StripedBucket bucket = new StripedBucket(central(100), 100, 4, 0.2);
+        for (int i = 0; i < 4; i++) {
+            consumeOnAnotherThread(bucket);
+        }
+
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        long admitted = drain(bucket);
+        // 4 stripes of up to 5 tokens were parked when the bucket refilled
+        assertTrue(admitted >= 100 && admitted <= 120, "admitted " + admitted);
+    }
+
+    @Test
+    void refundedTokensCanBeSpentAgain() {
+        StripedBucket bucket = new StripedBucket(central(10), 10, 4, 0.5);
+        assertEquals(10, drain(bucket));
+
+        bucket.addTokens(2);
+        assertEquals(2, drain(bucket));
+    }
+
+    private static void consumeOnAnotherThread(StripedBucket bucket) throws InterruptedException {
+        Thread thread = new Thread(() -> bucket.tryConsumeAndReturnRemaining(1));
+        thread.start();
+        thread.join();
+    }
+
+    private static long drain(StripedBucket bucket) {
+        long admitted = 0;
+        while (bucket.tryConsumeAndReturnRemaining(1).isConsumed()) {
+            admitted++;
+        }
+        return admitted;
+    }
+
+    private Bucket central(long capacity) {
+        return Bucket.builder()
+                .withCustomTimePrecision(new TimeMeter() {
+                    @Override
+                    public long currentTimeNanos() {
+                        return clock.get();
+                    }
+
+                    @Override
+                    public boolean isWallClockBased() {
+                        return false;
+                    }
+                })
+                .addLimit(Bandwidth.classic(capacity, Refill.intervally(capacity, Duration.ofMinutes(1))))
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.shortthirdman.springboot.ratelimiter.cost;
+
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestCostEstimatorTest {
+
+    @Test
+    void handlerCostAndBodySizeAddUpToTheMaximum() throws Exception {
+        RequestCostProperties properties = new RequestCostProperties();
+        properties.setBytesPerToken(1024);
+        properties.setMaxCost(50);
+        RequestCostEstimator estimator = new RequestCostEstimator(properties);
+        HandlerMethod search = new HandlerMethod(new CostedController(), CostedController.class.getMethod("search"));
+        HandlerMethod health = new HandlerMethod(new CostedController(), CostedController.class.getMethod("health"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/search");
+        assertEquals(10, estimator.estimate(request, search));
+        assertEquals(1, estimator.estimate(request, health));
+        request.setContent(new byte[3000]);
+        assertEquals(12, estimator.estimate(request, search));
+        request.setContent(new byte[100_000]);
+        assertEquals(50, estimator.estimate(request, search));
+        assertFalse(estimator.isCorrecting());
+
+        // a chunked body's size is unknown until it has been read
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/search");
+        chunked.addHeader("Transfer-Encoding", "chunked");
+        assertEquals(50, estimator.estimate(chunked, health));
+    }
+
+    @Test
+    void hugeContentLengthsAreChargedTheMaximum() throws Exception {
+        RequestCostProperties properties = new RequestCostProperties();
+        properties.setBytesPerToken(1);
+        properties.setMaxCost(Long.MAX_VALUE);
+        RequestCostEstimator estimator = new RequestCostEstimator(properties);
+        HandlerMethod search = new HandlerMethod(new CostedController(), CostedController.class.getMethod("search"));
+        HttpServletRequestWrapper forged = new HttpServletRequestWrapper(new MockHttpServletRequest("POST", "/api/search")) {
+            @Override
+            public long getContentLengthLong() {
+                return Long.MAX_VALUE;
+            }
+        };
+
+        assertEquals(Long.MAX_VALUE, estimator.estimate(forged, search));
+    }
+
+    @Test
+    void measuredCostRoundsHandlerTimeUp() {
+        RequestCostProperties properties = new RequestCostProperties();
+        properties.setTimePerToken(Duration.ofMillis(50));
+        RequestCostEstimator estimator = new RequestCostEstimator(properties);
+
+        assertEquals(1, estimator.measuredCost(0));
+        assertEquals(1, estimator.measuredCost(Duration.ofMillis(50).toNanos()));
+        assertEquals(3, estimator.measuredCost(Duration.ofMillis(101).toNanos()));
+        assertEquals(100, estimator.measuredCost(Duration.ofMinutes(1).toNanos()));
+    }
+
+    @Test
+    void nonPositiveCostsAreRejected() throws Exception {
+        RequestCostEstimator estimator = new RequestCostEstimator(new RequestCostProperties());
+        HandlerMethod free = new HandlerMethod(new CostedController(), CostedController.class.getMethod("free"));
+
+        assertThrows(IllegalStateException.class, () -> estimator.estimate(new MockHttpServletRequest(), free));
+        RequestCostProperties properties = new RequestCostProperties();
+        properties.setDefaultCost(0);
+        assertThrows(IllegalArgumentException.class, () -> new RequestCostEstimator(properties));
+    }
+
+    static class CostedController {
+
+        @RequestCost(10)
+        public void search() {
+        }
+
+        public void health() {
+        }
+
+        @RequestCost(0)
+        public void free() {
+        }
+    }
+}
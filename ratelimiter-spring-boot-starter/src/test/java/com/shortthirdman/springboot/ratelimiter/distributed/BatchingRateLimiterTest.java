@@ -0,0 +1,125 @@
+package com.shortthirdman.springboot.ratelimiter.distributed;
+
+import io.github.bucket4j.ConsumptionProbe;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchingRateLimiterTest {
+
+    private final BucketSpec spec = new BucketSpec(100, 100, Duration.ofMinutes(1));
+    private long now = 0;
+
+    @Test
+    void whenSeveralNodesShareStore_thenClusterAdmitsCapacityWithFewRoundTrips() {
+        InMemoryBucketStore shared = new InMemoryBucketStore(() -> now);
+        AtomicInteger roundTrips = new AtomicInteger();
+        DistributedBucketStore counting = (key, tokens, bucketSpec) -> {
+            roundTrips.incrementAndGet();
+            return shared.tryReserve(key, tokens, bucketSpec);
+        };
+        BatchingRateLimiter nodeA = new BatchingRateLimiter(counting, 10, 2, 0.1, 1000, 1000, () -> now);
+        BatchingRateLimiter nodeB = new BatchingRateLimiter(counting, 10, 2, 0.1, 1000, 1000, () -> now);
+
+        int admitted = 0;
+        for (int i = 0; i < 150; i++) {
+            BatchingRateLimiter node = i % 2 == 0 ? nodeA : nodeB;
+            if (node.tryConsumeAndReturnRemaining("client", 1, spec).isConsumed()) {
+                admitted++;
+            }
+        }
+
+        assertEquals(100, admitted);
+        assertTrue(roundTrips.get() < 50, "round-trips: " + roundTrips.get());
+    }
+
+    @Test
+    void whenStoreUnavailable_thenAdmitOnlyPartitionAllowance() {
+        DistributedBucketStore unreachable = (key, tokens, bucketSpec) -> {
+            throw new IllegalStateException("connection refused");
+        };
+        BatchingRateLimiter node = new BatchingRateLimiter(unreachable, 10, 1, 0.1, 1000, 1000, () -> now);
+
+        int admitted = 0;
+        for (int i = 0; i < 50; i++) {
+            if (node.tryConsumeAndReturnRemaining("client", 1, spec).isConsumed()) {
+                admitted++;
+            }
+        }
+
+        assertEquals(10, admitted);
+        assertFalse(node.isStoreAvailable());
+    }
+
+    @Test
+    void batchesAreATenthOfEachNodesShareOfTheBucket() {
+        BatchingRateLimiter node = new BatchingRateLimiter(new InMemoryBucketStore(() -> now), 10, 4, 0.1, 1000, 1000,
+                () -> now);
+
+        assertEquals(10, node.batchSize(new BucketSpec(1000, 1000, Duration.ofMinutes(1))));
+        assertEquals(2, node.batchSize(new BucketSpec(80, 80, Duration.ofMinutes(1))));
+        // a bucket smaller than the cluster is leased one token at a time
+        assertEquals(1, node.batchSize(new BucketSpec(3, 3, Duration.ofMinutes(1))));
+    }
+
+    @Test
+    void aNodeLeavesMostOfASmallBucketToTheOthers() {
+        InMemoryBucketStore shared = new InMemoryBucketStore(() -> now);
+        BucketSpec small = new BucketSpec(5, 5, Duration.ofMinutes(1));
+        BatchingRateLimiter nodeA = new BatchingRateLimiter(shared, 10, 2, 0.1, 1000, 1000, () -> now);
+        BatchingRateLimiter nodeB = new BatchingRateLimiter(shared, 10, 2, 0.1, 1000, 1000, () -> now);
+
+        assertTrue(nodeA.tryConsumeAndReturnRemaining("client", 1, small).isConsumed());
+        ConsumptionProbe probe = nodeB.tryConsumeAndReturnRemaining("client", 1, small);
+        // each node reserved only the token it needed
+        assertTrue(probe.isConsumed());
+        assertEquals(3, probe.getRemainingTokens());
+    }
+
+    @Test
+    void leasesAreKeptForAtMostMaxLeasesKeys() {
+        BatchingRateLimiter node = new BatchingRateLimiter(new InMemoryBucketStore(() -> now), 10, 1, 0.1, 1000, 100,
+                () -> now);
+
+        for (int i = 0; i < 10_000; i++) {
+            node.tryConsumeAndReturnRemaining("client-" + i, 1, spec);
+        }
+        node.cleanUp();
+
+        assertTrue(node.localLeaseCount() <= 100, "leases: " + node.localLeaseCount());
+    }
+
+    @Test
+    void virtualThreadsWaitingOnARenewalNeverOverAdmit() {
+        InMemoryBucketStore shared = new InMemoryBucketStore(() -> now);
+        DistributedBucketStore slow = (key, tokens, bucketSpec) -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return shared.tryReserve(key, tokens, bucketSpec);
+        };
+        BatchingRateLimiter node = new BatchingRateLimiter(slow, 10, 1, 0.1, 1000, 1000, () -> now);
+        AtomicInteger admitted = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1_000; i++) {
+                executor.execute(() -> {
+                    if (node.tryConsumeAndReturnRemaining("client", 1, spec).isConsumed()) {
+                        admitted.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        assertEquals(100, admitted.get());
+    }
+}
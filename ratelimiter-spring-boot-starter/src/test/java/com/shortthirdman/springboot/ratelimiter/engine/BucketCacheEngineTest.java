@@ -0,0 +1,27 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BucketCacheEngineTest {
+
+    @Test
+    void whenConfigurationChanges_thenBucketsAreKeptAndScaled() {
+        RateLimitConfigValues config = new RateLimitConfigValues(10, Duration.ofMinutes(1));
+        BucketCacheEngine engine = new BucketCacheEngine(() -> config, new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+        engine.tryConsumeAndReturnRemaining("10.0.0.1", 4);
+
+        engine.onConfigurationChange(new RateLimitConfigValues(20, Duration.ofMinutes(1)));
+
+        assertEquals(1, engine.estimatedSize());
+        assertEquals(11, engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+        assertEquals(19, engine.tryConsumeAndReturnRemaining("10.0.0.2", 1).getRemainingTokens());
+    }
+}
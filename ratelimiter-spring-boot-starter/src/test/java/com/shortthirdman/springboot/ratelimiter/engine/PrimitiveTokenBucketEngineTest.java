@@ -0,0 +1,130 @@
+package com.shortthirdman.springboot.ratelimiter.engine;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimitiveTokenBucketEngineTest {
+
+    private final RateLimitConfigValues config = new RateLimitConfigValues(5, Duration.ofMinutes(1));
+
+    @Test
+    void whenLimitExhausted_thenRejectWithRefillWait() {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(() -> config, 1024, 4);
+
+        for (int i = 0; i < 5; i++) {
+            ConsumptionProbe probe = engine.tryConsumeAndReturnRemaining("10.0.0.1", 1);
+            assertTrue(probe.isConsumed());
+            assertEquals(4 - i, probe.getRemainingTokens());
+        }
+
+        ConsumptionProbe rejected = engine.tryConsumeAndReturnRemaining("10.0.0.1", 1);
+        assertFalse(rejected.isConsumed());
+        assertTrue(rejected.getNanosToWaitForRefill() > 0);
+        assertTrue(engine.tryConsumeAndReturnRemaining("10.0.0.2", 1).isConsumed());
+        assertEquals(2, engine.estimatedSize());
+    }
+
+    @Test
+    void whenRestoredFromSnapshot_thenBucketsKeepTheirLevel(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("state.bin");
+        ClientStoreProperties properties = new ClientStoreProperties();
+        properties.getSnapshot().setEnabled(true);
+        properties.getSnapshot().setPath(path);
+        ClientStateStoreFactory before = new ClientStateStoreFactory(properties, new SimpleMeterRegistry());
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(() -> config, 1024, 4);
+        before.register(engine);
+        engine.tryConsumeAndReturnRemaining("10.0.0.1", 3);
+        before.writeSnapshot(path);
+
+        PrimitiveTokenBucketEngine restarted = new PrimitiveTokenBucketEngine(() -> config, 1024, 4);
+        restarted.restore(new ClientStateStoreFactory(properties, new SimpleMeterRegistry()).restoredClients("dynamic"));
+
+        assertEquals(1, restarted.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+        assertEquals(4, restarted.tryConsumeAndReturnRemaining("10.0.0.2", 1).getRemainingTokens());
+    }
+
+    @Test
+    void whenChargedAfterTheFact_thenBucketEmptiesAtMost() {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(() -> config, 1024, 4);
+        engine.tryConsumeAndReturnRemaining("10.0.0.1", 1);
+
+        engine.removeTokens(ClientKey.of("10.0.0.1"), 2);
+        assertEquals(1, engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+        engine.removeTokens(ClientKey.of("10.0.0.1"), 10);
+        assertFalse(engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).isConsumed());
+    }
+
+    @Test
+    void whenInvalidated_thenBucketsStartFull() {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(() -> config, 1024, 4);
+        engine.tryConsumeAndReturnRemaining("10.0.0.1", 5);
+
+        engine.invalidateAll();
+
+        assertEquals(4, engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+    }
+
+    @Test
+    void whenConfigurationChanges_thenRemainingTokensScaleProportionally() {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(() -> config, 1024, 4);
+        engine.tryConsumeAndReturnRemaining("10.0.0.1", 3);
+
+        engine.onConfigurationChange(new RateLimitConfigValues(10, Duration.ofMinutes(1)));
+
+        assertEquals(3, engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+        assertEquals(9, engine.tryConsumeAndReturnRemaining("10.0.0.2", 1).getRemainingTokens());
+    }
+
+    @Test
+    void bucketsUntouchedForSixteenChangesKeepTheirShare() {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(
+                () -> new RateLimitConfigValues(1000, Duration.ofHours(1)), 1024, 4);
+        engine.tryConsumeAndReturnRemaining("10.0.0.1", 500);
+
+        // the generation id has 4 bits, so the last change reuses the id the bucket was counted in
+        for (int i = 0; i < 16; i++) {
+            engine.onConfigurationChange(new RateLimitConfigValues(10, Duration.ofHours(1)));
+        }
+
+        assertEquals(5, engine.availableTokens(ClientKey.of("10.0.0.1")));
+    }
+
+    @Test
+    void reclaimedSlotsStartFullAndKeepTheNewClientsCharges() {
+        // one stripe of 16 slots, every one held by a full bucket
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(
+                () -> new RateLimitConfigValues(2, Duration.ofHours(1)), 1, 1);
+        int fillers = 0;
+        while (engine.estimatedSize() < 16) {
+            engine.tryConsumeAndReturnRemaining("10.0.1." + fillers++, 1);
+        }
+        for (int filler = 0; filler < fillers; filler++) {
+            engine.addTokens(ClientKey.of("10.0.1." + filler), 1);
+        }
+
+        assertEquals(1, engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+        assertEquals(0, engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).getRemainingTokens());
+        assertFalse(engine.tryConsumeAndReturnRemaining("10.0.0.1", 1).isConsumed());
+        assertEquals(16, engine.estimatedSize());
+    }
+
+    @Test
+    void footprintIsFixedByCapacity() {
+        PrimitiveTokenBucketEngine engine = new PrimitiveTokenBucketEngine(() -> config, 1 << 20, 64);
+
+        assertEquals(32, engine.bytesPerClient());
+    }
+}
@@ -0,0 +1,107 @@
+package com.shortthirdman.springboot.ratelimiter.events;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DecisionStreamTest {
+
+    private final AtomicLong now = new AtomicLong(10_000);
+    private final List<DecisionWindow> written = new ArrayList<>();
+    private final DecisionSink sink = written::addAll;
+
+    @Test
+    void decisionsAreAggregatedPerClientAndEndpointUntilTheWindowCloses() throws Exception {
+        DecisionStream stream = stream(64, 10);
+        stream.publish(ClientKey.of("10.0.0.1"), "/api/a", null, 2);
+        stream.publish(ClientKey.of("10.0.0.1"), "/api/a", null, 3);
+        stream.publish(ClientKey.of("10.0.0.1"), "/api/a", "free", 1);
+        stream.publish(ClientKey.of("10.0.0.1"), "/api/a", "dynamic", 1);
+        stream.publish(ClientKey.of("10.0.0.2"), null, "subnet:deny", 0);
+
+        stream.poll();
+        assertTrue(written.isEmpty(), "the window is still open");
+
+        now.addAndGet(1_000);
+        stream.poll();
+        written.sort(Comparator.comparing(DecisionWindow::client));
+        assertEquals(2, written.size());
+        DecisionWindow first = written.get(0);
+        assertEquals(10_000, first.startMillis());
+        assertEquals(11_000, first.endMillis());
+        assertEquals("10.0.0.1", first.client());
+        assertEquals("/api/a", first.endpoint());
+        assertEquals(2, first.allowed());
+        assertEquals(2, first.denied());
+        assertEquals(5, first.tokens());
+        assertEquals(Map.of("free", 1L, "dynamic", 1L), first.deniedBy());
+        assertEquals(DecisionStream.UNMATCHED, written.get(1).endpoint());
+        assertEquals(0, stream.getDropped());
+    }
+
+    @Test
+    void producersDropInsteadOfWaitingWhenTheRingIsFull() throws Exception {
+        DecisionStream stream = stream(4, 10);
+        for (int i = 0; i < 10; i++) {
+            stream.publish(ClientKey.of("10.0.0.1"), "/api/a", null, 1);
+        }
+        assertEquals(6, stream.getDropped());
+
+        stream.shutdown();
+        assertEquals(1, written.size());
+        assertEquals(4, written.get(0).allowed());
+    }
+
+    @Test
+    void clientsBeyondTheKeyLimitShareOneRow() throws Exception {
+        DecisionStream stream = stream(64, 2);
+        for (int i = 1; i <= 5; i++) {
+            stream.publish(ClientKey.of("10.0.0." + i), "/api/a", null, 1);
+        }
+        stream.shutdown();
+
+        assertEquals(3, written.size());
+        DecisionWindow other = written.stream()
+                .filter(window -> window.client().equals(DecisionStream.OTHER_CLIENTS))
+                .findFirst().orElseThrow();
+        assertEquals(3, other.allowed());
+    }
+
+    @Test
+    void fileSinkRollsOverAndKeepsItsHistory(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("decisions.jsonl");
+        RollingFileDecisionSink fileSink = new RollingFileDecisionSink(path, 1, 2);
+        DecisionWindow window = new DecisionWindow(0, 1000, "10.0.0.1", "/api/a", 1, 0, 1, Map.of());
+        for (int i = 0; i < 3; i++) {
+            fileSink.write(List.of(window));
+        }
+        fileSink.close();
+
+        assertFalse(Files.exists(path));
+        assertTrue(Files.readString(directory.resolve("decisions.jsonl.1")).contains("\"client\":\"10.0.0.1\""));
+        assertTrue(Files.exists(directory.resolve("decisions.jsonl.2")));
+        assertFalse(Files.exists(directory.resolve("decisions.jsonl.3")));
+    }
+
+    private DecisionStream stream(int bufferSize, int maxKeysPerWindow) {
+        DecisionEventProperties properties = new DecisionEventProperties();
+        properties.setBufferSize(bufferSize);
+        properties.setWindow(Duration.ofSeconds(1));
+        properties.setMaxKeysPerWindow(maxKeysPerWindow);
+        return new DecisionStream(properties, sink, new SimpleMeterRegistry(), now::get, false);
+    }
+}
@@ -0,0 +1,112 @@
+package com.shortthirdman.springboot.ratelimiter.filter;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetrics;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DynamicRateLimitWebFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DynamicRateLimiter rateLimiter = rateLimiter(Duration.ofHours(1), 0);
+    private final DynamicRateLimitWebFilter filter = new DynamicRateLimitWebFilter(rateLimiter,
+            new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties()), "/api/**");
+    private final AtomicInteger handled = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(handled::incrementAndGet);
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.shutdown();
+    }
+
+    @Test
+    void requestsOverTheLimitAreAnsweredWithoutReachingTheHandler() {
+        MockServerWebExchange admitted = exchange("/api/orders/1");
+        filter.filter(admitted, chain).block();
+        assertEquals(1, handled.get());
+        assertEquals("1", admitted.getResponse().getHeaders().getFirst("X-Rate-Limit-Limit"));
+        assertNull(admitted.getResponse().getStatusCode());
+
+        MockServerWebExchange rejected = exchange("/api/orders/2");
+        filter.filter(rejected, chain).block();
+        assertEquals(1, handled.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("3600", rejected.getResponse().getHeaders().getFirst("Retry-After"));
+    }
+
+    @Test
+    void pathsOutsideThePatternAreNotLimited() {
+        for (int i = 0; i < 3; i++) {
+            filter.filter(exchange("/health"), chain).block();
+        }
+        assertEquals(3, handled.get());
+    }
+
+    @Test
+    void timersAreNotTaggedWithRawPaths() {
+        for (int i = 0; i < 5; i++) {
+            filter.filter(exchange("/api/orders/" + i), chain).block();
+        }
+        assertEquals(5, registry.get("rate_limit.request.duration").tag("path", "UNMATCHED").timers().stream()
+                .mapToLong(timer -> timer.count()).sum());
+        assertEquals(0, registry.find("rate_limit.request.duration").tag("path", "/api/orders/1").timers().size());
+    }
+
+    @Test
+    void aWaitBudgetDelaysRejectedRequestsUntilTheBucketRefills() {
+        DynamicRateLimiter waiting = rateLimiter(Duration.ofMillis(50), 1000);
+        try {
+            DynamicRateLimitWebFilter waitingFilter = new DynamicRateLimitWebFilter(waiting,
+                    new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties()), "/api/**");
+            for (int i = 0; i < 3; i++) {
+                MockServerWebExchange exchange = exchange("/api/orders");
+                waitingFilter.filter(exchange, chain).block(Duration.ofSeconds(5));
+                assertNull(exchange.getResponse().getStatusCode());
+            }
+            assertEquals(3, handled.get());
+        } finally {
+            waiting.shutdown();
+        }
+    }
+
+    private DynamicRateLimiter rateLimiter(Duration period, long maxWaitMillis) {
+        DynamicRateLimitCalculator oneRequestPerPeriod = new DynamicRateLimitCalculator() {
+            @Override
+            public RateLimitConfigValues calculateLimit(SystemMetrics metrics) {
+                return new RateLimitConfigValues(1, period);
+            }
+        };
+        return new DynamicRateLimiter(new SystemMetricsCollector(), oneRequestPerPeriod, registry,
+                new RateLimiterEngineFactory("caffeine", 1024, 4, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())),
+                100, maxWaitMillis, Optional.empty());
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 40000)));
+    }
+}
@@ -0,0 +1,255 @@
+package com.shortthirdman.springboot.ratelimiter.interceptor;
+
+import com.shortthirdman.springboot.ratelimiter.core.AdaptiveConcurrencyLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCost;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostProperties;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.AimdLimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.Limit;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimited;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimitProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompositeRateLimitInterceptorTest {
+
+    private final DynamicRateLimiter rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(),
+            new DynamicRateLimitCalculator(), new SimpleMeterRegistry(),
+            new RateLimiterEngineFactory("caffeine", 1024, 4, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())), 100, 0, Optional.empty());
+    private final RateLimitPolicyRegistry policies = new RateLimitPolicyRegistry(new RateLimitPolicyProperties(),
+            new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+    private final Bucket globalBucket = Bucket.builder()
+            .addLimit(Bandwidth.simple(1, Duration.ofHours(1)))
+            .build();
+    private final CompositeRateLimitInterceptor interceptor = interceptor(new SubnetLimitProperties(), globalBucket);
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.shutdown();
+    }
+
+    @Test
+    void whenGlobalBucketRejects_thenEarlierLimitsGetTheirTokensBack() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new TestController(), TestController.class.getMethod("limited"));
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(request(), admitted, handler));
+        // the exhausted global bucket is the tightest limit
+        assertEquals("1", admitted.getHeader("X-Rate-Limit-Limit"));
+        assertEquals("0", admitted.getHeader("X-Rate-Limit-Remaining"));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request(), rejected, handler));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("3600", rejected.getHeader("Retry-After"));
+        assertEquals("1", rejected.getHeader("RateLimit-Limit"));
+        assertEquals("0", rejected.getHeader("RateLimit-Remaining"));
+        assertEquals("{\"error\": \"Rate limit exceeded. Try again in 3600 seconds\", \"retryAfter\": 3600}",
+                rejected.getContentAsString());
+        // answered directly, not through the container's error page
+        assertNull(rejected.getErrorMessage());
+
+        int plan = policies.resolvePlan(null);
+        assertEquals(3, policies.endpointPolicy(handler, plan)
+                .tryConsumeAndReturnRemaining(ClientKey.of("10.0.0.1"), 1).getRemainingTokens());
+    }
+
+    @Test
+    void madeUpApiKeysShareTheAddressesEndpointLimit() throws Exception {
+        CompositeRateLimitInterceptor roomy = interceptor(new SubnetLimitProperties(),
+                Bucket.builder().addLimit(Bandwidth.simple(1000, Duration.ofHours(1))).build());
+        HandlerMethod handler = new HandlerMethod(new TestController(), TestController.class.getMethod("limited"));
+
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = request();
+            request.addHeader("X-API-Key", "random-" + i);
+            assertTrue(roomy.preHandle(request, new MockHttpServletResponse(), handler));
+        }
+        MockHttpServletRequest request = request();
+        request.addHeader("X-API-Key", "random-5");
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(roomy.preHandle(request, rejected, handler));
+        assertEquals(429, rejected.getStatus());
+    }
+
+    @Test
+    void addressesOfOneIpv6NetworkShareItsBucket() throws Exception {
+        SubnetLimitProperties properties = new SubnetLimitProperties();
+        SubnetLimitProperties.Level level = new SubnetLimitProperties.Level();
+        level.setLimits(List.of(bandwidth(2)));
+        properties.setLevels(List.of(level));
+        properties.setDeny(List.of("198.51.100.0/24"));
+        properties.setAllow(List.of("2001:db8:0:1::1"));
+        CompositeRateLimitInterceptor subnetInterceptor = interceptor(properties,
+                Bucket.builder().addLimit(Bandwidth.simple(1000, Duration.ofHours(1))).build());
+        Object handler = new Object();
+
+        assertTrue(subnetInterceptor.preHandle(request("2001:db8:0:1::a"), new MockHttpServletResponse(), handler));
+        assertTrue(subnetInterceptor.preHandle(request("2001:db8:0:1::b"), new MockHttpServletResponse(), handler));
+        // a fresh address in the same /64 gets no fresh bucket
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(subnetInterceptor.preHandle(request("2001:db8:0:1::c"), rejected, handler));
+        assertEquals(429, rejected.getStatus());
+        assertTrue(subnetInterceptor.preHandle(request("2001:db8:0:2::a"), new MockHttpServletResponse(), handler));
+        assertTrue(subnetInterceptor.preHandle(request("2001:db8:0:1::1"), new MockHttpServletResponse(), handler));
+
+        MockHttpServletResponse denied = new MockHttpServletResponse();
+        assertFalse(subnetInterceptor.preHandle(request("198.51.100.7"), denied, handler));
+        assertEquals(403, denied.getStatus());
+    }
+
+    @Test
+    void expensiveRequestsAreChargedTheirCostAndRepricedWhenTheyComplete() throws Exception {
+        RequestCostProperties costs = new RequestCostProperties();
+        costs.setTimePerToken(Duration.ofHours(1));
+        CompositeRateLimitInterceptor costed = interceptor(new SubnetLimitProperties(),
+                Bucket.builder().addLimit(Bandwidth.simple(1000, Duration.ofHours(1))).build(), costs);
+        HandlerMethod handler = new HandlerMethod(new TestController(), TestController.class.getMethod("expensive"));
+
+        MockHttpServletRequest first = request();
+        assertTrue(costed.preHandle(first, new MockHttpServletResponse(), handler));
+        MockHttpServletRequest second = request();
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        assertTrue(costed.preHandle(second, admitted, handler));
+        assertEquals("2", admitted.getHeader("RateLimit-Remaining"));
+        assertFalse(costed.preHandle(request(), new MockHttpServletResponse(), handler));
+
+        // both finished well within an hour, so each was worth a single token
+        costed.afterCompletion(first, new MockHttpServletResponse(), handler, null);
+        costed.afterCompletion(second, new MockHttpServletResponse(), handler, null);
+        MockHttpServletResponse repriced = new MockHttpServletResponse();
+        assertTrue(costed.preHandle(request(), repriced, handler));
+        assertEquals("4", repriced.getHeader("RateLimit-Remaining"));
+    }
+
+    @Test
+    void requestsCostingMoreThanALimitAreChargedItsCapacity() throws Exception {
+        CompositeRateLimitInterceptor roomy = interceptor(new SubnetLimitProperties(),
+                Bucket.builder().addLimit(Bandwidth.simple(1000, Duration.ofHours(1))).build());
+        HandlerMethod handler = new HandlerMethod(new TestController(), TestController.class.getMethod("oversized"));
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        assertTrue(roomy.preHandle(request(), admitted, handler));
+        assertEquals("0", admitted.getHeader("RateLimit-Remaining"));
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(roomy.preHandle(request(), rejected, handler));
+        // one refill of the endpoint limit, not the wait for tokens the bucket can never hold
+        assertEquals("60", rejected.getHeader("Retry-After"));
+    }
+
+    @Test
+    void requestsShedByTheConcurrencyLimitGetTheirDynamicTokensBack() throws Exception {
+        AdaptiveConcurrencyLimiter oneAtATime = new AdaptiveConcurrencyLimiter(
+                new AimdLimitAlgorithm(1, 1, 1, Duration.ofSeconds(30).toNanos()), new SimpleMeterRegistry());
+        DynamicRateLimiter shedding = new DynamicRateLimiter(new SystemMetricsCollector(),
+                new DynamicRateLimitCalculator(), new SimpleMeterRegistry(),
+                new RateLimiterEngineFactory("caffeine", 1024, 4, null,
+                        new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())), 100, 0,
+                Optional.of(oneAtATime));
+        try {
+            CompositeRateLimitInterceptor limited = interceptor(shedding, new SubnetLimitProperties(),
+                    Bucket.builder().addLimit(Bandwidth.simple(1000, Duration.ofHours(1))).build(),
+                    new RequestCostProperties());
+            Object handler = new Object();
+
+            MockHttpServletRequest first = request();
+            MockHttpServletResponse admitted = new MockHttpServletResponse();
+            assertTrue(limited.preHandle(first, admitted, handler));
+            MockHttpServletResponse shed = new MockHttpServletResponse();
+            assertFalse(limited.preHandle(request(), shed, handler));
+            assertEquals(429, shed.getStatus());
+
+            limited.afterCompletion(first, new MockHttpServletResponse(), handler, null);
+            MockHttpServletResponse next = new MockHttpServletResponse();
+            assertTrue(limited.preHandle(request(), next, handler));
+            // only the two admitted requests were charged
+            assertEquals(Long.parseLong(admitted.getHeader("RateLimit-Remaining")) - 1,
+                    Long.parseLong(next.getHeader("RateLimit-Remaining")));
+        } finally {
+            shedding.shutdown();
+        }
+    }
+
+    private CompositeRateLimitInterceptor interceptor(SubnetLimitProperties subnets, Bucket global) {
+        return interceptor(subnets, global, new RequestCostProperties());
+    }
+
+    private CompositeRateLimitInterceptor interceptor(SubnetLimitProperties subnets, Bucket global,
+                                                      RequestCostProperties costs) {
+        return interceptor(rateLimiter, subnets, global, costs);
+    }
+
+    private CompositeRateLimitInterceptor interceptor(DynamicRateLimiter rateLimiter, SubnetLimitProperties subnets,
+                                                      Bucket global, RequestCostProperties costs) {
+        return new CompositeRateLimitInterceptor(rateLimiter, policies,
+                new SubnetLimiter(subnets, new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry())),
+                new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties()),
+                new RequestCostEstimator(costs), Optional.empty(), new StripedBucket(global), Optional.empty(),
+                new BucketSpec(1, 1, Duration.ofHours(1)), new HeavyHitters(8, 1_000_000), Optional.empty());
+    }
+
+    private static RateLimitPolicyProperties.Bandwidth bandwidth(long capacity) {
+        RateLimitPolicyProperties.Bandwidth bandwidth = new RateLimitPolicyProperties.Bandwidth();
+        bandwidth.setCapacity(capacity);
+        bandwidth.setPeriod(Duration.ofHours(1));
+        return bandwidth;
+    }
+
+    private static MockHttpServletRequest request() {
+        return request("10.0.0.1");
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/limited");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    static class TestController {
+
+        @RateLimited(@Limit(capacity = 5))
+        public void limited() {
+        }
+
+        @RequestCost(4)
+        @RateLimited(@Limit(capacity = 10))
+        public void expensive() {
+        }
+
+        @RequestCost(50)
+        @RateLimited(@Limit(capacity = 10))
+        public void oversized() {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = resolver(List.of(ClientKeyProperties.Part.IP),
+            List.of("10.0.0.0/8", "192.168.0.0/16"));
+
+    @Test
+    void whenPeerIsTrustedProxy_thenRightmostUntrustedHopIsTheClient() {
+        MockHttpServletRequest request = request("10.0.0.5");
+        request.addHeader("X-Forwarded-For", "1.2.3.4, 203.0.113.7 , 10.0.0.9");
+
+        // 1.2.3.4 is whatever the client claimed; 203.0.113.7 is the first address a trusted proxy saw
+        assertEquals(ClientKey.of("203.0.113.7"), resolver.resolve(request));
+    }
+
+    @Test
+    void whenPeerIsNotTrusted_thenForwardingHeadersAreIgnored() {
+        MockHttpServletRequest request = request("198.51.100.1");
+        request.addHeader("X-Forwarded-For", "1.2.3.4");
+        request.addHeader("Forwarded", "for=1.2.3.4");
+
+        assertEquals(ClientKey.of("198.51.100.1"), resolver.resolve(request));
+    }
+
+    @Test
+    void forwardedElementsWithQuotedIpv6AreParsed() {
+        ClientKeyProperties properties = new ClientKeyProperties();
+        properties.setForwardingHeader("Forwarded");
+        ClientKeyResolver forwarded = new ClientKeyResolver(properties, new RateLimitPolicyProperties());
+        MockHttpServletRequest request = request("127.0.0.1");
+        request.addHeader("X-Forwarded-For", "192.0.2.1");
+        request.addHeader("Forwarded", "for=192.0.2.60;proto=http, For=\"[2001:DB8::1]:4711\"");
+
+        assertEquals(ClientKey.of("2001:db8::1"), forwarded.resolve(request));
+    }
+
+    @Test
+    void headerLinesAreWalkedAsOneList() {
+        MockHttpServletRequest request = request("10.0.0.5");
+        request.addHeader("X-Forwarded-For", "203.0.113.7");
+        request.addHeader("X-Forwarded-For", "192.168.1.1, 10.1.1.1");
+
+        assertEquals(ClientKey.of("203.0.113.7"), resolver.resolve(request));
+    }
+
+    @Test
+    void byDefaultOnlyLoopbackProxiesAreTrusted() {
+        ClientKeyResolver defaults = new ClientKeyResolver(new ClientKeyProperties(), new RateLimitPolicyProperties());
+        MockHttpServletRequest local = request("192.168.1.20");
+        local.addHeader("X-Forwarded-For", "203.0.113.7");
+        MockHttpServletRequest proxied = request("127.0.0.1");
+        proxied.addHeader("X-Forwarded-For", "203.0.113.7");
+
+        assertEquals(ClientKey.of("192.168.1.20"), defaults.resolve(local));
+        assertEquals(ClientKey.of("203.0.113.7"), defaults.resolve(proxied));
+    }
+
+    @Test
+    void ipv4AndMappedIpv6AreTheSameClient() {
+        assertEquals(ClientKey.of("192.0.2.1"), ClientKey.of("::ffff:192.0.2.1"));
+        assertEquals(ClientKey.of("2001:db8:0:0:0:0:0:1"), ClientKey.of("2001:db8::1"));
+        assertEquals("2001:db8:0:0:0:0:0:1", ClientKey.of("2001:db8::1").toString());
+        assertEquals("192.0.2.1", ClientKey.of("192.0.2.1").toString());
+        assertFalse(ClientKey.of("not-an-address").hasAddress());
+        assertFalse(ClientKey.of("1.2.3.256").hasAddress());
+        assertFalse(ClientKey.of("1::2::3").hasAddress());
+    }
+
+    @Test
+    void whenKeyCombinesAddressAndApiKey_thenEachPairIsItsOwnClient() {
+        ClientKeyResolver combined = resolver(List.of(ClientKeyProperties.Part.IP, ClientKeyProperties.Part.API_KEY),
+                List.of());
+        MockHttpServletRequest first = request("198.51.100.1");
+        first.addHeader("X-API-Key", "alpha");
+        MockHttpServletRequest second = request("198.51.100.1");
+        second.addHeader("X-API-Key", "beta");
+
+        ClientKey key = combined.resolve(first);
+        assertTrue(key.hasAddress());
+        assertEquals("alpha", key.name());
+        assertNotEquals(key, combined.resolve(second));
+        // without an API key the address alone is used
+        assertEquals(ClientKey.of("198.51.100.1"), combined.resolve(request("198.51.100.1")));
+        // and so it is for a key nobody configured
+        MockHttpServletRequest madeUp = request("198.51.100.1");
+        madeUp.addHeader("X-API-Key", "made-up");
+        assertEquals(ClientKey.of("198.51.100.1"), combined.resolve(madeUp));
+    }
+
+    @Test
+    void cidrBlocksMatchByPrefix() {
+        CidrSet set = CidrSet.parse(List.of("192.168.0.0/16", "fd00::/8"));
+
+        assertTrue(set.contains(ClientKey.of("192.168.44.1")));
+        assertTrue(set.contains(ClientKey.of("fd12:3456::1")));
+        assertFalse(set.contains(ClientKey.of("192.169.0.1")));
+        assertThrows(IllegalArgumentException.class, () -> CidrSet.parse(List.of("10.0.0.0/33")));
+    }
+
+    private static ClientKeyResolver resolver(List<ClientKeyProperties.Part> parts, List<String> trustedProxies) {
+        ClientKeyProperties properties = new ClientKeyProperties();
+        properties.setParts(parts);
+        properties.setTrustedProxies(trustedProxies);
+        RateLimitPolicyProperties policies = new RateLimitPolicyProperties();
+        policies.setApiKeys(Map.of("alpha", "free", "beta", "free"));
+        return new ClientKeyResolver(properties, policies);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/greeting");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,69 @@
+package com.shortthirdman.springboot.ratelimiter.key;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrefixTrieTest {
+
+    @Test
+    void longestMatchingPrefixWins() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        trie.put("10.0.0.0/8", "ten");
+        trie.put("10.1.0.0/16", "ten-one");
+        trie.put("10.1.2.3", "host");
+        trie.put("2001:db8::/32", "doc");
+        trie.put("2001:db8:0:1::/64", "doc-64");
+
+        assertEquals("ten", trie.find(ClientKey.of("10.200.0.1")));
+        assertEquals("ten-one", trie.find(ClientKey.of("10.1.2.4")));
+        assertEquals("host", trie.find(ClientKey.of("10.1.2.3")));
+        assertEquals("doc", trie.find(ClientKey.of("2001:db8:0:2::1")));
+        assertEquals("doc-64", trie.find(ClientKey.of("2001:db8:0:1:ffff::1")));
+        assertNull(trie.find(ClientKey.of("11.0.0.1")));
+        assertNull(trie.find(ClientKey.named("api-key")));
+        assertEquals(5, trie.size());
+    }
+
+    @Test
+    void blocksInsertedInAnyOrderMatchLikeALinearScan() {
+        Random random = new Random(42);
+        List<long[]> blocks = new ArrayList<>();
+        PrefixTrie<Integer> trie = new PrefixTrie<>();
+        for (int i = 0; i < 500; i++) {
+            long high = random.nextLong() & 0xF000_0000_0000_0000L | (random.nextLong() & 0x0000_FFFF_0000_0000L);
+            int bits = random.nextInt(129);
+            trie.put(high, 0, bits, i);
+            blocks.add(new long[]{high & IpAddress.highMask(bits), 0, bits, i});
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long high = random.nextLong() & 0xF000_0000_0000_0000L | (random.nextLong() & 0x0000_FFFF_0000_0000L);
+            long low = random.nextInt(2) == 0 ? 0 : random.nextLong();
+            Integer expected = null;
+            long expectedBits = -1;
+            for (long[] block : blocks) {
+                int bits = (int) block[2];
+                if ((high & IpAddress.highMask(bits)) == block[0] && (low & IpAddress.lowMask(bits)) == block[1]
+                        && bits >= expectedBits) {
+                    // a later put of the same block replaces the value
+                    expected = (int) block[3];
+                    expectedBits = bits;
+                }
+            }
+            assertEquals(expected, trie.find(high, low));
+        }
+    }
+
+    @Test
+    void malformedBlocksAreRejected() {
+        PrefixTrie<String> trie = new PrefixTrie<>();
+        assertThrows(IllegalArgumentException.class, () -> trie.put("10.0.0.0/40", "x"));
+        assertThrows(IllegalArgumentException.class, () -> trie.put("example.com/8", "x"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.shortthirdman.springboot.ratelimiter.load;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails the build when a limiter admits more than its limit allows, strays from the exact model,
+ * or gets slower. Thresholds can be tightened or relaxed per machine with
+ * {@code -Dratelimiter.load.min-accuracy} and {@code -Dratelimiter.load.min-throughput} (requests
+ * per second of interceptor time).
+ */
+class LimiterAccuracyTest {
+
+    private static final double MIN_ACCURACY = Double.parseDouble(System.getProperty("ratelimiter.load.min-accuracy", "0.99"));
+    private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("ratelimiter.load.min-throughput", "20000"));
+    // the other algorithms refill differently from the model by design, so they only need to stay close
+    private static final double MIN_APPROXIMATE_ACCURACY = 0.95;
+
+    static Stream<LoadHarness.Scenario> scenarios() {
+        Duration second = Duration.ofSeconds(1);
+        return Stream.of(
+                new LoadHarness.Scenario("dynamic caffeine", null, "caffeine", 20, second),
+                new LoadHarness.Scenario("dynamic primitive", null, "primitive", 20, second),
+                new LoadHarness.Scenario("plan token-bucket", LimitAlgorithm.TOKEN_BUCKET, "caffeine", 20, second),
+                new LoadHarness.Scenario("plan sliding-window", LimitAlgorithm.SLIDING_WINDOW, "caffeine", 20, second),
+                new LoadHarness.Scenario("plan sliding-log", LimitAlgorithm.SLIDING_LOG, "caffeine", 20, second),
+                new LoadHarness.Scenario("plan gcra", LimitAlgorithm.GCRA, "caffeine", 20, second));
+    }
+
+    @ParameterizedTest
+    @MethodSource("scenarios")
+    void zipfTrafficWithBurstsIsLimitedAccurately(LoadHarness.Scenario scenario) throws Exception {
+        // warms the interceptor up so the measured run is not dominated by the JIT
+        new LoadHarness(scenario).run(zipf(1));
+        LoadHarness.LoadReport report = new LoadHarness(scenario).run(zipf(42));
+        System.out.println(report);
+
+        assertEquals(0, report.overBound(), report::toString);
+        boolean exact = scenario.planAlgorithm() == null || scenario.planAlgorithm() == LimitAlgorithm.TOKEN_BUCKET;
+        assertTrue(report.accuracy() >= (exact ? MIN_ACCURACY : MIN_APPROXIMATE_ACCURACY), report::toString);
+        assertTrue(report.rejectRatio() > 0.1, report::toString);
+        assertTrue(report.throughput() >= MIN_THROUGHPUT, report::toString);
+    }
+
+    @Test
+    void recordedScraperIsHeldToItsLimit() throws Exception {
+        Workload trace;
+        try (InputStreamReader reader = new InputStreamReader(
+                getClass().getResourceAsStream("/load/scraper.csv"), StandardCharsets.UTF_8)) {
+            trace = Workload.recorded("scraper.csv", reader);
+        }
+        LoadHarness.LoadReport report = new LoadHarness(new LoadHarness.Scenario("plan token-bucket",
+                LimitAlgorithm.TOKEN_BUCKET, "caffeine", 10, Duration.ofSeconds(1))).run(trace);
+        System.out.println(report);
+
+        // the scraper gets 10 in each of its 3 seconds, the other clients all of their 12
+        assertEquals(42, report.admitted());
+        assertEquals(report.expected(), report.admitted());
+    }
+
+    private static Workload zipf(long seed) {
+        return Workload.zipf(seed, 5_000, 1.1, 5_000, Duration.ofSeconds(20), Duration.ofSeconds(2), 100);
+    }
+}
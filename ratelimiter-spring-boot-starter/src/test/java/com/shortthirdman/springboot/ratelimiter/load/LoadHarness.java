@@ -0,0 +1,232 @@
+package com.shortthirdman.springboot.ratelimiter.load;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.core.StripedBucket;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostEstimator;
+import com.shortthirdman.springboot.ratelimiter.cost.RequestCostProperties;
+import com.shortthirdman.springboot.ratelimiter.distributed.BucketSpec;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.interceptor.CompositeRateLimitInterceptor;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyProperties;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKeyResolver;
+import com.shortthirdman.springboot.ratelimiter.monitoring.DynamicRateLimitCalculator;
+import com.shortthirdman.springboot.ratelimiter.monitoring.HeavyHitters;
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.monitoring.SystemMetricsCollector;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimitProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a {@link Workload} through a {@link CompositeRateLimitInterceptor} wired like the
+ * application, with every limiter on a {@link SimulatedClock}. One limit of the {@link Scenario}
+ * binds, the others are set out of reach, and each client's admissions are checked against an exact
+ * model of that limit: a bucket of {@code capacity} tokens refilled in full every {@code period},
+ * starting at the client's first request.
+ */
+final class LoadHarness {
+
+    private static final Object HANDLER = new Object();
+    // out of reach, yet within what the primitive engine can pack into a slot
+    private static final int UNREACHED_LIMIT = 1_000_000;
+
+    private final Scenario scenario;
+    private final SimulatedClock clock = new SimulatedClock();
+
+    /**
+     * @param planAlgorithm algorithm of the plan limit, or {@code null} to make the dynamic limit bind
+     * @param engine        dynamic limiter engine, {@code caffeine} or {@code primitive}
+     */
+    record Scenario(String name, LimitAlgorithm planAlgorithm, String engine, int capacity, Duration period) {
+    }
+
+    LoadHarness(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    LoadReport run(Workload workload) throws Exception {
+        List<Workload.Request> requests = workload.requests();
+        Map<String, ClientTally> tallies = new HashMap<>();
+        long[] latencies = new long[requests.size()];
+        long admitted = 0;
+        Limiters limiters = new Limiters(scenario, clock);
+        CompositeRateLimitInterceptor interceptor = limiters.interceptor;
+
+        for (int i = 0; i < requests.size(); i++) {
+            Workload.Request request = requests.get(i);
+            clock.advanceTo(request.atNanos());
+            MockHttpServletRequest http = new MockHttpServletRequest("GET", "/api/load");
+            http.setRemoteAddr(request.client());
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            long start = System.nanoTime();
+            boolean passed = interceptor.preHandle(http, response, HANDLER);
+            if (passed) {
+                interceptor.afterCompletion(http, response, HANDLER, null);
+            }
+            latencies[i] = System.nanoTime() - start;
+
+            ClientTally tally = tallies.computeIfAbsent(request.client(),
+                    client -> new ClientTally(request.atNanos(), scenario.capacity()));
+            tally.offer(request.atNanos(), passed, scenario);
+            if (passed) {
+                admitted++;
+            }
+        }
+
+        // what the limiters retain is what the heap gives back once they are dropped
+        limiters.rateLimiter.shutdown();
+        long withLimiters = usedHeap();
+        interceptor = null;
+        limiters = null;
+        long heapPerClient = Math.max(0, withLimiters - usedHeap()) / Math.max(1, tallies.size());
+
+        long expected = 0;
+        long deviation = 0;
+        long overBound = 0;
+        for (ClientTally tally : tallies.values()) {
+            expected += tally.expected;
+            deviation += Math.abs(tally.admitted - tally.expected);
+            overBound += Math.max(0, tally.admitted - tally.bound(scenario));
+        }
+
+        Arrays.sort(latencies);
+        long totalLatency = 0;
+        for (long latency : latencies) {
+            totalLatency += latency;
+        }
+        return new LoadReport(scenario.name(), workload.name(), requests.size(), tallies.size(), admitted, expected,
+                expected == 0 ? 1 : 1 - (double) deviation / expected, overBound,
+                (double) (requests.size() - admitted) / requests.size(),
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                requests.size() * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, totalLatency), heapPerClient);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The interceptor and everything behind it, wired like the application.
+     */
+    private static final class Limiters {
+
+        private final DynamicRateLimiter rateLimiter;
+        private final CompositeRateLimitInterceptor interceptor;
+
+        private Limiters(Scenario scenario, SimulatedClock clock) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            ClientStateStoreFactory stores = new ClientStateStoreFactory(new ClientStoreProperties(), registry, clock);
+
+            RateLimitPolicyProperties plans = new RateLimitPolicyProperties();
+            if (scenario.planAlgorithm() != null) {
+                RateLimitPolicyProperties.Bandwidth bandwidth = new RateLimitPolicyProperties.Bandwidth();
+                bandwidth.setCapacity(scenario.capacity());
+                bandwidth.setPeriod(scenario.period());
+                RateLimitPolicyProperties.Plan free = new RateLimitPolicyProperties.Plan();
+                free.setLimits(List.of(bandwidth));
+                free.setAlgorithm(scenario.planAlgorithm());
+                plans.setPlans(Map.of("free", free));
+            }
+
+            this.rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(), new DynamicRateLimitCalculator(),
+                    registry, new RateLimiterEngineFactory(scenario.engine(), 1 << 16, 16, null, stores),
+                    100, 0, Optional.empty());
+            // pinned, so the calculator's samples of this machine cannot move the limit mid-run
+            rateLimiter.override(scenario.planAlgorithm() == null
+                    ? new RateLimitConfigValues(scenario.capacity(), scenario.period())
+                    : new RateLimitConfigValues(UNREACHED_LIMIT, scenario.period()));
+
+            long globalCapacity = 1_000_000_000L;
+            Bucket global = Bucket.builder()
+                    .withCustomTimePrecision(clock)
+                    .addLimit(Bandwidth.simple(globalCapacity, Duration.ofMinutes(1)))
+                    .build();
+            this.interceptor = new CompositeRateLimitInterceptor(rateLimiter, new RateLimitPolicyRegistry(plans, stores),
+                    new SubnetLimiter(new SubnetLimitProperties(), stores),
+                    new ClientKeyResolver(new ClientKeyProperties(), plans),
+                    new RequestCostEstimator(new RequestCostProperties()), Optional.empty(), new StripedBucket(global),
+                    Optional.empty(), new BucketSpec(globalCapacity, globalCapacity, Duration.ofMinutes(1)),
+                    new HeavyHitters(32, Long.MAX_VALUE), Optional.empty());
+        }
+    }
+
+    /**
+     * @param accuracy     1 minus the summed per-client difference from the model, relative to the model's admissions
+     * @param overBound    admissions beyond {@code capacity} plus one refill per period each client was active,
+     *                     which no algorithm may exceed
+     * @param throughput   requests per second of interceptor time
+     * @param heapPerClient growth of the live heap over the run, per distinct client
+     */
+    record LoadReport(String scenario, String workload, long requests, long clients, long admitted, long expected,
+                      double accuracy, long overBound, double rejectRatio, long p50Nanos, long p99Nanos,
+                      long p999Nanos, double throughput, long heapPerClient) {
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %8d req %6d clients  admitted %7d / expected %7d  accuracy %.4f  over bound %d"
+                            + "  429s %5.1f%%  p50 %6.1f us  p99 %6.1f us  p99.9 %7.1f us  %,9.0f req/s  ~%d B/client",
+                    scenario, requests, clients, admitted, expected, accuracy, overBound, rejectRatio * 100,
+                    p50Nanos / 1e3, p99Nanos / 1e3, p999Nanos / 1e3, throughput, heapPerClient);
+        }
+    }
+
+    private static final class ClientTally {
+
+        private final long firstNanos;
+        private long lastNanos;
+        private long admitted;
+        // the model bucket
+        private long expected;
+        private long tokens;
+        private long refills;
+
+        private ClientTally(long firstNanos, long capacity) {
+            this.firstNanos = firstNanos;
+            this.tokens = capacity;
+        }
+
+        private void offer(long atNanos, boolean passed, Scenario scenario) {
+            long elapsedPeriods = (atNanos - firstNanos) / scenario.period().toNanos();
+            tokens = Math.min(scenario.capacity(), tokens + (elapsedPeriods - refills) * scenario.capacity());
+            refills = elapsedPeriods;
+            if (tokens > 0) {
+                tokens--;
+                expected++;
+            }
+            if (passed) {
+                admitted++;
+            }
+            lastNanos = atNanos;
+        }
+
+        private long bound(Scenario scenario) {
+            long periodNanos = scenario.period().toNanos();
+            long periods = (lastNanos - firstNanos + periodNanos - 1) / periodNanos;
+            return scenario.capacity() * (1 + periods);
+        }
+    }
+}
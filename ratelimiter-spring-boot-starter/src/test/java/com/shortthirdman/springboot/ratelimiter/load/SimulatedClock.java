@@ -0,0 +1,35 @@
+package com.shortthirdman.springboot.ratelimiter.load;
+
+import io.github.bucket4j.TimeMeter;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Nano clock that only moves when the harness advances it, usable wherever the limiters take a
+ * {@link LongSupplier} or a bucket4j {@link TimeMeter}.
+ */
+final class SimulatedClock implements LongSupplier, TimeMeter {
+
+    private volatile long nanos;
+
+    void advanceTo(long nanos) {
+        if (nanos > this.nanos) {
+            this.nanos = nanos;
+        }
+    }
+
+    @Override
+    public long getAsLong() {
+        return nanos;
+    }
+
+    @Override
+    public long currentTimeNanos() {
+        return nanos;
+    }
+
+    @Override
+    public boolean isWallClockBased() {
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package com.shortthirdman.springboot.ratelimiter.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests in arrival order, each at a simulated time from the start of the run.
+ */
+record Workload(String name, List<Request> requests) {
+
+    record Request(long atNanos, String client) {
+    }
+
+    /**
+     * Poisson arrivals at {@code requestsPerSecond} from {@code clients} clients whose shares follow
+     * a Zipf distribution with the given exponent, plus every {@code burstEvery} one client sending
+     * {@code burstSize} requests at once. The same seed always gives the same requests.
+     */
+    static Workload zipf(long seed, int clients, double exponent, double requestsPerSecond, Duration duration,
+                         Duration burstEvery, int burstSize) {
+        Random random = new Random(seed);
+        double[] cumulative = new double[clients];
+        double sum = 0;
+        for (int rank = 0; rank < clients; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        List<Request> requests = new ArrayList<>();
+        long end = duration.toNanos();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        for (long at = 0; at < end; at += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos)) {
+            int rank = search(cumulative, random.nextDouble() * sum);
+            requests.add(new Request(at, address(rank)));
+        }
+        for (long at = burstEvery.toNanos(); at < end; at += burstEvery.toNanos()) {
+            String client = address(random.nextInt(clients));
+            for (int i = 0; i < burstSize; i++) {
+                requests.add(new Request(at, client));
+            }
+        }
+        // stable, so a burst keeps its place among requests at the same instant
+        requests.sort(Comparator.comparingLong(Request::atNanos));
+        return new Workload("zipf(" + clients + " clients, s=" + exponent + ", " + requestsPerSecond + "/s)", requests);
+    }
+
+    /**
+     * Replays a trace of {@code offsetMillis,client} lines; blank lines and {@code #} comments are skipped.
+     */
+    static Workload recorded(String name, Reader trace) throws IOException {
+        List<Request> requests = new ArrayList<>();
+        try (BufferedReader lines = new BufferedReader(trace)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                requests.add(new Request(TimeUnit.MILLISECONDS.toNanos(Long.parseLong(line.substring(0, comma).strip())),
+                        line.substring(comma + 1).strip()));
+            }
+        }
+        requests.sort(Comparator.comparingLong(Request::atNanos));
+        return new Workload(name, requests);
+    }
+
+    private static int search(double[] cumulative, double target) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String address(int client) {
+        return "10." + (client >>> 16 & 0xff) + "." + (client >>> 8 & 0xff) + "." + (client & 0xff);
+    }
+}
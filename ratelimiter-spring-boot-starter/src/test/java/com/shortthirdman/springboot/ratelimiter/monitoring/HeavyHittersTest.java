@@ -0,0 +1,48 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHittersTest {
+
+    @Test
+    void heaviestClientsStandOutFromALongTail() {
+        HeavyHitters heavyHitters = new HeavyHitters(4, Long.MAX_VALUE);
+        for (int round = 0; round < 100; round++) {
+            heavyHitters.record(ClientKey.of("10.0.0.1"), 5);
+            heavyHitters.record(ClientKey.of("10.0.0.2"), 3);
+            heavyHitters.record(ClientKey.named("batch-key"), 2);
+            for (int tail = 0; tail < 50; tail++) {
+                heavyHitters.record(ClientKey.ofIpv4(0x0b000000 + round * 50 + tail), 1);
+            }
+        }
+
+        List<Map.Entry<ClientKey, Long>> top = heavyHitters.top(3);
+        assertEquals(ClientKey.of("10.0.0.1"), top.get(0).getKey());
+        assertEquals(ClientKey.of("10.0.0.2"), top.get(1).getKey());
+        assertEquals(ClientKey.named("batch-key"), top.get(2).getKey());
+        // count-min never undercounts and the tail shares few cells with the heavy clients
+        assertTrue(top.get(0).getValue() >= 500 && top.get(0).getValue() < 520, top.toString());
+        assertEquals(4, heavyHitters.top(10).size());
+    }
+
+    @Test
+    void countsDecaySoNewHeavyClientsTakeOver() {
+        HeavyHitters heavyHitters = new HeavyHitters(1, 1000);
+        heavyHitters.record(ClientKey.of("10.0.0.1"), 999);
+        heavyHitters.record(ClientKey.of("10.0.0.2"), 1);
+        assertEquals(ClientKey.of("10.0.0.1"), heavyHitters.top(1).get(0).getKey());
+        assertEquals(499, heavyHitters.top(1).get(0).getValue());
+
+        for (int i = 0; i < 3; i++) {
+            heavyHitters.record(ClientKey.of("10.0.0.2"), 300);
+        }
+        assertEquals(ClientKey.of("10.0.0.2"), heavyHitters.top(1).get(0).getKey());
+    }
+}
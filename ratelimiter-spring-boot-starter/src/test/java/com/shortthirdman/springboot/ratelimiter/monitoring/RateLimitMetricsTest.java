@@ -0,0 +1,42 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateLimitMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RateLimitConfigValues config = new RateLimitConfigValues(100, Duration.ofMinutes(1));
+
+    @Test
+    void whenSameEndpointRecorded_thenTimerIsReused() {
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, () -> config, 10);
+
+        Timer first = metrics.timerFor("/api/greeting", "GET", false);
+
+        assertSame(first, metrics.timerFor("/api/greeting", "GET", false));
+        assertNotSame(first, metrics.timerFor("/api/greeting", "GET", true));
+        assertNotSame(first, metrics.timerFor("/api/greeting", "POST", false));
+    }
+
+    @Test
+    void whenEndpointCapReached_thenRecordUnderOverflow() {
+        RateLimitMetrics metrics = new RateLimitMetrics(registry, () -> config, 2);
+
+        metrics.stopTimer(metrics.startTimer(), "/api/a", "GET", false);
+        metrics.stopTimer(metrics.startTimer(), "/api/b", "GET", false);
+        metrics.stopTimer(metrics.startTimer(), "/api/c", "GET", false);
+        metrics.stopTimer(metrics.startTimer(), "/api/d", "GET", false);
+
+        assertEquals(2, registry.get("rate_limit.request.duration")
+                .tag("path", RateLimitMetrics.OVERFLOW_PATH).timer().count());
+        assertEquals(3, registry.get("rate_limit.request.duration").timers().size());
+    }
+}
@@ -0,0 +1,118 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import com.shortthirdman.springboot.ratelimiter.core.DynamicRateLimiter;
+import com.shortthirdman.springboot.ratelimiter.engine.RateLimiterEngineFactory;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimitProperties;
+import com.shortthirdman.springboot.ratelimiter.subnet.SubnetLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterEndpointTest {
+
+    private final ClientStateStoreFactory stores = new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry());
+    private final DynamicRateLimiter rateLimiter = new DynamicRateLimiter(new SystemMetricsCollector(),
+            new SteadyCalculator(), new SimpleMeterRegistry(),
+            new RateLimiterEngineFactory("caffeine", 1024, 4, null, stores), 100, 0, Optional.empty());
+    private final RateLimitPolicyRegistry policies;
+    private final HeavyHitters heavyHitters = new HeavyHitters(8, Long.MAX_VALUE);
+    private final RateLimiterEndpoint endpoint;
+
+    RateLimiterEndpointTest() {
+        RateLimitPolicyProperties properties = new RateLimitPolicyProperties();
+        RateLimitPolicyProperties.Plan free = new RateLimitPolicyProperties.Plan();
+        RateLimitPolicyProperties.Bandwidth bandwidth = new RateLimitPolicyProperties.Bandwidth();
+        bandwidth.setCapacity(10);
+        bandwidth.setPeriod(Duration.ofMinutes(1));
+        free.setLimits(List.of(bandwidth));
+        properties.setPlans(Map.of("free", free));
+        policies = new RateLimitPolicyRegistry(properties, stores);
+        endpoint = new RateLimiterEndpoint(rateLimiter, policies, new SubnetLimiter(new SubnetLimitProperties(), stores),
+                heavyHitters);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.shutdown();
+    }
+
+    @Test
+    void overrideIsAppliedToExistingBucketsInPlace() {
+        ClientKey client = ClientKey.of("10.0.0.1");
+        for (int i = 0; i < 60; i++) {
+            rateLimiter.tryConsume(client);
+        }
+
+        RateLimiterEndpoint.Config pinned = endpoint.override(50, null, null);
+        assertEquals(50, pinned.limit());
+        assertTrue(pinned.overridden());
+        // 40 of 100 left becomes 20 of 50 rather than a fresh bucket
+        assertEquals(19, rateLimiter.tryConsume(client).getRemainingTokens());
+        assertEquals(19, endpoint.client("10.0.0.1").availableTokens().get("dynamic"));
+
+        RateLimiterEndpoint.Config restored = endpoint.clearOverride();
+        assertFalse(restored.overridden());
+        assertEquals(100, restored.limit());
+    }
+
+    @Test
+    void refreshIntervalIsChangedWithoutPinningTheLimit() {
+        RateLimiterEndpoint.Config config = endpoint.override(null, null, 30L);
+
+        assertEquals(30, config.refreshSeconds());
+        assertFalse(config.overridden());
+        assertEquals(Duration.ofSeconds(30), rateLimiter.getRefreshInterval());
+    }
+
+    @Test
+    void summaryReportsRejectRatesAndHeaviestClientsWithoutCreatingState() {
+        int plan = policies.resolvePlan(null);
+        ClientKey client = ClientKey.of("10.0.0.2");
+        for (int i = 0; i < 20; i++) {
+            policies.planPolicy(plan).tryConsumeAndReturnRemaining(client, 1);
+            heavyHitters.record(client, 1);
+        }
+
+        RateLimiterEndpoint.Summary summary = endpoint.summary();
+        RateLimiterEndpoint.PolicyStats stats = summary.policies().get(0);
+        assertEquals("plan:free", stats.name());
+        assertEquals(10, stats.admitted());
+        assertEquals(10, stats.rejected());
+        assertEquals(0.5, stats.rejectRate());
+        assertEquals("10.0.0.2", summary.heaviestClients().get(0).client());
+        assertEquals(20, summary.heaviestClients().get(0).estimatedTokens());
+
+        assertEquals(-1, endpoint.client("10.0.0.3").availableTokens().get("plan:free"));
+        assertEquals(1, policies.planPolicy(plan).estimatedClients());
+    }
+
+    @Test
+    void clientsAreParsedAsTheyAreListed() {
+        assertEquals(ClientKey.of("10.0.0.1").withName("alice"), RateLimiterEndpoint.parse("10.0.0.1|alice"));
+        assertEquals(ClientKey.of("2001:db8::1"), RateLimiterEndpoint.parse("2001:db8::1"));
+        assertEquals(ClientKey.named("key|with|bars"), RateLimiterEndpoint.parse("key|with|bars"));
+    }
+
+    // keeps the scheduled update from moving the limit under a loaded test machine
+    private static final class SteadyCalculator extends DynamicRateLimitCalculator {
+
+        @Override
+        public RateLimitConfigValues calculateLimit(SystemMetrics metrics) {
+            return new RateLimitConfigValues(BASE_LIMIT, Duration.ofMinutes(1));
+        }
+    }
+}
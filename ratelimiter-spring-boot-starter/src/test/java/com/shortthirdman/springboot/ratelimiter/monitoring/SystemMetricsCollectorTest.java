@@ -0,0 +1,72 @@
+package com.shortthirdman.springboot.ratelimiter.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SystemMetricsCollectorTest {
+
+    @Test
+    void whenExecutorBound_thenThreadsAndQueueAreSampled() throws Exception {
+        SystemMetricsCollector collector = new SystemMetricsCollector();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.execute(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            });
+            pool.execute(() -> { });
+            started.await();
+            collector.bindExecutor(pool);
+
+            SystemMetrics metrics = collector.collectMetrics();
+
+            assertEquals(1, metrics.getActiveThreads());
+            assertEquals(1, metrics.getQueueDepth());
+            assertEquals(1.0, metrics.getThreadUtilization());
+            assertTrue(metrics.getMemoryUsage() >= 0.0 && metrics.getMemoryUsage() <= 1.0);
+            assertSame(metrics, collector.getSnapshot());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            collector.shutdown();
+        }
+    }
+
+    @Test
+    void samplesCloseTogetherBarelyMoveTheAverage() {
+        Ewma ewma = new Ewma(TimeUnit.SECONDS.toNanos(30));
+        ewma.update(0.2, 0);
+
+        // a sawtooth peak reported a millisecond later is mostly ignored
+        assertTrue(ewma.update(0.9, TimeUnit.MILLISECONDS.toNanos(1)) < 0.21);
+        // the same reading held for a full time constant moves it most of the way
+        assertTrue(ewma.update(0.9, TimeUnit.SECONDS.toNanos(30)) > 0.6);
+    }
+
+    @Test
+    void whenGcPausesDominate_thenLimitIsHalved() {
+        DynamicRateLimitCalculator calculator = new DynamicRateLimitCalculator();
+
+        RateLimitConfigValues config = calculator.calculateLimit(new SystemMetrics(0.1, 0.1, 0.2, 0, 0, 0));
+
+        assertEquals(50, config.getLimit());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
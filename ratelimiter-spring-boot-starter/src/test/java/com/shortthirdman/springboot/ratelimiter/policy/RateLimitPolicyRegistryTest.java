@@ -0,0 +1,130 @@
+package com.shortthirdman.springboot.ratelimiter.policy;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitPolicyRegistryTest {
+
+    private final RateLimitPolicyRegistry registry = new RateLimitPolicyRegistry(properties(),
+            new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+
+    @Test
+    void whenApiKeyIsUnknown_thenDefaultPlanApplies() {
+        assertEquals("pro", registry.planName(registry.resolvePlan("pro-key")));
+        assertEquals("free", registry.planName(registry.resolvePlan("other-key")));
+        assertEquals("free", registry.planName(registry.resolvePlan(null)));
+        assertTrue(registry.isKnownApiKey("pro-key"));
+        assertFalse(registry.isKnownApiKey("other-key"));
+        assertFalse(registry.isKnownApiKey(null));
+    }
+
+    @Test
+    void whenPlanHasBurstAndSustainedLimits_thenTheTighterOneRejects() {
+        RateLimitPolicy free = registry.planPolicy(registry.resolvePlan(null));
+
+        assertEquals(2, free.getCapacity());
+        assertTrue(free.tryConsumeAndReturnRemaining(ClientKey.of("10.0.0.1"), 1).isConsumed());
+        assertTrue(free.tryConsumeAndReturnRemaining(ClientKey.of("10.0.0.1"), 1).isConsumed());
+        assertFalse(free.tryConsumeAndReturnRemaining(ClientKey.of("10.0.0.1"), 1).isConsumed());
+    }
+
+    @Test
+    void endpointPoliciesAreCompiledOncePerHandlerAndPlan() throws Exception {
+        HandlerMethod handler = handler("limited");
+        int free = registry.resolvePlan(null);
+        int pro = registry.resolvePlan("pro-key");
+
+        RateLimitPolicy freePolicy = registry.endpointPolicy(handler, free);
+        assertSame(freePolicy, registry.endpointPolicy(handler("limited"), free));
+        assertNotSame(freePolicy, registry.endpointPolicy(handler, pro));
+        assertEquals(1, freePolicy.getCapacity());
+        assertEquals(5, registry.endpointPolicy(handler, pro).getCapacity());
+        assertNull(registry.endpointPolicy(handler("unlimited"), free));
+    }
+
+    @Test
+    void whenAnnotationNamesUnknownPlan_thenFailFast() throws Exception {
+        HandlerMethod handler = handler("unknownPlan");
+
+        assertThrows(IllegalStateException.class, () -> registry.endpointPolicy(handler, 0));
+    }
+
+    @Test
+    void endpointsChooseTheirAlgorithm() throws Exception {
+        RateLimitPolicy gcra = registry.endpointPolicy(handler("gcra"), 0);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(gcra.tryConsumeAndReturnRemaining(ClientKey.of("10.0.0.1"), 1).isConsumed());
+        }
+        assertFalse(gcra.tryConsumeAndReturnRemaining(ClientKey.of("10.0.0.1"), 1).isConsumed());
+
+        HandlerMethod largeLog = handler("largeSlidingLog");
+        assertThrows(IllegalArgumentException.class, () -> registry.endpointPolicy(largeLog, 0));
+    }
+
+    private static HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new TestController(), TestController.class.getMethod(method));
+    }
+
+    private static RateLimitPolicyProperties properties() {
+        RateLimitPolicyProperties properties = new RateLimitPolicyProperties();
+        properties.getPlans().put("free", plan(bandwidth(2, Duration.ofSeconds(1)), bandwidth(100, Duration.ofHours(1))));
+        properties.getPlans().put("pro", plan(bandwidth(20, Duration.ofSeconds(1))));
+        properties.getApiKeys().put("pro-key", "pro");
+        return properties;
+    }
+
+    private static RateLimitPolicyProperties.Plan plan(RateLimitPolicyProperties.Bandwidth... limits) {
+        RateLimitPolicyProperties.Plan plan = new RateLimitPolicyProperties.Plan();
+        plan.getLimits().addAll(List.of(limits));
+        return plan;
+    }
+
+    private static RateLimitPolicyProperties.Bandwidth bandwidth(long capacity, Duration period) {
+        RateLimitPolicyProperties.Bandwidth bandwidth = new RateLimitPolicyProperties.Bandwidth();
+        bandwidth.setCapacity(capacity);
+        bandwidth.setPeriod(period);
+        return bandwidth;
+    }
+
+    static class TestController {
+
+        @RateLimited({
+                @Limit(capacity = 5, period = 1, unit = TimeUnit.MINUTES),
+                @Limit(capacity = 1, period = 1, unit = TimeUnit.MINUTES, plan = "free")
+        })
+        public void limited() {
+        }
+
+        public void unlimited() {
+        }
+
+        @RateLimited(@Limit(capacity = 5, plan = "enterprise"))
+        public void unknownPlan() {
+        }
+
+        @RateLimited(value = @Limit(capacity = 3), algorithm = LimitAlgorithm.GCRA)
+        public void gcra() {
+        }
+
+        @RateLimited(value = @Limit(capacity = 5000), algorithm = LimitAlgorithm.SLIDING_LOG)
+        public void largeSlidingLog() {
+        }
+    }
+}
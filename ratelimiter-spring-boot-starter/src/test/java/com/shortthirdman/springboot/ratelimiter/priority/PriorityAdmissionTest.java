@@ -0,0 +1,126 @@
+package com.shortthirdman.springboot.ratelimiter.priority;
+
+import com.shortthirdman.springboot.ratelimiter.monitoring.RateLimitConfigValues;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyProperties;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicyRegistry;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStoreFactory;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStoreProperties;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityAdmissionTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RateLimitPolicyRegistry policies;
+
+    PriorityAdmissionTest() {
+        RateLimitPolicyProperties policyProperties = new RateLimitPolicyProperties();
+        policyProperties.setPlans(Map.of("pro", new RateLimitPolicyProperties.Plan()));
+        policies = new RateLimitPolicyRegistry(policyProperties,
+                new ClientStateStoreFactory(new ClientStoreProperties(), new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void lowerClassesAreShedFirstAndTheCutLandsOnThem() {
+        RateLimitConfigValues healthy = new RateLimitConfigValues(100, Duration.ofMinutes(1));
+        PriorityAdmission admission = new PriorityAdmission(properties(), policies, () -> healthy, registry, () -> 0L);
+        PriorityClass critical = admission.resolve(plan("pro"), null);
+        PriorityClass batch = admission.resolve(plan("free"), "batch");
+
+        assertEquals(5, admitted(admission, batch));
+        assertEquals(5, admitted(admission, critical));
+
+        RateLimitConfigValues overloaded = new RateLimitConfigValues(30, Duration.ofMinutes(1));
+        PriorityAdmission cut = new PriorityAdmission(properties(), policies, () -> overloaded, registry, () -> 0L);
+        // 3 of 10 left: batch keeps half of that for the classes above it
+        assertEquals(2, admitted(cut, cut.resolve(plan("free"), "batch")));
+        assertEquals(1, admitted(cut, cut.resolve(plan("pro"), null)));
+        assertEquals(3, cut.getCapacity());
+    }
+
+    @Test
+    void headerCanOnlyLowerThePlansClass() {
+        PriorityAdmission admission = new PriorityAdmission(properties(), policies,
+                () -> new RateLimitConfigValues(100, Duration.ofMinutes(1)), registry, () -> 0L);
+
+        assertEquals("critical", admission.resolve(plan("pro"), null).getName());
+        assertEquals("batch", admission.resolve(plan("pro"), "BATCH").getName());
+        assertEquals("standard", admission.resolve(plan("free"), "critical").getName());
+        assertEquals("standard", admission.resolve(plan("free"), "unknown").getName());
+    }
+
+    @Test
+    void highPriorityRequestsWaitInsteadOfBeingRejected() {
+        PriorityProperties properties = properties();
+        properties.getClasses().get(0).setMaxWait(Duration.ofMillis(500));
+        properties.getClasses().get(0).setQueueSize(1);
+        PriorityAdmission admission = new PriorityAdmission(properties, policies,
+                () -> new RateLimitConfigValues(100, Duration.ofMinutes(1)), registry);
+        PriorityClass critical = admission.resolve(plan("pro"), null);
+        PriorityClass standard = admission.resolve(plan("free"), null);
+        for (int i = 0; i < 10; i++) {
+            admission.acquire(critical, 1);
+        }
+
+        long start = System.nanoTime();
+        assertTrue(admission.acquire(critical, 1).isConsumed());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+        ConsumptionProbe shed = admission.acquire(standard, 1);
+        assertFalse(shed.isConsumed());
+        assertTrue(shed.getNanosToWaitForRefill() > 0);
+
+        assertEquals(1, registry.get("rate_limit.priority.requests").tags("class", "critical", "outcome", "queued")
+                .counter().count());
+        assertEquals(1, registry.get("rate_limit.priority.requests").tags("class", "standard", "outcome", "shed")
+                .counter().count());
+    }
+
+    @Test
+    void refundedTokensAreAvailableAgain() {
+        PriorityAdmission admission = new PriorityAdmission(properties(), policies,
+                () -> new RateLimitConfigValues(100, Duration.ofMinutes(1)), registry, () -> 0L);
+        PriorityClass batch = admission.resolve(plan("pro"), "batch");
+
+        assertEquals(5, admitted(admission, batch));
+        admission.refund(2);
+        assertEquals(2, admitted(admission, batch));
+    }
+
+    private int plan(String name) {
+        for (int plan = 0; plan < policies.planCount(); plan++) {
+            if (policies.planName(plan).equals(name)) {
+                return plan;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static int admitted(PriorityAdmission admission, PriorityClass priority) {
+        int admitted = 0;
+        while (admission.acquire(priority, 1).isConsumed()) {
+            admitted++;
+        }
+        return admitted;
+    }
+
+    private static PriorityProperties properties() {
+        PriorityProperties properties = new PriorityProperties();
+        properties.setCapacity(10);
+        properties.setPeriod(Duration.ofSeconds(1));
+        properties.setPlans(Map.of("pro", "critical"));
+        properties.setClasses(List.of(
+                new PriorityProperties.TrafficClass("critical", 0, Duration.ZERO, 0),
+                new PriorityProperties.TrafficClass("standard", 0.2, Duration.ZERO, 0),
+                new PriorityProperties.TrafficClass("batch", 0.5, Duration.ZERO, 0)));
+        return properties;
+    }
+}
@@ -0,0 +1,115 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import com.shortthirdman.springboot.ratelimiter.policy.RateLimitPolicy;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientStateStoreTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void whenDrainedClientIsEvictedBySize_thenItComesBackDrained() {
+        ClientStateStore<AtomicLong> store = store(100);
+        store.get(ClientKey.named("victim"), tokens -> new AtomicLong(tokens == ClientStateStore.FULL ? 10 : tokens)).set(0);
+
+        // a flood of one-off keys pushes the drained client out
+        for (int i = 0; i < 10_000; i++) {
+            store.get(ClientKey.named("flood-" + i), tokens -> new AtomicLong(10));
+        }
+        store.cleanUp();
+
+        assertTrue(store.estimatedSize() <= 100);
+        long restored = store.get(ClientKey.named("victim"), tokens -> new AtomicLong(tokens == ClientStateStore.FULL ? 10 : tokens)).get();
+        assertEquals(0, restored);
+        assertEquals(1.0, registry.get("rate_limit.store.restored").counter().count());
+    }
+
+    @Test
+    void fullBucketsEvictedBySizeLeaveNoTombstone() {
+        ClientStoreProperties properties = new ClientStoreProperties();
+        properties.setMaxSize(100);
+        properties.setTombstones(2);
+        ClientStateStore<AtomicLong> store = new ClientStateStoreFactory(properties, registry)
+                .create("test", 100, value -> TimeUnit.MINUTES.toNanos(1), AtomicLong::get, value -> 10);
+        store.get(ClientKey.named("victim"), tokens -> new AtomicLong(10)).set(0);
+
+        // with two slots, tombstones of the full one-off keys would overwrite the drained client's
+        for (int i = 0; i < 10_000; i++) {
+            store.get(ClientKey.named("flood-" + i), tokens -> new AtomicLong(10));
+        }
+        store.cleanUp();
+
+        assertEquals(0, store.get(ClientKey.named("victim"), tokens -> new AtomicLong(10)).get());
+        for (int i = 0; i < 100; i++) {
+            store.get(ClientKey.named("flood-" + i), tokens -> new AtomicLong(10));
+        }
+        assertEquals(1.0, registry.get("rate_limit.store.restored").counter().count());
+    }
+
+    @Test
+    void evictedClientsAreCreditedTheRefillEarnedSinceAndKeepEachBandwidth() {
+        AtomicLong clock = new AtomicLong();
+        ClientStoreProperties properties = new ClientStoreProperties();
+        properties.setMaxSize(100);
+        ClientStateStoreFactory stores = new ClientStateStoreFactory(properties, registry, clock::get);
+        BucketConfiguration configuration = BucketConfiguration.builder()
+                .addLimit(Bandwidth.classic(10, Refill.intervally(10, Duration.ofSeconds(1))))
+                .addLimit(Bandwidth.classic(25, Refill.intervally(25, Duration.ofHours(1))))
+                .build();
+        RateLimitPolicy policy = new RateLimitPolicy("plan:test",
+                LimitAlgorithm.TOKEN_BUCKET.create(configuration, clock::get), stores);
+        ClientKey victim = ClientKey.of("203.0.113.1");
+        assertTrue(policy.tryConsumeAndReturnRemaining(victim, 10).isConsumed());
+
+        for (int i = 0; i < 10_000; i++) {
+            policy.tryConsumeAndReturnRemaining(ClientKey.named("flood-" + i), 1);
+        }
+        assertEquals(-1, policy.availableTokens(victim));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        // the burst limit has refilled while the hourly one is still down by the first 10 tokens
+        assertTrue(policy.tryConsumeAndReturnRemaining(victim, 10).isConsumed());
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals(5, policy.availableTokens(victim));
+    }
+
+    @Test
+    void whenInvalidated_thenClientsStartFull() {
+        ClientStateStore<AtomicLong> store = store(100);
+        store.get(ClientKey.named("client"), tokens -> new AtomicLong(0));
+
+        store.invalidateAll();
+
+        assertEquals(ClientStateStore.FULL, store.get(ClientKey.named("client"), AtomicLong::new).get());
+    }
+
+    @Test
+    void cacheStatisticsAreExported() {
+        ClientStateStore<AtomicLong> store = store(100);
+        store.get(ClientKey.named("client"), AtomicLong::new);
+        store.get(ClientKey.named("client"), AtomicLong::new);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "test").tag("result", "hit").functionCounter().count());
+    }
+
+    private ClientStateStore<AtomicLong> store(long maxSize) {
+        ClientStoreProperties properties = new ClientStoreProperties();
+        properties.setMaxSize(maxSize);
+        return new ClientStateStoreFactory(properties, registry)
+                .create("test", 100, value -> TimeUnit.MINUTES.toNanos(1), AtomicLong::get, value -> 10);
+    }
+}
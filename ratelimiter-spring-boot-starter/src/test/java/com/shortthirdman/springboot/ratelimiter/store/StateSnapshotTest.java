@@ -0,0 +1,87 @@
+package com.shortthirdman.springboot.ratelimiter.store;
+
+import com.shortthirdman.springboot.ratelimiter.key.ClientKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenRestarted_thenClientsResumeFromSnapshottedLevel() throws Exception {
+        Path path = directory.resolve("state.bin");
+        ClientStateStoreFactory before = factory(path);
+        ClientStateStore<AtomicLong> store = store(before);
+        store.get(ClientKey.named("drained"), AtomicLong::new).set(3);
+        store.get(ClientKey.named("untouched"), tokens -> new AtomicLong(10));
+        before.registerSetting("limit", () -> 42);
+
+        assertEquals(1, before.writeSnapshot(path));
+
+        ClientStateStoreFactory after = factory(path);
+        assertEquals(42, after.restoredSetting("limit").getAsLong());
+        ClientStateStore<AtomicLong> restored = store(after);
+        assertEquals(3, restored.get(ClientKey.named("drained"), AtomicLong::new).get());
+        assertEquals(ClientStateStore.FULL, restored.get(ClientKey.named("untouched"), AtomicLong::new).get());
+        // each level is handed out once
+        restored.invalidateAll();
+        assertEquals(ClientStateStore.FULL, restored.get(ClientKey.named("drained"), AtomicLong::new).get());
+    }
+
+    @Test
+    void whenSnapshotIsUnreadable_thenStartCold() throws Exception {
+        Path path = directory.resolve("state.bin");
+        Files.write(path, new byte[]{1, 2, 3});
+
+        ClientStateStoreFactory factory = factory(path);
+
+        assertTrue(factory.restoredSetting("limit").isEmpty());
+        assertNull(factory.restoredClients("test"));
+    }
+
+    @Test
+    void snapshotsOfAnotherVersionAreNotRestored() throws Exception {
+        Path path = directory.resolve("state.bin");
+        ByteBuffer header = ByteBuffer.allocate(20).putInt(0x524C5354).putInt(1).putLong(System.currentTimeMillis())
+                .putInt(0);
+        Files.write(path, header.array());
+
+        assertNull(factory(path).restoredClients("test"));
+    }
+
+    @Test
+    void restoredLevelsAreCreditedTheRefillEarnedSinceTheSnapshot() {
+        long fingerprint = ClientKey.named("drained").fingerprint();
+        // 0 of 10 tokens, refilling in an hour, snapshotted half an hour ago
+        long[] records = {fingerprint, 10, TimeUnit.HOURS.toNanos(1)};
+        RestoredClients clients = new RestoredClients(records, System.nanoTime() - TimeUnit.MINUTES.toNanos(30))
+                .indexed();
+
+        assertEquals(5, clients.take(fingerprint));
+        assertEquals(ClientStateStore.FULL, clients.take(fingerprint));
+    }
+
+    private static ClientStateStoreFactory factory(Path path) {
+        ClientStoreProperties properties = new ClientStoreProperties();
+        properties.getSnapshot().setEnabled(true);
+        properties.getSnapshot().setPath(path);
+        return new ClientStateStoreFactory(properties, new SimpleMeterRegistry());
+    }
+
+    private static ClientStateStore<AtomicLong> store(ClientStateStoreFactory factory) {
+        return factory.create("test", 100, value -> TimeUnit.HOURS.toNanos(1), AtomicLong::get, value -> 10);
+    }
+}
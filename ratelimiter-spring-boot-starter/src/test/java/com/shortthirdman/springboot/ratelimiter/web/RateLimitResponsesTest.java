@@ -0,0 +1,95 @@
+package com.shortthirdman.springboot.ratelimiter.web;
+
+import com.shortthirdman.springboot.ratelimiter.algorithm.LimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.algorithm.RateLimitAlgorithm;
+import com.shortthirdman.springboot.ratelimiter.store.ClientStateStore;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitResponsesTest {
+
+    @Test
+    void waitsAreRoundedUpToWholeSeconds() {
+        assertEquals(0, RateLimitResponses.secondsUntil(0));
+        assertEquals(1, RateLimitResponses.secondsUntil(1));
+        assertEquals(1, RateLimitResponses.secondsUntil(1_000_000_000));
+        assertEquals(2, RateLimitResponses.secondsUntil(1_000_000_001));
+    }
+
+    @Test
+    void requestsNoBucketCanFitGetAPositiveWait() throws Exception {
+        assertEquals(9_223_372_037L, RateLimitResponses.secondsUntil(Long.MAX_VALUE));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RateLimitResponses.reject(response, 10, ConsumptionProbe.rejected(10, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals("9223372037", response.getHeader("Retry-After"));
+        assertEquals("{\"error\": \"Rate limit exceeded. Try again in 9223372037 seconds\", \"retryAfter\": 9223372037}",
+                response.getContentAsString());
+    }
+
+    @Test
+    void bodiesOutsideTheCachedRangeMatchTheTemplate() {
+        assertSame(RateLimitResponses.rejectionBody(7), RateLimitResponses.rejectionBody(7));
+        assertEquals("{\"error\": \"Rate limit exceeded. Try again in 86400 seconds\", \"retryAfter\": 86400}",
+                new String(RateLimitResponses.rejectionBody(86_400), StandardCharsets.US_ASCII));
+        assertSame(RateLimitResponses.number(42), RateLimitResponses.number(42));
+        assertEquals("1000000", RateLimitResponses.number(1_000_000));
+    }
+
+    @Test
+    void unknownLimitIsLeftOut() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RateLimitResponses.reject(response, -1, ConsumptionProbe.rejected(0, 2_500_000_000L, 5_000_000_000L));
+
+        assertEquals(429, response.getStatus());
+        assertEquals("3", response.getHeader("Retry-After"));
+        assertEquals("3", response.getHeader("X-Rate-Limit-Retry-After-Seconds"));
+        assertEquals("5", response.getHeader("RateLimit-Reset"));
+        assertNull(response.getHeader("RateLimit-Limit"));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+    }
+
+    @Test
+    void resetDescribesTheSameBandwidthAsTheLimit() throws Exception {
+        BucketConfiguration perSecondAndHour = BucketConfiguration.builder()
+                .addLimit(Bandwidth.simple(1000, Duration.ofHours(1)))
+                .addLimit(Bandwidth.simple(10, Duration.ofSeconds(1)))
+                .build();
+        for (LimitAlgorithm limitAlgorithm : LimitAlgorithm.values()) {
+            admitTenThenReject(limitAlgorithm.name(), limitAlgorithm.create(perSecondAndHour, () -> 0L));
+        }
+    }
+
+    private static <S> void admitTenThenReject(String name, RateLimitAlgorithm<S> algorithm) throws Exception {
+        S state = algorithm.newState(ClientStateStore.FULL);
+        ConsumptionProbe probe = null;
+        for (int i = 0; i < 10; i++) {
+            probe = algorithm.tryConsume(state, 1);
+        }
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        RateLimitResponses.addHeaders(admitted, algorithm.capacity(), probe);
+
+        assertEquals("10", admitted.getHeader("RateLimit-Limit"), name);
+        assertEquals("0", admitted.getHeader("RateLimit-Remaining"), name);
+        // the hourly bandwidth would need 36 seconds to be full again, the per-second one at most two
+        assertTrue(Long.parseLong(admitted.getHeader("RateLimit-Reset")) <= 2, name);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        RateLimitResponses.reject(rejected, algorithm.capacity(), algorithm.tryConsume(state, 1));
+
+        assertEquals(429, rejected.getStatus(), name);
+        long reset = Long.parseLong(rejected.getHeader("RateLimit-Reset"));
+        assertTrue(reset <= 2 && reset >= Long.parseLong(rejected.getHeader("Retry-After")), name);
+    }
+}
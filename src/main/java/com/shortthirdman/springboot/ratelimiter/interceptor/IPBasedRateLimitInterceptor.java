@@ -1,62 +0,0 @@
-package com.shortthirdman.springboot.ratelimiter.interceptor;
-
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.ConsumptionProbe;
-import io.github.bucket4j.Refill;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.http.HttpStatus;
-import org.springframework.lang.NonNull;
-import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
-
-import java.time.Duration;
-import java.util.concurrent.TimeUnit;
-
-@Component
-public class IPBasedRateLimitInterceptor implements HandlerInterceptor {
-
-    private final Cache<String, Bucket> cache;
-
-    public IPBasedRateLimitInterceptor() {
-        this.cache = Caffeine.newBuilder()
-                .expireAfterWrite(1, TimeUnit.SECONDS)
-                .build();
-    }
-
-    @Override
-    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
-        String ip = getClientIP(request);
-        Bucket bucket = cache.get(ip, this::newBucket);
-
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
-        if (probe.isConsumed()) {
-            response.addHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
-            return true;
-        }
-
-        long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
-        response.addHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(waitForRefill));
-        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
-                "Rate limit exceeded. Try again in " + waitForRefill + " seconds");
-        return false;
-    }
-
-    private String getClientIP(HttpServletRequest request) {
-        String xfHeader = request.getHeader("X-Forwarded-For");
-        if (xfHeader == null) {
-            return request.getRemoteAddr();
-        }
-        return xfHeader.split(",")[0];
-    }
-
-
-    private Bucket newBucket(String ip) {
-        return Bucket.builder()
-                .addLimit(Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1))))
-                .build();
-    }
-}
@@ -1,34 +0,0 @@
-package com.shortthirdman.springboot.ratelimiter.interceptor;
-
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.ConsumptionProbe;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
-import org.springframework.lang.NonNull;
-import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
-
-@Component
-@RequiredArgsConstructor
-public class RateLimitInterceptor implements HandlerInterceptor {
-
-    private final Bucket bucket;
-
-    @Override
-    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) throws Exception {
-        ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
-
-        if (probe.isConsumed()) {
-            response.addHeader("X-Rate-Limit-Remaining", String.valueOf(probe.getRemainingTokens()));
-            return true;
-        }
-
-        long waitForRefill = probe.getNanosToWaitForRefill() / 1_000_000_000;
-        response.addHeader("X-Rate-Limit-Retry-After-Seconds", String.valueOf(waitForRefill));
-        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
-                "You have exhausted your API Request Quota");
-        return false;
-    }
-}